@@ -0,0 +1,26 @@
+package com.mvp;
+
+/**
+ * Decides what happens to an asynchronously dispatched event when the event queue of a bus is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * The dispatching thread waits until there is room in the queue. An event dispatched by a
+     * listener on the thread that drains the queue cannot wait for it, so it is delivered right away,
+     * ahead of the events that are still queued.
+     */
+    BLOCK,
+    /**
+     * The oldest queued event is discarded in favour of the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * The new event is discarded.
+     */
+    DROP_NEWEST,
+    /**
+     * A queued event of the same class is replaced by the new one, regardless of whether the queue is full.
+     * If there is none and the queue is full, the oldest queued event is discarded.
+     */
+    CONFLATE
+}
@@ -22,13 +22,20 @@ public class BaseApplicationProvider extends Application {
 
     @Override
     public void onCreate() {
-        moduleEventBus = new ModuleEventBus();
+        moduleEventBus = new ModuleEventBus(createEventBusEngine());
         componentEventBus = DaggerComponentEventBus.builder()
                                    .moduleCustomEventBus(new ModuleCustomEventBus(mvpEventBus().eventBus))
                                    .build();
         super.onCreate();
     }
 
+    /**
+     * @return the engine of the application wide event bus, see {@link EventBusEngine}
+     */
+    protected EventBusEngine createEventBusEngine() {
+        return new CopyOnWriteEngine();
+    }
+
     @Override
     public void onTerminate() {
         moduleEventBus.destroy();
@@ -0,0 +1,8 @@
+package com.mvp;
+
+/**
+ * Work that can be stopped from another thread, e.g. a network call.
+ */
+public interface Cancellable {
+    void cancel();
+}
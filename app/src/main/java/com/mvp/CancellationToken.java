@@ -0,0 +1,148 @@
+package com.mvp;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tells blocking work that its result is no longer needed. Every presenter has a token that is
+ * cancelled when the presenter is destroyed, every task of its {@link TaskScheduler} runs with a
+ * child of it that is also cancelled when the task is superseded. Code running in such a task gets
+ * the token from {@link #current()} and registers what has to be stopped, e.g. a Retrofit call:
+ * <pre>
+ * CancellationToken token = CancellationToken.current();
+ * token.onCancel(cancellable);
+ * try {
+ *     return call.execute();
+ * } finally {
+ *     token.remove(cancellable);
+ * }
+ * </pre>
+ */
+public class CancellationToken {
+
+    /**
+     * The token of code that does not run in a task, it is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(null, false);
+
+    private static final ThreadLocal<CancellationToken> current = new ThreadLocal<>();
+
+    private final CancellationToken parent;
+    private final boolean cancellable;
+    private ArrayList<Cancellable> cancellables = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(null, true);
+    }
+
+    private CancellationToken(CancellationToken parent, boolean cancellable) {
+        this.parent = parent;
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * @return the token of the task running on this thread, {@link #NONE} outside of tasks
+     */
+    public static CancellationToken current() {
+        CancellationToken token = current.get();
+        return token != null ? token : NONE;
+    }
+
+    /**
+     * Makes {@code token} the one returned by {@link #current()} on this thread.
+     *
+     * @return the token it replaced, to be restored afterwards
+     */
+    static CancellationToken enter(CancellationToken token) {
+        CancellationToken previous = current.get();
+        current.set(token);
+        return previous;
+    }
+
+    /**
+     * @return a token that is cancelled together with this one, it stays registered on this token
+     * until it is cancelled or {@link #release() released}
+     */
+    public CancellationToken child() {
+        CancellationToken child = new CancellationToken(this, true);
+        onCancel(new Child(child));
+        return child;
+    }
+
+    /**
+     * Detaches this token from its parent once the work it guards is done.
+     */
+    public void release() {
+        if (parent != null)
+            parent.remove(new Child(this));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled)
+            throw new CancellationException();
+    }
+
+    /**
+     * Cancels {@code cancellable} together with this token, right away if it is already cancelled.
+     */
+    public void onCancel(Cancellable cancellable) {
+        if (!this.cancellable)
+            return;
+        synchronized (this) {
+            if (!cancelled) {
+                cancellables.add(cancellable);
+                return;
+            }
+        }
+        cancellable.cancel();
+    }
+
+    public synchronized void remove(Cancellable cancellable) {
+        if (!cancelled)
+            cancellables.remove(cancellable);
+    }
+
+    public void cancel() {
+        if (!cancellable)
+            return;
+        ArrayList<Cancellable> cancellables;
+        synchronized (this) {
+            if (cancelled)
+                return;
+            cancelled = true;
+            cancellables = this.cancellables;
+            this.cancellables = null;
+        }
+        release();
+        for (Cancellable cancellable : cancellables)
+            cancellable.cancel();
+    }
+
+    private static final class Child implements Cancellable {
+        private final CancellationToken token;
+
+        Child(CancellationToken token) {
+            this.token = token;
+        }
+
+        @Override
+        public void cancel() {
+            token.cancel();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Child && ((Child) o).token == token;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(token);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mvp;
+
+/**
+ * Queues the values of a channel listener until they are delivered on its thread. Int and double
+ * values are stored as their long bits in a growing ring buffer, so once the buffer is big enough
+ * for a burst, queueing a value neither boxes it nor allocates. Only the first offer after the queue
+ * ran empty has to schedule the delivery, which then drains every value in order.
+ */
+public final class ChannelQueue {
+
+    private long[] values = new long[8];
+    private int head;
+    private int size;
+    private boolean scheduled;
+
+    /**
+     * @return true if the caller has to schedule the delivery
+     */
+    public synchronized boolean offer(long value) {
+        if (size == values.length) {
+            long[] grown = new long[values.length * 2];
+            for (int i = 0; i < size; i++)
+                grown[i] = values[(head + i) % values.length];
+            values = grown;
+            head = 0;
+        }
+        values[(head + size++) % values.length] = value;
+        if (scheduled)
+            return false;
+        scheduled = true;
+        return true;
+    }
+
+    /**
+     * Called by the delivery, the next offer has to schedule another one once this returns false.
+     */
+    public synchronized boolean hasNext() {
+        if (size == 0)
+            scheduled = false;
+        return size > 0;
+    }
+
+    public synchronized long next() {
+        if (size == 0)
+            throw new IllegalStateException("queue is empty");
+        long value = values[head];
+        head = (head + 1) % values.length;
+        size--;
+        return value;
+    }
+}
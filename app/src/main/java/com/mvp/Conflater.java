@@ -0,0 +1,51 @@
+package com.mvp;
+
+/**
+ * Holds the latest event of a conflating listener until it is delivered. Only the first offer
+ * after a delivery has to schedule this runnable, every further offer just replaces the pending
+ * event (and its targets), so a burst of events results in a single hop and a single delivery.
+ */
+public abstract class Conflater<T> implements Runnable {
+
+    private final Object lock = new Object();
+    private T pending;
+    private Class<?>[] pendingTarget;
+    private boolean scheduled;
+
+    /**
+     * @return true if the caller has to schedule (or directly run) this conflater
+     */
+    public boolean offer(T data, Class<?>[] target) {
+        synchronized (lock) {
+            pending = data;
+            pendingTarget = target;
+            if (scheduled)
+                return false;
+            scheduled = true;
+            return true;
+        }
+    }
+
+    public boolean isScheduled() {
+        synchronized (lock) {
+            return scheduled;
+        }
+    }
+
+    @Override
+    public final void run() {
+        T data;
+        Class<?>[] target;
+        synchronized (lock) {
+            data = pending;
+            target = pendingTarget;
+            pending = null;
+            pendingTarget = null;
+            scheduled = false;
+        }
+        if (data != null)
+            deliver(data, target);
+    }
+
+    protected abstract void deliver(T data, Class<?>[] target);
+}
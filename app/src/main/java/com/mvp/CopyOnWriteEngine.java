@@ -0,0 +1,114 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default engine. Listeners are kept in immutable arrays that are copied on every change, a
+ * dispatch walks cached plans without locking and without allocating.
+ */
+public class CopyOnWriteEngine implements EventBusEngine {
+
+    private final ListenerTable listenerTable = new ListenerTable();
+
+    @Override
+    public boolean add(OnEventListener<?> eventListener) {
+        return listenerTable.add(eventListener);
+    }
+
+    @Override
+    public boolean remove(OnEventListener<?> eventListener) {
+        return listenerTable.remove(eventListener);
+    }
+
+    @Override
+    public <V> boolean dispatch(V data, Class<?>[] targets) {
+        if (targets != null)
+            return dispatchToTargets(data, targets);
+        boolean consumed = false;
+        for (OnEventListener<?>[] snapshot : listenerTable.plan(data.getClass()))
+            consumed |= dispatchToConsumers(snapshot, data);
+        for (ListenerTable.KeyedListeners group : listenerTable.keyedPlan(data.getClass()))
+            consumed |= dispatchToKeyed(group, data);
+        return consumed;
+    }
+
+    @Override
+    public void collect(Object data, List<OnEventListener<?>> listeners) {
+        for (OnEventListener<?>[] snapshot : listenerTable.plan(data.getClass())) {
+            for (OnEventListener<?> listener : snapshot)
+                listeners.add(listener);
+        }
+        for (ListenerTable.KeyedListeners group : listenerTable.keyedPlan(data.getClass())) {
+            for (OnEventListener<?> listener : group.match(data))
+                listeners.add(listener);
+        }
+    }
+
+    @Override
+    public Map<Class<?>, Integer> listenerCounts() {
+        return listenerTable.listenerCounts();
+    }
+
+    @Override
+    public EventBusEngine newInstance() {
+        return new CopyOnWriteEngine();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> boolean dispatchToTargets(V data, Class<?>[] targets) {
+        Class<?> clazz = data.getClass();
+        if (targets.length == 1) {
+            OnEventListener<?>[] plan = listenerTable.targetedPlan(clazz, targets[0]);
+            for (OnEventListener<?> listener : plan)
+                ((OnEventListener<V>) listener).onEvent(data, targets);
+            return plan.length > 0;
+        }
+        boolean consumed = false;
+        OnEventListener<?>[][] plans = new OnEventListener<?>[targets.length][];
+        for (int i = 0; i < targets.length; i++) {
+            plans[i] = listenerTable.targetedPlan(clazz, targets[i]);
+            for (OnEventListener<?> listener : plans[i]) {
+                if (!isAlreadyTargeted(plans, i, listener))
+                    ((OnEventListener<V>) listener).onEvent(data, targets);
+            }
+            consumed |= plans[i].length > 0;
+        }
+        return consumed;
+    }
+
+    private static boolean isAlreadyTargeted(OnEventListener<?>[][] plans, int count, OnEventListener<?> listener) {
+        for (int i = 0; i < count; i++) {
+            if (ListenerTable.indexOf(plans[i], listener) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> boolean dispatchToKeyed(ListenerTable.KeyedListeners group, V data) {
+        OnEventListener<?>[] matches = group.match(data);
+        for (OnEventListener<?> listener : matches)
+            ((OnEventListener<V>) listener).onEvent(data, (Class<?>[]) null);
+        return matches.length > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> boolean dispatchToConsumers(OnEventListener<?>[] snapshot, V data) {
+        boolean consumed = false;
+        for (OnEventListener<?> listener : snapshot) {
+            OnEventListener<V> eventListener = (OnEventListener<V>) listener;
+            if (eventListener.shouldConsumeEvent(data)) {
+                eventListener.onEvent(data, (Class<?>[]) null);
+                consumed = true;
+            }
+        }
+        return consumed;
+    }
+}
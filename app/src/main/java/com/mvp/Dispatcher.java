@@ -3,8 +3,11 @@ package com.mvp;
 
 public class Dispatcher<P> implements IDispatcher<P> {
 
+    private static final Class<?>[] ANY = new Class<?>[0];
+
     private IMvpEventBus eventBus;
     private P data;
+    private boolean escalate;
 
     public Dispatcher(IMvpEventBus eventBus){
         this.eventBus = eventBus;
@@ -12,17 +15,55 @@ public class Dispatcher<P> implements IDispatcher<P> {
 
     public IDispatcher<P> dispatchEvent(P data){
         this.data = data;
+        this.escalate = false;
+        return this;
+    }
+
+    @Override
+    public IDispatcher<P> escalate(){
+        this.escalate = true;
         return this;
     }
 
+    private IMvpEventBus eventBus(){
+        IMvpEventBus parent = escalate ? eventBus.getParent() : null;
+        escalate = false;
+        return parent != null ? parent : eventBus;
+    }
+
     @Override
     public void to(Class<?>... targets){
-        this.eventBus.dispatchEvent(data, targets);
+        P data = this.data;
+        this.data = null;
+        eventBus().dispatchEvent(data, targets);
     }
 
     @Override
     public void toAny(){
-        this.eventBus.dispatchEvent(data);
+        P data = this.data;
+        this.data = null;
+        eventBus().dispatchEventToAny(data);
+    }
+
+    @Override
+    public void toAnyConcurrently(Runnable completion){
+        P data = this.data;
+        this.data = null;
+        eventBus().dispatchEventConcurrently(data, completion);
+    }
+
+    @Override
+    public boolean toAsync(Class<?>... targets){
+        P data = this.data;
+        this.data = null;
+        return eventBus().enqueueEvent(data, targets);
+    }
+
+    @Override
+    public boolean toAnyAsync(){
+        P data = this.data;
+        this.data = null;
+        return eventBus().enqueueEvent(data, ANY);
     }
 
 }
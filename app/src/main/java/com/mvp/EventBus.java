@@ -4,4 +4,8 @@ public interface EventBus {
     void register(Object o);
     void unregister(Object o);
     <V> IDispatcher<V> dispatchEvent(V data);
+    <V> void dispatchStickyEvent(V data);
+    <V> V getStickyEvent(Class<V> eventClass);
+    <V> V removeStickyEvent(Class<V> eventClass);
+    void clearStickyEvents();
 }
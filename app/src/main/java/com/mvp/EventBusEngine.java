@@ -0,0 +1,50 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the listeners of an {@link MvpEventBus} and delivers events to them. Sticky events, the
+ * async queue, child buses, listener owners and metrics stay with the bus, so every engine gets
+ * them without implementing them.
+ * <p>
+ * An untargeted event reaches every listener whose data class is a supertype of the event class
+ * and whose condition holds, the listeners of one data class in the order they were added. A
+ * targeted event is offered once to every listener whose target class is assignable to one of the
+ * targets. {@code EventBusEngineConformanceTest} checks these rules for an engine.
+ */
+public interface EventBusEngine {
+
+    /**
+     * @return false if the listener was already added
+     */
+    boolean add(OnEventListener<?> eventListener);
+
+    /**
+     * @return false if the listener was not added
+     */
+    boolean remove(OnEventListener<?> eventListener);
+
+    /**
+     * @param targets the target classes, null for an untargeted event
+     * @return whether a listener consumed the event, an engine that delivers later returns whether
+     * it accepted the event
+     */
+    <V> boolean dispatch(V data, Class<?>[] targets);
+
+    /**
+     * Adds the listeners an untargeted event would be offered to, for a fan-out dispatch.
+     */
+    void collect(Object data, List<OnEventListener<?>> listeners);
+
+    Map<Class<?>, Integer> listenerCounts();
+
+    /**
+     * @return an empty engine of the same kind, for a child bus
+     */
+    EventBusEngine newInstance();
+
+    void shutdown();
+}
@@ -0,0 +1,265 @@
+package com.mvp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link MvpEventBus}. Metrics are disabled by default, while they are disabled the
+ * bus only pays for a volatile read per dispatched event and binds listeners to the plain handler
+ * and executor. Handlers and executors of listeners that are bound while metrics are enabled are
+ * metered, they report how long posted events waited before they ran.
+ */
+public final class EventBusMetrics {
+
+    public interface Reporter {
+        void report(Snapshot snapshot);
+    }
+
+    private volatile boolean enabled;
+    private final ConcurrentHashMap<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+    private final LatencyHistogram uiLatency = new LatencyHistogram();
+    private final LatencyHistogram backgroundLatency = new LatencyHistogram();
+    private final AtomicInteger pendingBackgroundTasks = new AtomicInteger();
+
+    EventBusMetrics() { }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void reset() {
+        counters.clear();
+        uiLatency.reset();
+        backgroundLatency.reset();
+    }
+
+    void recordDispatch(Class<?> eventClass, boolean consumed) {
+        Counter counter = counters.get(eventClass);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = counters.putIfAbsent(eventClass, newCounter);
+            if (counter == null)
+                counter = newCounter;
+        }
+        counter.dispatched.incrementAndGet();
+        if (consumed)
+            counter.consumed.incrementAndGet();
+    }
+
+    void recordUiLatency(long micros) {
+        uiLatency.record(micros);
+    }
+
+    void backgroundTaskSubmitted() {
+        pendingBackgroundTasks.incrementAndGet();
+    }
+
+    void backgroundTaskStarted(long waitedMicros) {
+        pendingBackgroundTasks.decrementAndGet();
+        if (enabled)
+            backgroundLatency.record(waitedMicros);
+    }
+
+    Snapshot snapshot(Map<Class<?>, Integer> listenerCounts, int queueDepth, long droppedEvents, long reclaimedListeners) {
+        HashMap<Class<?>, EventTypeStats> types = new HashMap<>();
+        for (Map.Entry<Class<?>, Counter> entry : counters.entrySet()) {
+            Integer listeners = listenerCounts.get(entry.getKey());
+            types.put(entry.getKey(), new EventTypeStats(entry.getValue().dispatched.get(),
+                    entry.getValue().consumed.get(), listeners != null ? listeners : 0));
+        }
+        for (Map.Entry<Class<?>, Integer> entry : listenerCounts.entrySet()) {
+            if (!types.containsKey(entry.getKey()))
+                types.put(entry.getKey(), new EventTypeStats(0, 0, entry.getValue()));
+        }
+        return new Snapshot(System.currentTimeMillis(), types, uiLatency.snapshot(), backgroundLatency.snapshot(),
+                pendingBackgroundTasks.get(), queueDepth, droppedEvents, reclaimedListeners);
+    }
+
+    private static class Counter {
+        final AtomicLong dispatched = new AtomicLong();
+        final AtomicLong consumed = new AtomicLong();
+    }
+
+    public static final class Snapshot {
+
+        private final long timestamp;
+        private final Map<Class<?>, EventTypeStats> eventTypes;
+        private final Histogram uiLatency;
+        private final Histogram backgroundLatency;
+        private final int executorQueueDepth;
+        private final int asyncQueueDepth;
+        private final long droppedEvents;
+        private final long reclaimedListeners;
+
+        Snapshot(long timestamp, Map<Class<?>, EventTypeStats> eventTypes, Histogram uiLatency, Histogram backgroundLatency,
+                 int executorQueueDepth, int asyncQueueDepth, long droppedEvents, long reclaimedListeners) {
+            this.timestamp = timestamp;
+            this.eventTypes = Collections.unmodifiableMap(eventTypes);
+            this.uiLatency = uiLatency;
+            this.backgroundLatency = backgroundLatency;
+            this.executorQueueDepth = executorQueueDepth;
+            this.asyncQueueDepth = asyncQueueDepth;
+            this.droppedEvents = droppedEvents;
+            this.reclaimedListeners = reclaimedListeners;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Map<Class<?>, EventTypeStats> getEventTypes() {
+            return eventTypes;
+        }
+
+        public EventTypeStats getEventType(Class<?> eventClass) {
+            EventTypeStats stats = eventTypes.get(eventClass);
+            return stats != null ? stats : EventTypeStats.NONE;
+        }
+
+        /**
+         * Time between posting an event delivery to the main thread and running it.
+         */
+        public Histogram getUiLatency() {
+            return uiLatency;
+        }
+
+        /**
+         * Time between submitting an event delivery to a background executor and running it.
+         */
+        public Histogram getBackgroundLatency() {
+            return backgroundLatency;
+        }
+
+        /**
+         * Event deliveries that have been submitted to metered executors but did not start yet.
+         */
+        public int getExecutorQueueDepth() {
+            return executorQueueDepth;
+        }
+
+        public int getAsyncQueueDepth() {
+            return asyncQueueDepth;
+        }
+
+        public long getDroppedEvents() {
+            return droppedEvents;
+        }
+
+        /**
+         * Listeners removed because their presenter or registered object was garbage collected.
+         */
+        public long getReclaimedListeners() {
+            return reclaimedListeners;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("EventBusMetrics{ui=").append(uiLatency)
+              .append(", background=").append(backgroundLatency)
+              .append(", executorQueueDepth=").append(executorQueueDepth)
+              .append(", asyncQueueDepth=").append(asyncQueueDepth)
+              .append(", droppedEvents=").append(droppedEvents)
+              .append(", reclaimedListeners=").append(reclaimedListeners);
+            for (Map.Entry<Class<?>, EventTypeStats> entry : eventTypes.entrySet())
+                sb.append(", ").append(entry.getKey().getSimpleName()).append('=').append(entry.getValue());
+            return sb.append('}').toString();
+        }
+    }
+
+    public static final class EventTypeStats {
+
+        static final EventTypeStats NONE = new EventTypeStats(0, 0, 0);
+
+        private final long dispatched;
+        private final long consumed;
+        private final int listeners;
+
+        EventTypeStats(long dispatched, long consumed, int listeners) {
+            this.dispatched = dispatched;
+            this.consumed = consumed;
+            this.listeners = listeners;
+        }
+
+        public long getDispatched() {
+            return dispatched;
+        }
+
+        /**
+         * Dispatches that reached at least one listener that consumed the event.
+         */
+        public long getConsumed() {
+            return consumed;
+        }
+
+        public int getListeners() {
+            return listeners;
+        }
+
+        @Override
+        public String toString() {
+            return "{dispatched=" + dispatched + ", consumed=" + consumed + ", listeners=" + listeners + "}";
+        }
+    }
+
+    public static final class Histogram {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Histogram(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxMicros() {
+            return max;
+        }
+
+        public long getMeanMicros() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @return the upper bound of the bucket that contains the given percentile, in microseconds
+         */
+        public long getPercentileMicros(double percentile) {
+            if (count == 0)
+                return 0;
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank)
+                    return Math.min(i == 0 ? 1 : 1L << i, max);
+            }
+            return max;
+        }
+
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count + ", mean=" + getMeanMicros() + "us, p50=" + getPercentileMicros(50)
+                    + "us, p99=" + getPercentileMicros(99) + "us, max=" + max + "us}";
+        }
+    }
+}
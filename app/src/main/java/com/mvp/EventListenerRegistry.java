@@ -0,0 +1,18 @@
+package com.mvp;
+
+import android.os.Handler;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Implemented by the generated {@code com.mvp.MvpEventListener}, creates the event listeners of
+ * presenters and registered objects. The generated registry is instantiated once and switches on the
+ * class name to a generated holder class per presenter, so binding needs neither reflection nor
+ * locking and only loads the listener classes of presenters that are actually bound.
+ */
+interface EventListenerRegistry {
+    ArrayList<OnEventListener<?>> get(Class<?> clazz, Object e, Handler handler, ExecutorService service);
+}
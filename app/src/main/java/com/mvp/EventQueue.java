@@ -0,0 +1,208 @@
+package com.mvp;
+
+import android.util.Log;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded multi-producer queue for asynchronously dispatched events. The slots are allocated once,
+ * a single lazily started daemon thread takes the events out and hands them to {@link #deliver}.
+ * What happens when the queue is full is decided by the {@link BackpressurePolicy}. A delivery that
+ * throws is reported and the thread goes on with the next event.
+ */
+abstract class EventQueue implements Runnable {
+
+    private final Object[] events;
+    private final Class<?>[][] targets;
+    private final long[] traceIds;
+    private final BackpressurePolicy policy;
+    private final String threadName;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int head;
+    private int count;
+    private volatile long droppedEvents;
+    private Thread thread;
+    private boolean shutdown;
+
+    EventQueue(int capacity, BackpressurePolicy policy, String threadName) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        if (policy == null)
+            throw new IllegalArgumentException("policy must not be null");
+        this.events = new Object[capacity];
+        this.targets = new Class<?>[capacity][];
+        this.traceIds = new long[capacity];
+        this.policy = policy;
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return false if the event has been dropped, always the case once the queue is shut down
+     */
+    boolean offer(Object data, Class<?>[] target) {
+        if (data == null)
+            throw new IllegalArgumentException("event must not be null");
+        long traceId = Tracer.currentId();
+        lock.lock();
+        try {
+            if (shutdown)
+                return false;
+            if (policy == BackpressurePolicy.CONFLATE && replace(data, target, traceId)) {
+                droppedEvents++;
+                return true;
+            }
+            if (count == events.length) {
+                switch (policy) {
+                    case BLOCK:
+                        if (Thread.currentThread() == thread) {
+                            lock.unlock();
+                            try {
+                                deliver(data, target, traceId);
+                            } finally {
+                                lock.lock();
+                            }
+                            return true;
+                        }
+                        while (count == events.length && !shutdown)
+                            notFull.await();
+                        if (shutdown)
+                            return false;
+                        break;
+                    case DROP_NEWEST:
+                        droppedEvents++;
+                        return false;
+                    default:
+                        removeFirst();
+                        droppedEvents++;
+                        break;
+                }
+            }
+            int tail = (head + count) % events.length;
+            events[tail] = data;
+            targets[tail] = target;
+            traceIds[tail] = traceId;
+            count++;
+            if (thread == null)
+                startThread();
+            notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedEvents++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean replace(Object data, Class<?>[] target, long traceId) {
+        Class<?> dataClass = data.getClass();
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % events.length;
+            if (events[index].getClass() == dataClass) {
+                events[index] = data;
+                targets[index] = target;
+                traceIds[index] = traceId;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeFirst() {
+        events[head] = null;
+        targets[head] = null;
+        traceIds[head] = 0;
+        head = (head + 1) % events.length;
+        count--;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Object data;
+            Class<?>[] target;
+            long traceId;
+            lock.lock();
+            try {
+                while (count == 0 && !shutdown)
+                    notEmpty.await();
+                if (shutdown)
+                    return;
+                data = events[head];
+                target = targets[head];
+                traceId = traceIds[head];
+                removeFirst();
+                notFull.signal();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                deliver(data, target, traceId);
+            } catch (RuntimeException e) {
+                onDeliveryFailed(data, e);
+            }
+        }
+    }
+
+    private void startThread() {
+        thread = new Thread(this, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param traceId the {@link Tracer} correlation id of the enqueuing thread, 0 if there was none
+     */
+    abstract void deliver(Object data, Class<?>[] target, long traceId);
+
+    void onDeliveryFailed(Object data, RuntimeException e) {
+        Log.e(EventQueue.class.getName(), "delivery of " + data + " failed", e);
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+    long droppedEvents() {
+        return droppedEvents;
+    }
+
+    BackpressurePolicy policy() {
+        return policy;
+    }
+
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (int i = 0; i < events.length; i++) {
+                events[i] = null;
+                targets[i] = null;
+                traceIds[i] = 0;
+            }
+            head = 0;
+            count = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -5,80 +5,70 @@ import android.util.Log;
 
 import com.mvp.annotation.OnEventListener;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 class Events {
 
-    private static final String PACKAGE_PREFIX = "com.mvp.";
+    private static final String REGISTRY_CLASS_NAME = "com.mvp.MvpEventListener";
+    private static final String MOCK_CLASS_MARKER = "$MockitoMock$";
 
-    private static Method m;
+    private static final EventListenerRegistry registry = loadRegistry();
+    private static final ConcurrentHashMap<Class<?>, Class<?>> bindingClasses = new ConcurrentHashMap<>();
 
-    static {
+    private static EventListenerRegistry loadRegistry() {
         try {
-            m = Class.forName("com.mvp.MvpEventListener").getDeclaredMethod("get", String.class, Object.class, Handler.class, ExecutorService.class);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+            return (EventListenerRegistry) Class.forName(REGISTRY_CLASS_NAME).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            Log.e(Events.class.getName(), "no generated event listener registry found", e);
+            return new EventListenerRegistry() {
+                @Override
+                public ArrayList<OnEventListener<?>> get(Class<?> clazz, Object e, Handler handler, ExecutorService service) {
+                    return new ArrayList<>();
+                }
+            };
+        }
+    }
+
+    /**
+     * @return the class the listeners of {@code clazz} were generated for, the mocked class for mocks
+     */
+    private static Class<?> bindingClass(Class<?> clazz) {
+        Class<?> bindingClass = bindingClasses.get(clazz);
+        if (bindingClass == null) {
+            bindingClass = clazz.getName().contains(MOCK_CLASS_MARKER) ? clazz.getSuperclass() : clazz;
+            bindingClasses.put(clazz, bindingClass);
         }
+        return bindingClass;
     }
 
-    @SuppressWarnings("unchecked")
     static <V extends MvpView, T extends MvpPresenter<V>> void bind(T presenter, IMvpEventBus eventBus, Handler handler, ExecutorService executorService){
-        synchronized (Events.class) {
-            long begin = System.currentTimeMillis();
-            String presenterClassName = presenter.getClass().getName();
-            boolean isMock = false;
-            if (presenterClassName.contains("$MockitoMock$")){
-                presenterClassName = presenter.getClass().getSuperclass().getName();
-                isMock = true;
-            }
-            try {
-                ArrayList<OnEventListener<?>> onEventListeners =
-                        (ArrayList<OnEventListener<?>>) m.invoke(null, presenterClassName, presenter, handler, executorService);
-                for (OnEventListener<?> eventListener : onEventListeners) {
-                    if (!isMock)
-                        presenter.addEventListener(eventListener);
-                    else
-                        eventBus.addEventListener(eventListener);
-                }
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            long end = System.currentTimeMillis();
-            Log.e(Events.class.getName(), String.format("adding event listeners for presenter: %s took %d ms", presenterClassName, end - begin));
+        if (eventBus instanceof MvpEventBus) {
+            handler = ((MvpEventBus) eventBus).meter(handler);
+            executorService = ((MvpEventBus) eventBus).meter(executorService);
+        }
+        Class<?> presenterClass = presenter.getClass();
+        Class<?> bindingClass = bindingClass(presenterClass);
+        boolean isMock = bindingClass != presenterClass;
+        ArrayList<OnEventListener<?>> onEventListeners = registry.get(bindingClass, presenter, handler, executorService);
+        for (OnEventListener<?> eventListener : onEventListeners) {
+            if (!isMock)
+                presenter.addEventListener(eventListener);
+            else
+                eventBus.addEventListener(eventListener);
         }
+        if (eventBus instanceof MvpEventBus)
+            ((MvpEventBus) eventBus).track(presenter, onEventListeners);
     }
 
-    static <V extends MvpView, T extends MvpPresenter<V>> ArrayList<OnEventListener<?>> bind(Object obj, EventBus eventBus, Handler handler, ExecutorService executorService){
-        synchronized (Events.class) {
-            IMvpEventBus mvpEventBus = (IMvpEventBus) eventBus;
-            long begin = System.currentTimeMillis();
-            String className = obj.getClass().getName();
-            if (className.contains("$MockitoMock$")){
-                className = obj.getClass().getSuperclass().getName();
-            }
-            try {
-                ArrayList<OnEventListener<?>> onEventListeners =
-                        (ArrayList<OnEventListener<?>>) m.invoke(null, className, obj, handler, executorService);
-                for (OnEventListener<?> eventListener : onEventListeners) {
-                    mvpEventBus.addEventListener(eventListener);
-                }
-                return onEventListeners;
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            long end = System.currentTimeMillis();
-            Log.e(Events.class.getName(), String.format("adding event listeners for presenter: %s took %d ms", className, end - begin));
-            return new ArrayList<>();
+    static ArrayList<OnEventListener<?>> bind(Object obj, EventBus eventBus, Handler handler, ExecutorService executorService){
+        IMvpEventBus mvpEventBus = (IMvpEventBus) eventBus;
+        ArrayList<OnEventListener<?>> onEventListeners = registry.get(bindingClass(obj.getClass()), obj, handler, executorService);
+        for (OnEventListener<?> eventListener : onEventListeners) {
+            mvpEventBus.addEventListener(eventListener);
         }
+        return onEventListeners;
     }
 
 
@@ -1,6 +1,13 @@
 package com.mvp;
 
 public interface IDispatcher<P> {
+    /**
+     * Dispatches the event on the parent bus instead, from where it also reaches this bus.
+     */
+    IDispatcher<P> escalate();
     void to(Class<?>... targets);
     void toAny();
+    void toAnyConcurrently(Runnable completion);
+    boolean toAsync(Class<?>... targets);
+    boolean toAnyAsync();
 }
@@ -6,4 +6,15 @@ public interface IMvpEventBus {
     <V, T extends OnEventListener<V>> boolean addEventListener(T eventListenerWrapper);
     <V, T extends OnEventListener<V>> boolean removeEventListener(T eventListenerWrapper);
     <V> void dispatchEvent(V data, Class<?>... targets);
+    <V> void dispatchEventToAny(V data);
+    <V> void dispatchEventConcurrently(V data, Runnable completion);
+    void dispatchInt(String channel, int value);
+    void dispatchLong(String channel, long value);
+    void dispatchDouble(String channel, double value);
+    <V> boolean enqueueEvent(V data, Class<?>... targets);
+    <V> void dispatchStickyEvent(V data);
+    <V> V getStickyEvent(Class<V> eventClass);
+    <V> V removeStickyEvent(Class<V> eventClass);
+    void clearStickyEvents();
+    IMvpEventBus getParent();
 }
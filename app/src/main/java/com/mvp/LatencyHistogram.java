@@ -0,0 +1,47 @@
+package com.mvp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power of two buckets in microseconds. Bucket {@code i} counts
+ * the values in {@code [2^(i-1), 2^i)}, bucket 0 the values below one microsecond.
+ */
+class LatencyHistogram {
+
+    static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long micros) {
+        if (micros < 0)
+            micros = 0;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        buckets.incrementAndGet(bucket < BUCKETS ? bucket : BUCKETS - 1);
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long current;
+        while (micros > (current = max.get())) {
+            if (max.compareAndSet(current, micros))
+                break;
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    EventBusMetrics.Histogram snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = buckets.get(i);
+        return new EventBusMetrics.Histogram(counts, count.get(), sum.get(), max.get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Remembers the listeners that were bound for an owner, a presenter or an object passed to
+ * {@link EventBus#register}. Owners are compared by identity and only held weakly: once an owner
+ * has been collected its reference shows up in the queue and {@link #poll} hands out the listeners
+ * that were left behind, a few owners at a time.
+ */
+class ListenerOwners {
+
+    static final int SWEEP_BATCH = 8;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final HashMap<Owner, ArrayList<OnEventListener<?>>> owners = new HashMap<>();
+
+    synchronized void add(Object owner, Collection<? extends OnEventListener<?>> listeners) {
+        Owner key = new Owner(owner, null);
+        ArrayList<OnEventListener<?>> current = owners.get(key);
+        if (current == null) {
+            current = new ArrayList<>(listeners.size());
+            owners.put(new Owner(owner, queue), current);
+        }
+        current.addAll(listeners);
+    }
+
+    /**
+     * @return the listeners of {@code owner}, null if it was never added
+     */
+    synchronized List<OnEventListener<?>> remove(Object owner) {
+        return owners.remove(new Owner(owner, null));
+    }
+
+    /**
+     * @return the listeners of at most {@code maxOwners} owners that have been garbage collected,
+     * null if no owner was collected since the last call
+     */
+    List<OnEventListener<?>> poll(int maxOwners) {
+        ArrayList<OnEventListener<?>> reclaimed = null;
+        for (int i = 0; i < maxOwners; i++) {
+            Object reference = queue.poll();
+            if (reference == null)
+                break;
+            List<OnEventListener<?>> listeners;
+            synchronized (this) {
+                listeners = owners.remove(reference);
+            }
+            if (listeners == null)
+                continue;
+            if (reclaimed == null)
+                reclaimed = new ArrayList<>(listeners);
+            else
+                reclaimed.addAll(listeners);
+        }
+        return reclaimed;
+    }
+
+    synchronized int size() {
+        return owners.size();
+    }
+
+    private static final class Owner extends WeakReference<Object> {
+
+        private final int hash;
+
+        Owner(Object owner, ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            this.hash = System.identityHashCode(owner);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Owner))
+                return false;
+            Object owner = get();
+            return owner != null && owner == ((Owner) o).get();
+        }
+    }
+}
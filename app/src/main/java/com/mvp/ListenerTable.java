@@ -0,0 +1,520 @@
+package com.mvp;
+
+import com.mvp.annotation.IntKeyedEventListener;
+import com.mvp.annotation.KeyedEventListener;
+import com.mvp.annotation.OnEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps every event type to an immutable array of listeners. Writers copy the array and publish the
+ * new one, readers only ever see complete snapshots and never lock.
+ * <p>
+ * For every concrete event class a dispatch plan is cached: the listener snapshots of all of its
+ * superclasses and interfaces that currently have listeners. A plan is dropped as soon as a listener
+ * for one of its types is added or removed, event classes without any listeners get the empty plan.
+ * <p>
+ * Targeted events use a second index: per event class and target class, the listeners of the plan
+ * whose target class is assignable to the target, in dispatch order.
+ * <p>
+ * {@link KeyedEventListener}s are not part of the listener arrays. They are grouped by listener
+ * class, every group maps the listener keys to the listeners, an event is only offered to the
+ * listeners whose key equals the key the group extracts from the event. Groups of
+ * {@link IntKeyedEventListener}s look the key up in an int hash table, so it is never boxed.
+ */
+class ListenerTable {
+
+    static final OnEventListener<?>[] EMPTY = new OnEventListener<?>[0];
+    static final OnEventListener<?>[][] EMPTY_PLAN = new OnEventListener<?>[0][];
+    static final KeyedListeners[] EMPTY_KEYED_PLAN = new KeyedListeners[0];
+    static final Object NULL_KEY = new Object();
+
+    private final ConcurrentHashMap<Class<?>, OnEventListener<?>[]> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, OnEventListener<?>[][]> plans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Class<?>, OnEventListener<?>[]>> targetedPlans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, KeyedListeners[]> keyed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, KeyedListeners[]> keyedPlans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Class<?>[]> hierarchies = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile int version;
+
+    OnEventListener<?>[] get(Class<?> dataClass) {
+        OnEventListener<?>[] snapshot = listeners.get(dataClass);
+        return snapshot != null ? snapshot : EMPTY;
+    }
+
+    OnEventListener<?>[][] plan(Class<?> eventClass) {
+        OnEventListener<?>[][] plan = plans.get(eventClass);
+        if (plan != null)
+            return plan;
+        int expectedVersion = version;
+        plan = buildPlan(hierarchy(eventClass));
+        plans.put(eventClass, plan);
+        if (version != expectedVersion)
+            plans.remove(eventClass, plan);
+        return plan;
+    }
+
+    /**
+     * @return the keyed listener groups of all superclasses and interfaces of {@code eventClass}
+     */
+    KeyedListeners[] keyedPlan(Class<?> eventClass) {
+        if (keyed.isEmpty())
+            return EMPTY_KEYED_PLAN;
+        KeyedListeners[] plan = keyedPlans.get(eventClass);
+        if (plan != null)
+            return plan;
+        int expectedVersion = version;
+        plan = buildKeyedPlan(hierarchy(eventClass));
+        keyedPlans.put(eventClass, plan);
+        if (version != expectedVersion)
+            keyedPlans.remove(eventClass, plan);
+        return plan;
+    }
+
+    OnEventListener<?>[] targetedPlan(Class<?> eventClass, Class<?> target) {
+        ConcurrentHashMap<Class<?>, OnEventListener<?>[]> byTarget = targetedPlans.get(eventClass);
+        if (byTarget != null) {
+            OnEventListener<?>[] plan = byTarget.get(target);
+            if (plan != null)
+                return plan;
+        }
+        int expectedVersion = version;
+        OnEventListener<?>[] plan = buildTargetedPlan(plan(eventClass), keyedPlan(eventClass), target);
+        if (byTarget == null) {
+            byTarget = new ConcurrentHashMap<>();
+            ConcurrentHashMap<Class<?>, OnEventListener<?>[]> existing = targetedPlans.putIfAbsent(eventClass, byTarget);
+            if (existing != null)
+                byTarget = existing;
+        }
+        byTarget.put(target, plan);
+        if (version != expectedVersion)
+            byTarget.remove(target, plan);
+        return plan;
+    }
+
+    Class<?>[] hierarchy(Class<?> clazz) {
+        Class<?>[] types = hierarchies.get(clazz);
+        if (types == null) {
+            types = typeHierarchy(clazz);
+            hierarchies.put(clazz, types);
+        }
+        return types;
+    }
+
+    private OnEventListener<?>[][] buildPlan(Class<?>[] types) {
+        int count = 0;
+        OnEventListener<?>[][] plan = new OnEventListener<?>[types.length][];
+        for (Class<?> type : types) {
+            OnEventListener<?>[] snapshot = listeners.get(type);
+            if (snapshot != null)
+                plan[count++] = snapshot;
+        }
+        return count == 0 ? EMPTY_PLAN : Arrays.copyOf(plan, count);
+    }
+
+    private KeyedListeners[] buildKeyedPlan(Class<?>[] types) {
+        KeyedListeners[] plan = EMPTY_KEYED_PLAN;
+        for (Class<?> type : types) {
+            KeyedListeners[] groups = keyed.get(type);
+            if (groups == null)
+                continue;
+            int length = plan.length;
+            plan = Arrays.copyOf(plan, length + groups.length);
+            System.arraycopy(groups, 0, plan, length, groups.length);
+        }
+        return plan;
+    }
+
+    private OnEventListener<?>[] buildTargetedPlan(OnEventListener<?>[][] plan, KeyedListeners[] keyedPlan, Class<?> target) {
+        int count = 0;
+        for (OnEventListener<?>[] snapshot : plan)
+            count += snapshot.length;
+        OnEventListener<?>[][] keyedSnapshots = new OnEventListener<?>[keyedPlan.length][];
+        for (int i = 0; i < keyedPlan.length; i++) {
+            keyedSnapshots[i] = keyedPlan[i].listeners();
+            count += keyedSnapshots[i].length;
+        }
+        OnEventListener<?>[] targeted = new OnEventListener<?>[count];
+        count = 0;
+        for (OnEventListener<?>[] snapshot : plan)
+            count = collectTargeted(snapshot, target, targeted, count);
+        for (OnEventListener<?>[] snapshot : keyedSnapshots)
+            count = collectTargeted(snapshot, target, targeted, count);
+        return count == 0 ? EMPTY : Arrays.copyOf(targeted, count);
+    }
+
+    private static int collectTargeted(OnEventListener<?>[] listeners, Class<?> target, OnEventListener<?>[] targeted, int count) {
+        for (OnEventListener<?> listener : listeners) {
+            Class<?> targetClass = listener.getTargetClass();
+            if (targetClass != null && target.isAssignableFrom(targetClass) && count < targeted.length)
+                targeted[count++] = listener;
+        }
+        return count;
+    }
+
+    private void invalidatePlans(Class<?> dataClass) {
+        version++;
+        for (Map.Entry<Class<?>, OnEventListener<?>[][]> entry : plans.entrySet()) {
+            if (contains(hierarchy(entry.getKey()), dataClass))
+                plans.remove(entry.getKey(), entry.getValue());
+        }
+        for (Class<?> eventClass : targetedPlans.keySet()) {
+            if (contains(hierarchy(eventClass), dataClass))
+                targetedPlans.remove(eventClass);
+        }
+        for (Map.Entry<Class<?>, KeyedListeners[]> entry : keyedPlans.entrySet()) {
+            if (contains(hierarchy(entry.getKey()), dataClass))
+                keyedPlans.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    boolean add(OnEventListener<?> eventListener) {
+        if (eventListener instanceof KeyedEventListener)
+            return addKeyed((KeyedEventListener<?>) eventListener);
+        Class<?> dataClass = eventListener.getDataClass();
+        synchronized (writeLock) {
+            OnEventListener<?>[] current = get(dataClass);
+            if (indexOf(current, eventListener) >= 0)
+                return false;
+            OnEventListener<?>[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = eventListener;
+            listeners.put(dataClass, next);
+            invalidatePlans(dataClass);
+            return true;
+        }
+    }
+
+    boolean remove(OnEventListener<?> eventListener) {
+        if (eventListener instanceof KeyedEventListener)
+            return removeKeyed((KeyedEventListener<?>) eventListener);
+        Class<?> dataClass = eventListener.getDataClass();
+        synchronized (writeLock) {
+            OnEventListener<?>[] current = get(dataClass);
+            int index = indexOf(current, eventListener);
+            if (index < 0)
+                return false;
+            if (current.length == 1) {
+                listeners.remove(dataClass);
+            } else {
+                OnEventListener<?>[] next = new OnEventListener<?>[current.length - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+                listeners.put(dataClass, next);
+            }
+            invalidatePlans(dataClass);
+            return true;
+        }
+    }
+
+    private boolean addKeyed(KeyedEventListener<?> eventListener) {
+        Class<?> dataClass = eventListener.getDataClass();
+        synchronized (writeLock) {
+            KeyedListeners group = group(dataClass, eventListener.getClass());
+            if (group == null) {
+                group = new KeyedListeners(eventListener);
+                KeyedListeners[] groups = keyed.get(dataClass);
+                if (groups == null) {
+                    groups = new KeyedListeners[] { group };
+                } else {
+                    groups = Arrays.copyOf(groups, groups.length + 1);
+                    groups[groups.length - 1] = group;
+                }
+                keyed.put(dataClass, groups);
+            }
+            if (!group.add(eventListener))
+                return false;
+            invalidatePlans(dataClass);
+            return true;
+        }
+    }
+
+    private boolean removeKeyed(KeyedEventListener<?> eventListener) {
+        Class<?> dataClass = eventListener.getDataClass();
+        synchronized (writeLock) {
+            KeyedListeners group = group(dataClass, eventListener.getClass());
+            if (group == null || !group.remove(eventListener))
+                return false;
+            if (group.size() == 0)
+                removeGroup(dataClass, group);
+            invalidatePlans(dataClass);
+            return true;
+        }
+    }
+
+    private KeyedListeners group(Class<?> dataClass, Class<?> listenerClass) {
+        KeyedListeners[] groups = keyed.get(dataClass);
+        if (groups != null) {
+            for (KeyedListeners group : groups) {
+                if (group.listenerClass == listenerClass)
+                    return group;
+            }
+        }
+        return null;
+    }
+
+    private void removeGroup(Class<?> dataClass, KeyedListeners group) {
+        KeyedListeners[] groups = keyed.get(dataClass);
+        if (groups.length == 1) {
+            keyed.remove(dataClass);
+            return;
+        }
+        KeyedListeners[] next = new KeyedListeners[groups.length - 1];
+        int count = 0;
+        for (KeyedListeners g : groups) {
+            if (g != group)
+                next[count++] = g;
+        }
+        keyed.put(dataClass, next);
+    }
+
+    static Object key(Object key) {
+        return key != null ? key : NULL_KEY;
+    }
+
+    int size() {
+        return listeners.size();
+    }
+
+    Map<Class<?>, Integer> listenerCounts() {
+        HashMap<Class<?>, Integer> counts = new HashMap<>();
+        for (Map.Entry<Class<?>, OnEventListener<?>[]> entry : listeners.entrySet())
+            counts.put(entry.getKey(), entry.getValue().length);
+        for (Map.Entry<Class<?>, KeyedListeners[]> entry : keyed.entrySet()) {
+            int count = counts.containsKey(entry.getKey()) ? counts.get(entry.getKey()) : 0;
+            for (KeyedListeners group : entry.getValue())
+                count += group.size();
+            counts.put(entry.getKey(), count);
+        }
+        return counts;
+    }
+
+    static Class<?>[] typeHierarchy(Class<?> clazz) {
+        LinkedHashSet<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass())
+            types.add(c);
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass())
+            collectInterfaces(c, types);
+        return types.toArray(new Class<?>[types.size()]);
+    }
+
+    private static void collectInterfaces(Class<?> clazz, LinkedHashSet<Class<?>> types) {
+        for (Class<?> i : clazz.getInterfaces()) {
+            if (types.add(i))
+                collectInterfaces(i, types);
+        }
+    }
+
+    private static boolean contains(Class<?>[] types, Class<?> type) {
+        for (Class<?> t : types) {
+            if (t == type)
+                return true;
+        }
+        return false;
+    }
+
+    static int indexOf(OnEventListener<?>[] snapshot, OnEventListener<?> eventListener) {
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] == eventListener)
+                return i;
+        }
+        return -1;
+    }
+
+    static OnEventListener<?>[] append(OnEventListener<?>[] snapshot, OnEventListener<?> eventListener) {
+        OnEventListener<?>[] next = Arrays.copyOf(snapshot, snapshot.length + 1);
+        next[snapshot.length] = eventListener;
+        return next;
+    }
+
+    static OnEventListener<?>[] removeAt(OnEventListener<?>[] snapshot, int index) {
+        if (snapshot.length == 1)
+            return EMPTY;
+        OnEventListener<?>[] next = new OnEventListener<?>[snapshot.length - 1];
+        System.arraycopy(snapshot, 0, next, 0, index);
+        System.arraycopy(snapshot, index + 1, next, index, snapshot.length - index - 1);
+        return next;
+    }
+
+    /**
+     * The keyed listeners of one listener class for one event type. All of them extract the key of
+     * an event the same way, so any of them can extract it for the whole group. Besides the index by
+     * key the group keeps all of its listeners in order of addition, targeted plans use that order.
+     * Only written while holding the write lock of the table.
+     */
+    static final class KeyedListeners {
+
+        final Class<?> listenerClass;
+        private final KeyedEventListener<?> extractor;
+        private final IntKeyedEventListener<?> intExtractor;
+        private final ConcurrentHashMap<Object, OnEventListener<?>[]> byKey;
+        private volatile IntIndex byIntKey = IntIndex.EMPTY_INDEX;
+        private volatile OnEventListener<?>[] listeners = EMPTY;
+
+        KeyedListeners(KeyedEventListener<?> extractor) {
+            this.listenerClass = extractor.getClass();
+            this.extractor = extractor;
+            this.intExtractor = extractor instanceof IntKeyedEventListener ? (IntKeyedEventListener<?>) extractor : null;
+            this.byKey = intExtractor == null ? new ConcurrentHashMap<Object, OnEventListener<?>[]>() : null;
+        }
+
+        boolean add(KeyedEventListener<?> eventListener) {
+            if (indexOf(listeners, eventListener) >= 0)
+                return false;
+            if (intExtractor != null) {
+                int key = ((IntKeyedEventListener<?>) eventListener).getIntKey();
+                byIntKey = byIntKey.put(key, append(byIntKey.get(key), eventListener));
+            } else {
+                Object key = key(eventListener.getKey());
+                byKey.put(key, append(get(key), eventListener));
+            }
+            listeners = append(listeners, eventListener);
+            return true;
+        }
+
+        boolean remove(KeyedEventListener<?> eventListener) {
+            int index = indexOf(listeners, eventListener);
+            if (index < 0)
+                return false;
+            if (intExtractor != null) {
+                int key = ((IntKeyedEventListener<?>) eventListener).getIntKey();
+                OnEventListener<?>[] current = byIntKey.get(key);
+                OnEventListener<?>[] next = removeAt(current, indexOf(current, eventListener));
+                byIntKey = next.length == 0 ? byIntKey.remove(key) : byIntKey.put(key, next);
+            } else {
+                Object key = key(eventListener.getKey());
+                OnEventListener<?>[] current = get(key);
+                OnEventListener<?>[] next = removeAt(current, indexOf(current, eventListener));
+                if (next.length == 0)
+                    byKey.remove(key);
+                else
+                    byKey.put(key, next);
+            }
+            listeners = removeAt(listeners, index);
+            return true;
+        }
+
+        /**
+         * @return all listeners of the group in order of addition
+         */
+        OnEventListener<?>[] listeners() {
+            return listeners;
+        }
+
+        int size() {
+            return listeners.length;
+        }
+
+        private OnEventListener<?>[] get(Object key) {
+            OnEventListener<?>[] listeners = byKey.get(key);
+            return listeners != null ? listeners : EMPTY;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> OnEventListener<?>[] match(V data) {
+            if (intExtractor != null)
+                return byIntKey.get(((IntKeyedEventListener<V>) intExtractor).extractIntKey(data));
+            return get(key(((KeyedEventListener<V>) extractor).extractKey(data)));
+        }
+    }
+
+    /**
+     * Immutable hash map from int keys to listeners with open addressing and linear probing, a
+     * lookup neither boxes the key nor allocates. At most half of the slots are used, so every probe
+     * sequence ends at an empty slot. Writers publish the copy returned by {@link #put} and
+     * {@link #remove}.
+     */
+    static final class IntIndex {
+
+        static final IntIndex EMPTY_INDEX = new IntIndex(2, 0);
+
+        private final int[] keys;
+        private final OnEventListener<?>[][] values;
+        private final int size;
+
+        private IntIndex(int capacity, int size) {
+            this(new int[capacity], new OnEventListener<?>[capacity][], size);
+        }
+
+        private IntIndex(int[] keys, OnEventListener<?>[][] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        OnEventListener<?>[] get(int key) {
+            int index = indexOf(key);
+            return index >= 0 ? values[index] : EMPTY;
+        }
+
+        IntIndex put(int key, OnEventListener<?>[] listeners) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                OnEventListener<?>[][] values = this.values.clone();
+                values[index] = listeners;
+                return new IntIndex(keys, values, size);
+            }
+            int capacity = (size + 1) * 2 > keys.length ? keys.length * 2 : keys.length;
+            IntIndex next = new IntIndex(capacity, size + 1);
+            next.copy(this, index);
+            next.insert(key, listeners);
+            return next;
+        }
+
+        IntIndex remove(int key) {
+            int index = indexOf(key);
+            if (index < 0)
+                return this;
+            if (size == 1)
+                return EMPTY_INDEX;
+            IntIndex next = new IntIndex(keys.length, size - 1);
+            next.copy(this, index);
+            return next;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the slot of {@code key}, -1 if there is none
+         */
+        private int indexOf(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Inserts all entries of {@code index} except the one in slot {@code skipped}, only called
+         * on a new index before it is published.
+         */
+        private void copy(IntIndex index, int skipped) {
+            for (int i = 0; i < index.values.length; i++) {
+                if (index.values[i] != null && i != skipped)
+                    insert(index.keys[i], index.values[i]);
+            }
+        }
+
+        private void insert(int key, OnEventListener<?>[] listeners) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = listeners;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
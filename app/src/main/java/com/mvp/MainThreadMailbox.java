@@ -0,0 +1,162 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Iterator;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the runnables that have to run on a looper thread and runs them in posting order from a
+ * single handler message. Any thread may post, at most one message is in flight per looper. A drain
+ * stops once the time budget is used up and schedules another message for the remaining runnables,
+ * so a burst of deliveries never blocks the looper for longer than one budget.
+ * <p>
+ * Runnables are posted together with an owner, {@link #cancel(Object)} drops all pending runnables
+ * of an owner, e.g. when a presenter is destroyed.
+ * <p>
+ * The mailbox posts its messages through a handler of its own, so removing the callbacks of any
+ * other handler of the looper never drops a drain. A runnable posted through
+ * {@link #post(Handler, Object, Runnable)} with a metered handler records the time it waited in
+ * the mailbox as ui latency in the metrics of that handler.
+ */
+public class MainThreadMailbox implements Runnable {
+
+    public static final long DEFAULT_TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private static final WeakHashMap<Looper, MainThreadMailbox> mailboxes = new WeakHashMap<>();
+    private static volatile MainThreadMailbox main;
+
+    private final Handler handler;
+    private final Looper looper;
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long timeBudgetNanos = DEFAULT_TIME_BUDGET_NANOS;
+
+    MainThreadMailbox(Looper looper) {
+        this.looper = looper;
+        this.handler = looper != null ? new Handler(looper) : null;
+    }
+
+    /**
+     * @return the mailbox of the looper of {@code handler}
+     */
+    public static MainThreadMailbox of(Handler handler) {
+        MainThreadMailbox mailbox = main;
+        Looper looper = handler.getLooper();
+        if (mailbox == null || mailbox.looper != looper) {
+            synchronized (mailboxes) {
+                mailbox = mailboxes.get(looper);
+                if (mailbox == null) {
+                    mailbox = new MainThreadMailbox(looper);
+                    mailboxes.put(looper, mailbox);
+                }
+                if (looper == Looper.getMainLooper())
+                    main = mailbox;
+            }
+        }
+        return mailbox;
+    }
+
+    /**
+     * Posts {@code runnable} to the mailbox of the looper of {@code handler}, see
+     * {@link #post(Object, Runnable)}. If {@code handler} is metered, the ui latency of the runnable
+     * is recorded in its metrics.
+     */
+    public static void post(Handler handler, Object owner, Runnable runnable) {
+        of(handler).post(owner, runnable, handler instanceof MeteredHandler ? ((MeteredHandler) handler).getMetrics() : null);
+    }
+
+    public void setTimeBudget(long budget, TimeUnit unit) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("budget must be greater than 0");
+        timeBudgetNanos = unit.toNanos(budget);
+    }
+
+    public long getTimeBudget(TimeUnit unit) {
+        return unit.convert(timeBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param owner used for {@link #cancel(Object)}, may be null
+     */
+    public void post(Object owner, Runnable runnable) {
+        post(owner, runnable, null);
+    }
+
+    void post(Object owner, Runnable runnable, EventBusMetrics metrics) {
+        queue.offer(metrics != null && metrics.isEnabled()
+                ? new Entry(owner, runnable, metrics, System.nanoTime())
+                : new Entry(owner, runnable, null, 0));
+        if (scheduled.compareAndSet(false, true))
+            schedule();
+    }
+
+    /**
+     * Drops all pending runnables posted for {@code owner}, the pending message is removed as well
+     * if nothing is left to run.
+     */
+    public void cancel(Object owner) {
+        if (owner == null)
+            return;
+        Iterator<Entry> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().owner == owner)
+                iterator.remove();
+        }
+        if (queue.isEmpty() && scheduled.get()) {
+            unschedule();
+            scheduled.set(false);
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+                schedule();
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    void schedule() {
+        handler.post(this);
+    }
+
+    void unschedule() {
+        handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        try {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                if (entry.metrics != null && entry.metrics.isEnabled())
+                    entry.metrics.recordUiLatency((System.nanoTime() - entry.postedNanos) / 1000);
+                entry.runnable.run();
+                if (System.nanoTime() - deadline >= 0)
+                    break;
+            }
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+                schedule();
+        }
+    }
+
+    private static final class Entry {
+        final Object owner;
+        final Runnable runnable;
+        final EventBusMetrics metrics;
+        final long postedNanos;
+
+        Entry(Object owner, Runnable runnable, EventBusMetrics metrics, long postedNanos) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.metrics = metrics;
+            this.postedNanos = postedNanos;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.mvp;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how long tasks wait in the wrapped executor. The executor is only referenced weakly, it
+ * is owned by whoever created it, this wrapper lives as long as the executor.
+ */
+class MeteredExecutorService extends AbstractExecutorService {
+
+    private final WeakReference<ExecutorService> delegate;
+    private final EventBusMetrics metrics;
+
+    MeteredExecutorService(ExecutorService delegate, EventBusMetrics metrics) {
+        this.delegate = new WeakReference<>(delegate);
+        this.metrics = metrics;
+    }
+
+    private ExecutorService delegate() {
+        ExecutorService executorService = delegate.get();
+        if (executorService == null)
+            throw new RejectedExecutionException("executor has been garbage collected");
+        return executorService;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final long submitted = System.nanoTime();
+        metrics.backgroundTaskSubmitted();
+        try {
+            delegate().execute(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.backgroundTaskStarted((System.nanoTime() - submitted) / 1000);
+                    command.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.backgroundTaskStarted(0);
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        ExecutorService executorService = delegate.get();
+        if (executorService != null)
+            executorService.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        ExecutorService executorService = delegate.get();
+        return executorService != null ? executorService.shutdownNow() : Collections.<Runnable>emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        ExecutorService executorService = delegate.get();
+        return executorService == null || executorService.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        ExecutorService executorService = delegate.get();
+        return executorService == null || executorService.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        ExecutorService executorService = delegate.get();
+        return executorService == null || executorService.awaitTermination(timeout, unit);
+    }
+}
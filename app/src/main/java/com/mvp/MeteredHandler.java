@@ -0,0 +1,30 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+
+/**
+ * Main thread handler that reports how late each message runs compared to the time it was due.
+ */
+class MeteredHandler extends Handler {
+
+    private final EventBusMetrics metrics;
+
+    MeteredHandler(Looper looper, EventBusMetrics metrics) {
+        super(looper);
+        this.metrics = metrics;
+    }
+
+    EventBusMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void dispatchMessage(Message msg) {
+        if (metrics.isEnabled())
+            metrics.recordUiLatency((SystemClock.uptimeMillis() - msg.getWhen()) * 1000);
+        super.dispatchMessage(msg);
+    }
+}
@@ -16,6 +16,10 @@ public class ModuleEventBus {
         this(new MvpEventBus());
     }
 
+    public ModuleEventBus(EventBusEngine engine) {
+        this(new MvpEventBus(engine));
+    }
+
     public ModuleEventBus(MvpEventBus eventBus) {
         this.eventBus = eventBus;
     }
@@ -25,6 +29,13 @@ public class ModuleEventBus {
         return eventBus;
     }
 
+    /**
+     * @see MvpEventBus#setScreenScopesEnabled(boolean)
+     */
+    public void setScreenScopesEnabled(boolean enabled) {
+        eventBus.setScreenScopesEnabled(enabled);
+    }
+
     public void destroy() {
         eventBus.destroy();
     }
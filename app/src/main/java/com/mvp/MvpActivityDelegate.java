@@ -1,7 +1,9 @@
 package com.mvp;
 
+import android.app.Activity;
 import android.content.Context;
 import android.os.Bundle;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.Loader;
 
@@ -10,6 +12,7 @@ public abstract class MvpActivityDelegate<V extends MvpView, P extends MvpPresen
     public static final String KEY_INSTANCE_ID = "KEY_INSTANCE_ID";
     private LoaderManager loaderManager;
     private IMvpEventBus eventBus;
+    private MvpEventBus scopedEventBus;
     private PresenterComponent<V, P> component;
     private Context context;
     private V view;
@@ -38,9 +41,25 @@ public abstract class MvpActivityDelegate<V extends MvpView, P extends MvpPresen
     public void onCreate(Bundle savedInstanceState) {
         firstDelivery = savedInstanceState == null;
         id = savedInstanceState == null ? hashCode() : savedInstanceState.getInt(KEY_INSTANCE_ID);
+        if (eventBus instanceof MvpEventBus && ((MvpEventBus) eventBus).isScreenScopesEnabled() && getActivity() != null)
+            scopedEventBus = ((MvpEventBus) eventBus).child(id);
         loaderManager.initLoader(id, null, this);
     }
 
+    /**
+     * The child bus of a screen is keyed by the instance id, so it survives configuration changes
+     * together with the presenter.
+     */
+    private Activity getActivity() {
+        if (view instanceof Activity)
+            return (Activity) view;
+        if (view instanceof Fragment)
+            return ((Fragment) view).getActivity();
+        if (view instanceof android.view.View && ((android.view.View) view).getContext() instanceof Activity)
+            return (Activity) ((android.view.View) view).getContext();
+        return null;
+    }
+
     public void onPostResume(){
         if (!onViewsInitializedCalled) {
             onViewsInitializedCalled = true;
@@ -53,6 +72,12 @@ public abstract class MvpActivityDelegate<V extends MvpView, P extends MvpPresen
     }
 
     public void onDestroy() {
+        if (scopedEventBus != null) {
+            Activity activity = getActivity();
+            if (activity == null || !activity.isChangingConfigurations())
+                scopedEventBus.destroy();
+            scopedEventBus = null;
+        }
         if (presenter != null) {
             presenter.onViewDetached(view);
             presenter.setView(null);
@@ -71,7 +96,7 @@ public abstract class MvpActivityDelegate<V extends MvpView, P extends MvpPresen
 
     @Override
     public Loader<P> onCreateLoader(int id, Bundle args) {
-        return new PresenterLoader<>(context.getApplicationContext(), new MvpPresenterFactory<V, P>(eventBus) {
+        return new PresenterLoader<>(context.getApplicationContext(), new MvpPresenterFactory<V, P>(scopedEventBus != null ? scopedEventBus : eventBus) {
             @Override
             public P create() {
                 return component.newInstance();
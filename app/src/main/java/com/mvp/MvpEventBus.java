@@ -2,120 +2,149 @@ package com.mvp;
 
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 
+import com.mvp.annotation.ChannelEventListener;
+import com.mvp.annotation.ConcurrentEventListener;
+import com.mvp.annotation.GlobalEvent;
 import com.mvp.annotation.OnEventListener;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Dispatches events to the listeners registered on it and on its child buses. A child bus, see
+ * {@link #child(Object)}, shares the threads of its parent but keeps its own listeners: events
+ * dispatched on a child stay local to it and its children, unless they are escalated or their type
+ * is annotated with {@link GlobalEvent}.
+ */
 public class MvpEventBus implements IMvpEventBus, EventBus {
 
-    private static final boolean DEBUG = true;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
 
-    private HashMap<Class<?>, OnEventListener<?>> eventListeners = new HashMap<>();
+    private static final MvpEventBus[] NO_CHILDREN = new MvpEventBus[0];
+    private static final ConcurrentHashMap<Class<?>, Boolean> globalEvents = new ConcurrentHashMap<>();
 
-    private HashMap<Integer, ArrayList<OnEventListener<?>>> registeredCustomEventListeners = new HashMap<>();
+    private final EventBusEngine engine;
+    private final PrimitiveChannels channels = new PrimitiveChannels();
+    private final StickyEvents stickyEvents;
+    private final EventQueue eventQueue;
+    private final EventBusMetrics metrics = new EventBusMetrics();
+    private final WeakHashMap<Looper, MeteredHandler> meteredHandlers = new WeakHashMap<>();
+    private final WeakHashMap<ExecutorService, MeteredExecutorService> meteredExecutors = new WeakHashMap<>();
+    private ScheduledExecutorService metricsReporter;
+
+    private final ListenerOwners owners = new ListenerOwners();
+    private final AtomicLong reclaimedListeners = new AtomicLong();
     private Handler handler;
     private ExecutorService executorService;
 
+    private final MvpEventBus parent;
+    private final HashMap<Object, MvpEventBus> childrenByScope = new HashMap<>();
+    private volatile MvpEventBus[] children = NO_CHILDREN;
+    private volatile boolean screenScopesEnabled;
+
+    private final ThreadLocal<Dispatcher<?>> dispatchers = new ThreadLocal<Dispatcher<?>>() {
+        @Override
+        protected Dispatcher<?> initialValue() {
+            return new Dispatcher<>(MvpEventBus.this);
+        }
+    };
+
     public MvpEventBus(Handler handler, ExecutorService executorService){
-        this.handler = handler;
-        this.executorService = executorService;
+        this(handler, executorService, StickyEvents.DEFAULT_CAPACITY);
     }
 
-    public MvpEventBus() {
-        this(new Handler(Looper.getMainLooper()), Executors.newSingleThreadExecutor());
+    public MvpEventBus(Handler handler, ExecutorService executorService, int stickyEventCapacity){
+        this(handler, executorService, stickyEventCapacity, DEFAULT_QUEUE_CAPACITY, BackpressurePolicy.BLOCK);
     }
 
-    @Override
-    public synchronized <V, T extends OnEventListener<V>>  boolean addEventListener(T eventListener) {
-        boolean actuallyAdded = false;
-        Class<?> clazz = eventListener.getDataClass();
-        if (DEBUG) Log.e(MvpEventBus.class.getName(), clazz.toString());
-        if (!eventListeners.containsKey(clazz)){
-            eventListeners.put(clazz, eventListener);
-            actuallyAdded = true;
-        }else{
-            OnEventListener<?> listener = eventListeners.get(clazz);
+    public MvpEventBus(Handler handler, ExecutorService executorService, int queueCapacity, BackpressurePolicy policy){
+        this(handler, executorService, StickyEvents.DEFAULT_CAPACITY, queueCapacity, policy);
+    }
 
-            if (listener == eventListener)
-                return false;
+    public MvpEventBus(Handler handler, ExecutorService executorService, int stickyEventCapacity, int queueCapacity, BackpressurePolicy policy){
+        this(handler, executorService, stickyEventCapacity, queueCapacity, policy, new CopyOnWriteEngine());
+    }
 
-            boolean valid = true;
-            while(listener.hasNext()) {
-                listener = listener.getNext();
-                if (listener == eventListener){
-                    valid = false;
-                    break;
-                }
-            }
-            if (valid) {
-                listener.setNext(eventListener);
-                actuallyAdded = true;
-                printNodeTree("AFTER ADD: %s", eventListeners.get(clazz));
-            }
-        }
+    public MvpEventBus(Handler handler, ExecutorService executorService, int stickyEventCapacity, int queueCapacity, BackpressurePolicy policy, EventBusEngine engine){
+        this(handler, executorService, stickyEventCapacity, queueCapacity, policy, engine, null);
+    }
 
-        return actuallyAdded;
+    private MvpEventBus(MvpEventBus parent) {
+        this(parent.handler, parent.executorService, StickyEvents.DEFAULT_CAPACITY, parent.eventQueue.capacity(), parent.eventQueue.policy(),
+                parent.engine.newInstance(), parent);
     }
 
-    @Override
-    public synchronized <V, T extends OnEventListener<V>> boolean removeEventListener(T eventListenerWrapper) {
-        Class<V> dataClass = eventListenerWrapper.getDataClass();
-        if (DEBUG) Log.e(MvpEventBus.class.getName(), "searching for listener: " + eventListenerWrapper.toString());
-        boolean actuallyRemoved = false;
-        if (DEBUG) printNodeTree("linked list before removal: %s", eventListeners.get(dataClass));
-        if (eventListeners.containsKey(dataClass)){
-            OnEventListener<?> previous = eventListeners.get(dataClass);
-            if (DEBUG) Log.e(MvpEventBus.class.getName(), "found listener in map: " + previous.toString());
-            if (previous == eventListenerWrapper && !previous.hasNext()){
-                if (DEBUG) Log.e(MvpEventBus.class.getName(), "removing listener: " + previous.toString());
-                eventListeners.remove(dataClass);
-                actuallyRemoved = true;
-            }else if (previous == eventListenerWrapper && previous.hasNext()) {
-                if (DEBUG) Log.e(MvpEventBus.class.getName(), "removing listener: " + previous.toString());
-                eventListeners.remove(dataClass);
-                eventListeners.put(dataClass, previous.getNext());
-                previous.clearNext();
-                actuallyRemoved = true;
-            }else {
-                OnEventListener<?> test = previous;
-                if (DEBUG) Log.e(MvpEventBus.class.getName(), "traversing nodes... starting at: " + test.toString());
-                while (test != null && test != eventListenerWrapper && test.hasNext()) {
-                    previous = test;
-                    if (DEBUG) Log.e(MvpEventBus.class.getName(), "now previous: " + previous.toString());
-                    test = test.getNext();
-                    if (DEBUG) Log.e(MvpEventBus.class.getName(), "now current: " + test.toString());
+    private MvpEventBus(Handler handler, ExecutorService executorService, int stickyEventCapacity, int queueCapacity, BackpressurePolicy policy,
+                        EventBusEngine engine, MvpEventBus parent){
+        if (engine == null)
+            throw new IllegalArgumentException("engine must not be null");
+        this.engine = engine;
+        this.parent = parent;
+        this.handler = handler;
+        this.executorService = executorService;
+        this.stickyEvents = new StickyEvents(stickyEventCapacity);
+        this.eventQueue = new EventQueue(queueCapacity, policy, MvpEventBus.class.getSimpleName() + "-queue") {
+            @Override
+            void deliver(Object data, Class<?>[] target, long traceId) {
+                if (traceId == 0) {
+                    dispatch(data, target);
+                    return;
                 }
-                if (test == eventListenerWrapper) {
-                    if (DEBUG) Log.e(MvpEventBus.class.getName(), "removing listener after traversal: " + eventListenerWrapper.toString());
-                    previous.setNext(eventListenerWrapper.hasNext() ? eventListenerWrapper.getNext() : null);
-                    eventListenerWrapper.clearNext();
-                    actuallyRemoved = true;
-                }else{
-                    if (DEBUG) Log.e(MvpEventBus.class.getName(), "could not find listener after traversal: " + eventListenerWrapper.toString());
+                Tracer.begin(Tracer.ASYNC_DISPATCH, data.getClass().getName(), traceId);
+                try {
+                    dispatch(data, target);
+                } finally {
+                    Tracer.end(Tracer.ASYNC_DISPATCH, data.getClass().getName());
                 }
             }
-        }
+        };
+    }
 
-        if (DEBUG) printNodeTree("linked list after removal: %s", eventListeners.get(dataClass));
+    public MvpEventBus() {
+        this(new CopyOnWriteEngine());
+    }
 
-        if (DEBUG) {
-            int size = eventListeners.size();
-            Log.e(MvpEventBus.class.getName(), String.format("should print 0 at the end: %s", size));
+    public MvpEventBus(EventBusEngine engine) {
+        this(new Handler(Looper.getMainLooper()), Executors.newSingleThreadExecutor(), StickyEvents.DEFAULT_CAPACITY,
+                DEFAULT_QUEUE_CAPACITY, BackpressurePolicy.BLOCK, engine);
+    }
 
-            if (size == 1) {
-                for (Map.Entry<Class<?>, OnEventListener<?>> entry : eventListeners.entrySet()) {
-                    Log.e(MvpEventBus.class.getName(), String.format("remaining listener class: ", entry.getKey().toString()));
-                    Log.e(MvpEventBus.class.getName(), String.format("remaining listener: ", entry.getValue().toString()));
-                    printNodeTree("Node Tree for remaining listener class %s: ", entry.getValue());
-                }
+    @Override
+    public <V, T extends OnEventListener<V>>  boolean addEventListener(T eventListener) {
+        reclaim(ListenerOwners.SWEEP_BATCH);
+        if (eventListener instanceof ChannelEventListener)
+            return channels.add((ChannelEventListener<?>) eventListener);
+        boolean actuallyAdded = engine.add(eventListener);
+        if (actuallyAdded)
+            deliverStickyEvents(eventListener);
+        return actuallyAdded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> void deliverStickyEvents(OnEventListener<V> eventListener) {
+        for (MvpEventBus bus = this; bus != null; bus = bus.parent) {
+            for (Object event : bus.stickyEvents.matching(eventListener.getDataClass())) {
+                V data = (V) event;
+                if (eventListener.shouldConsumeEvent(data))
+                    eventListener.onEvent(data, (Class<?>[]) null);
             }
         }
+    }
+
+    @Override
+    public <V, T extends OnEventListener<V>> boolean removeEventListener(T eventListenerWrapper) {
+        boolean actuallyRemoved = remove(eventListenerWrapper);
 
         if (!actuallyRemoved)
             throw new IllegalStateException("das sollte nicht passieren...");
@@ -123,69 +152,420 @@ public class MvpEventBus implements IMvpEventBus, EventBus {
         return actuallyRemoved;
     }
 
-    private void printNodeTree(String key, OnEventListener<?> onEventListener) {
-        if (onEventListener == null){
-            Log.e(MvpEventBus.class.getName(), String.format(key, "NULL"));
-        }else {
-            OnEventListener<?> traversal = onEventListener;
-            StringBuilder sb = new StringBuilder();
-            sb.append(traversal.toString());
-            while (traversal.hasNext()) {
-                traversal = traversal.getNext();
-                sb.append(" --> ");
-                sb.append(traversal.toString());
-            }
-            Log.e(MvpEventBus.class.getName(), String.format(key, sb.toString()));
+    @Override
+    public <V> void dispatchEvent(V data, Class<?>... targets) {
+        dispatch(data, targets.length == 0 ? null : targets);
+    }
+
+    /**
+     * @return false if {@code eventListener} was not registered, e.g. because it has already been
+     * reclaimed
+     */
+    boolean remove(OnEventListener<?> eventListener) {
+        if (eventListener instanceof ChannelEventListener)
+            return channels.remove((ChannelEventListener<?>) eventListener);
+        return engine.remove(eventListener);
+    }
+
+    @Override
+    public <V> void dispatchEventToAny(V data) {
+        dispatch(data, null);
+    }
+
+    /**
+     * Sends {@code value} to the listeners of the int channel {@code channel} on this bus and its
+     * children, without boxing it. Channels are not escalated.
+     */
+    @Override
+    public void dispatchInt(String channel, int value) {
+        boolean consumed = channels.sendInt(channel, value);
+        if (metrics.isEnabled())
+            metrics.recordDispatch(int.class, consumed);
+        for (MvpEventBus child : children)
+            child.dispatchInt(channel, value);
+    }
+
+    @Override
+    public void dispatchLong(String channel, long value) {
+        boolean consumed = channels.sendLong(channel, value);
+        if (metrics.isEnabled())
+            metrics.recordDispatch(long.class, consumed);
+        for (MvpEventBus child : children)
+            child.dispatchLong(channel, value);
+    }
+
+    @Override
+    public void dispatchDouble(String channel, double value) {
+        boolean consumed = channels.sendDouble(channel, value);
+        if (metrics.isEnabled())
+            metrics.recordDispatch(double.class, consumed);
+        for (MvpEventBus child : children)
+            child.dispatchDouble(channel, value);
+    }
+
+    /**
+     * Hands {@code data} to all of its listeners at once instead of one after another, so slow
+     * background listeners no longer delay the ones behind them. Every listener still runs its
+     * own steps in order on their threads. Background listeners only run in parallel if the executor
+     * of the bus has more than one thread.
+     * <p>
+     * {@code completion}, if not null, runs on the thread of the listener that finished last. Listeners
+     * not generated by the processor count as finished once {@code onEvent} returned. A listener whose presenter is destroyed before its work ran never
+     * finishes.
+     */
+    @Override
+    public <V> void dispatchEventConcurrently(V data, Runnable completion) {
+        if (isEscalated(data)) {
+            parent.dispatchEventConcurrently(data, completion);
+            return;
         }
+        if (!Tracer.isEnabled()) {
+            dispatchConcurrentlyUntraced(data, completion);
+            return;
+        }
+        Tracer.begin(Tracer.DISPATCH, data.getClass().getName());
+        try {
+            dispatchConcurrentlyUntraced(data, completion);
+        } finally {
+            Tracer.end(Tracer.DISPATCH, data.getClass().getName());
+        }
+    }
+
+    @Override
+    public <V> boolean enqueueEvent(V data, Class<?>... targets) {
+        return eventQueue.offer(data, targets.length == 0 ? null : targets);
+    }
+
+    public int getQueueDepth() {
+        return eventQueue.size();
+    }
+
+    public int getQueueCapacity() {
+        return eventQueue.capacity();
+    }
+
+    public long getDroppedEventCount() {
+        return eventQueue.droppedEvents();
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return eventQueue.policy();
     }
 
+    /**
+     * Sticky events are kept by the bus they are dispatched on, the sticky events of the parent
+     * buses are visible on their children.
+     */
     @Override
-    public synchronized <V> void dispatchEvent(V data, Class<?>... targets) {
-        if (targets.length == 0) targets = null;
-        Class<?> clazz = data.getClass();
-        Log.d(getClass().getName(), clazz.toString());
-        OnEventListener<V> eventListener = (OnEventListener<V>) eventListeners.get(clazz);
-        while(eventListener != null && !eventListener.shouldConsumeEvent(data)){
-            eventListener = (OnEventListener<V>) eventListener.getNext();
+    public <V> void dispatchStickyEvent(V data) {
+        if (isEscalated(data)) {
+            parent.dispatchStickyEvent(data);
+            return;
         }
-        if (eventListener != null)
-            eventListener.onEvent(data, targets);
-        while (!(clazz = clazz.getSuperclass()).equals(Object.class)){
-            eventListener = (OnEventListener<V>) eventListeners.get(clazz);
-            while(eventListener != null && !eventListener.shouldConsumeEvent(data)){
-                eventListener = (OnEventListener<V>) eventListener.getNext();
-            }
-            if (eventListener != null)
-                eventListener.onEvent(data, targets);
+        stickyEvents.put(data);
+        dispatch(data, null);
+    }
+
+    @Override
+    public <V> V getStickyEvent(Class<V> eventClass) {
+        V event = stickyEvents.get(eventClass);
+        return event != null || parent == null ? event : parent.getStickyEvent(eventClass);
+    }
+
+    /**
+     * Only removes the sticky event kept by this bus, a child never removes the sticky events of
+     * its parents unless the event is global.
+     */
+    @Override
+    public <V> V removeStickyEvent(Class<V> eventClass) {
+        if (isEscalated(eventClass))
+            return parent.removeStickyEvent(eventClass);
+        return stickyEvents.remove(eventClass);
+    }
+
+    @Override
+    public void clearStickyEvents() {
+        stickyEvents.clear();
+    }
+
+    private <V> void dispatch(V data, Class<?>[] targets) {
+        if (isEscalated(data)) {
+            parent.dispatch(data, targets);
+            return;
+        }
+        if (!Tracer.isEnabled()) {
+            dispatchUntraced(data, targets);
+            return;
+        }
+        Tracer.begin(Tracer.DISPATCH, data.getClass().getName());
+        try {
+            dispatchUntraced(data, targets);
+        } finally {
+            Tracer.end(Tracer.DISPATCH, data.getClass().getName());
+        }
+    }
+
+    private <V> boolean isEscalated(V data) {
+        return isEscalated(data.getClass());
+    }
+
+    private boolean isEscalated(Class<?> clazz) {
+        if (parent == null)
+            return false;
+        Boolean global = globalEvents.get(clazz);
+        if (global == null) {
+            global = clazz.isAnnotationPresent(GlobalEvent.class);
+            globalEvents.put(clazz, global);
         }
+        return global;
+    }
+
+    private <V> void dispatchUntraced(V data, Class<?>[] targets) {
+        dispatchLocal(data, targets);
+        for (MvpEventBus child : children)
+            child.dispatchUntraced(data, targets);
+    }
+
+    private <V> void dispatchLocal(V data, Class<?>[] targets) {
+        boolean consumed = engine.dispatch(data, targets);
+        if (metrics.isEnabled())
+            metrics.recordDispatch(data.getClass(), consumed);
+    }
+
+    private <V> void dispatchConcurrentlyUntraced(V data, Runnable completion) {
+        FanOut fanOut = new FanOut(completion);
+        deliverConcurrently(fanOut, data, new ArrayList<OnEventListener<?>>());
+        fanOut.run();
+    }
+
+    private <V> void deliverConcurrently(FanOut fanOut, V data, ArrayList<OnEventListener<?>> listeners) {
+        listeners.clear();
+        engine.collect(data, listeners);
+        for (OnEventListener<?> listener : listeners)
+            fanOut.deliver(listener, data);
+        if (metrics.isEnabled())
+            metrics.recordDispatch(data.getClass(), !listeners.isEmpty());
+        for (MvpEventBus child : children)
+            child.deliverConcurrently(fanOut, data, listeners);
     }
 
     @Override
     public void register(Object o) {
-        int key = o.hashCode();
-        ArrayList<OnEventListener<?>> eventListeners = Events.bind(o, this, this.handler, this.executorService);
-        registeredCustomEventListeners.put(key, eventListeners);
+        ArrayList<OnEventListener<?>> eventListeners = Events.bind(o, this, meter(this.handler), meter(this.executorService));
+        owners.add(o, eventListeners);
     }
 
     @Override
     public void unregister(Object o) {
-        int key = o.hashCode();
-        ArrayList<OnEventListener<?>> onEventListeners = registeredCustomEventListeners.get(key);
+        List<OnEventListener<?>> onEventListeners = owners.remove(o);
+        if (onEventListeners == null)
+            return;
         for (OnEventListener<?> onEventListener : onEventListeners) {
-            removeEventListener(onEventListener);
+            remove(onEventListener);
         }
-        onEventListeners.clear();
-        registeredCustomEventListeners.remove(key);
+    }
+
+    /**
+     * Remembers the listeners bound for {@code owner}, they are removed once the owner is garbage
+     * collected without being unregistered.
+     */
+    void track(Object owner, List<OnEventListener<?>> eventListeners) {
+        owners.add(owner, eventListeners);
+    }
+
+    private int reclaim(int maxOwners) {
+        List<OnEventListener<?>> deadListeners = owners.poll(maxOwners);
+        if (deadListeners == null)
+            return 0;
+        int count = 0;
+        for (OnEventListener<?> eventListener : deadListeners) {
+            if (remove(eventListener)) {
+                eventListener.onDestroy();
+                count++;
+            }
+        }
+        reclaimedListeners.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Removes the listeners of all owners that have been garbage collected so far. Adding listeners
+     * already does this for a few owners at a time, dispatching never does.
+     *
+     * @return the number of listeners removed by this call
+     */
+    public int reclaimDeadListeners() {
+        return reclaim(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of listeners removed because their owner was garbage collected
+     */
+    public long getReclaimedListenerCount() {
+        return reclaimedListeners.get();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <V> IDispatcher<V> dispatchEvent(V data) {
-        Dispatcher<V> dispatcher = new Dispatcher<>(this);
+        Dispatcher<V> dispatcher = (Dispatcher<V>) dispatchers.get();
         dispatcher.dispatchEvent(data);
         return dispatcher;
     }
 
+    public EventBusMetrics getMetrics() {
+        return metrics;
+    }
+
+    public EventBusMetrics.Snapshot getMetricsSnapshot() {
+        return metrics.snapshot(engine.listenerCounts(), eventQueue.size(), eventQueue.droppedEvents(),
+                reclaimedListeners.get());
+    }
+
+    public synchronized void startMetricsReporter(long period, TimeUnit unit, final EventBusMetrics.Reporter reporter) {
+        stopMetricsReporter();
+        metrics.setEnabled(true);
+        metricsReporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, MvpEventBus.class.getSimpleName() + "-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        metricsReporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                reporter.report(getMetricsSnapshot());
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopMetricsReporter() {
+        if (metricsReporter != null) {
+            metricsReporter.shutdownNow();
+            metricsReporter = null;
+        }
+    }
+
+    Handler meter(Handler handler) {
+        if (!metrics.isEnabled() || handler == null || handler instanceof MeteredHandler)
+            return handler;
+        Looper looper = handler.getLooper();
+        synchronized (meteredHandlers) {
+            MeteredHandler meteredHandler = meteredHandlers.get(looper);
+            if (meteredHandler == null) {
+                meteredHandler = new MeteredHandler(looper, metrics);
+                meteredHandlers.put(looper, meteredHandler);
+            }
+            return meteredHandler;
+        }
+    }
+
+    ExecutorService meter(ExecutorService executorService) {
+        if (!metrics.isEnabled() || executorService == null || executorService instanceof MeteredExecutorService)
+            return executorService;
+        synchronized (meteredExecutors) {
+            MeteredExecutorService meteredExecutorService = meteredExecutors.get(executorService);
+            if (meteredExecutorService == null) {
+                meteredExecutorService = new MeteredExecutorService(executorService, metrics);
+                meteredExecutors.put(executorService, meteredExecutorService);
+            }
+            return meteredExecutorService;
+        }
+    }
+
+    /**
+     * Counts the listeners of one fan-out dispatch that have not finished yet. The dispatching thread
+     * holds one count of its own until all listeners have been handed the event.
+     */
+    private static final class FanOut implements Runnable {
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final Runnable completion;
+
+        FanOut(Runnable completion) {
+            this.completion = completion;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> void deliver(OnEventListener<?> listener, V data) {
+            pending.incrementAndGet();
+            if (listener instanceof ConcurrentEventListener) {
+                ((ConcurrentEventListener<V>) listener).onEventConcurrently(data, this);
+                return;
+            }
+            try {
+                OnEventListener<V> eventListener = (OnEventListener<V>) listener;
+                if (eventListener.shouldConsumeEvent(data))
+                    eventListener.onEvent(data, (Class<?>[]) null);
+            } finally {
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (pending.decrementAndGet() == 0 && completion != null)
+                completion.run();
+        }
+    }
+
+    /**
+     * @return the child bus of {@code scope}, it is created on first use and lives until it is
+     * destroyed
+     */
+    public MvpEventBus child(Object scope) {
+        synchronized (childrenByScope) {
+            MvpEventBus child = childrenByScope.get(scope);
+            if (child == null) {
+                child = new MvpEventBus(this);
+                childrenByScope.put(scope, child);
+                children = childrenByScope.values().toArray(new MvpEventBus[childrenByScope.size()]);
+            }
+            return child;
+        }
+    }
+
+    private void removeChild(MvpEventBus child) {
+        synchronized (childrenByScope) {
+            if (childrenByScope.values().remove(child))
+                children = childrenByScope.values().toArray(new MvpEventBus[childrenByScope.size()]);
+        }
+    }
+
+    @Override
+    public MvpEventBus getParent() {
+        return parent;
+    }
+
+    /**
+     * When enabled, every screen gets a child bus of this bus for its presenter, see
+     * {@link MvpActivityDelegate}. Disabled by default, because events of presenters then no
+     * longer reach listeners registered on this bus unless they are escalated.
+     */
+    public void setScreenScopesEnabled(boolean enabled) {
+        screenScopesEnabled = enabled;
+    }
+
+    public boolean isScreenScopesEnabled() {
+        return screenScopesEnabled;
+    }
+
+    /**
+     * A child bus only detaches from its parent and destroys its own children, the handler and the
+     * executor belong to the root bus.
+     */
     public void destroy() {
+        stopMetricsReporter();
+        for (MvpEventBus child : children)
+            child.destroy();
+        this.eventQueue.shutdown();
+        this.engine.shutdown();
+        if (parent != null) {
+            parent.removeChild(this);
+            return;
+        }
         this.handler.removeCallbacksAndMessages(null);
         this.executorService.shutdown();
     }
@@ -2,17 +2,16 @@ package com.mvp;
 
 import android.os.AsyncTask;
 import android.os.Handler;
+import android.os.Looper;
 
 import com.mvp.annotation.BackgroundThread;
 import com.mvp.annotation.OnEventListener;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
@@ -29,16 +28,38 @@ public abstract class MvpPresenter<V extends MvpView> implements IMvpPresenter<V
     @Inject
     ExecutorService executorService;
 
-    Map<String, Future<?>> tasks = Collections.synchronizedMap(new HashMap<String, Future<?>>());
+    private TaskScheduler scheduler;
+    private ViewCommandBuffer<V> viewCommands;
+    private final AtomicReference<Object> viewState = new AtomicReference<>();
+    private Object renderedViewState;
+    private final AtomicBoolean renderScheduled = new AtomicBoolean();
+    private final Runnable renderViewState = new Runnable() {
+        @Override
+        public void run() {
+            renderScheduled.set(false);
+            renderViewState();
+        }
+    };
+    private final CancellationToken cancellationToken = new CancellationToken();
     private boolean destroyed;
 
     List<OnEventListener<?>> registeredEventListeners = new ArrayList<>();
 
+    private final ThreadLocal<Dispatcher<?>> dispatchers = new ThreadLocal<Dispatcher<?>>() {
+        @Override
+        protected Dispatcher<?> initialValue() {
+            return new Dispatcher<>(eventBus);
+        }
+    };
+
     public MvpPresenter() { }
 
     private void unregisterEventListeners() {
         for (OnEventListener<?> eventListener : registeredEventListeners){
-            eventBus.removeEventListener(eventListener);
+            if (eventBus instanceof MvpEventBus)
+                ((MvpEventBus) eventBus).remove(eventListener);
+            else
+                eventBus.removeEventListener(eventListener);
             eventListener.onDestroy();
         }
         registeredEventListeners.clear();
@@ -49,33 +70,113 @@ public abstract class MvpPresenter<V extends MvpView> implements IMvpPresenter<V
             registeredEventListeners.add(eventListener);
     }
 
+    @SuppressWarnings("unchecked")
     public <P> Dispatcher<P> dispatchEvent(P data){
-        Dispatcher<P> dispatcher = new Dispatcher<>(eventBus);
+        Dispatcher<P> dispatcher = (Dispatcher<P>) dispatchers.get();
         dispatcher.dispatchEvent(data);
         return dispatcher;
     }
 
+    public void dispatchInt(String channel, int value){
+        eventBus.dispatchInt(channel, value);
+    }
+
+    public void dispatchLong(String channel, long value){
+        eventBus.dispatchLong(channel, value);
+    }
+
+    public void dispatchDouble(String channel, double value){
+        eventBus.dispatchDouble(channel, value);
+    }
+
+    public <P> void dispatchStickyEvent(P data){
+        eventBus.dispatchStickyEvent(data);
+    }
+
+    public <P> P removeStickyEvent(Class<P> eventClass){
+        return eventBus.removeStickyEvent(eventClass);
+    }
+
     public V getView() {
         return view;
     }
 
+    /**
+     * @return the view on the main thread, off the main thread a view that records the void calls
+     * and applies them in one batch on the main thread, see {@link ViewCommandBuffer}
+     */
+    protected V getBufferedView() {
+        V view = this.view;
+        if (view == null || Looper.myLooper() == Looper.getMainLooper())
+            return view;
+        return viewCommands().record(view);
+    }
+
     @Override
     public void onDestroyed() {
         if (!destroyed) {
             destroyed = true;
-            for (Map.Entry<String,Future<?>> entry : tasks.entrySet())
-                entry.getValue().cancel(false);
+            cancellationToken.cancel();
+            scheduler().shutdown();
             unregisterEventListeners();
-            tasks.clear();
             if (executorService != AsyncTask.THREAD_POOL_EXECUTOR)
                 executorService.shutdown();
             this.view = null;
+            viewCommands().setView(null);
             handler.removeCallbacksAndMessages(null);
+            MainThreadMailbox.of(handler).cancel(this);
         }
     }
 
+    /**
+     * Publishes an immutable state of the view, its class has to be annotated with
+     * {@link com.mvp.annotation.ViewState}. Only the view methods whose properties changed are
+     * called, on the main thread and at most once per message for states published in a burst.
+     * The last state is rendered again when a view is attached.
+     */
+    protected void setViewState(Object state) {
+        viewState.set(state);
+        scheduleRenderViewState();
+    }
+
+    /**
+     * Publishes {@code update} like {@link #setViewState(Object)} if the current state is still
+     * {@code expect}, for updates derived from the current state on several threads.
+     *
+     * @return false if the state changed in between and nothing was published
+     */
+    protected boolean compareAndSetViewState(Object expect, Object update) {
+        if (!viewState.compareAndSet(expect, update))
+            return false;
+        scheduleRenderViewState();
+        return true;
+    }
+
+    private void scheduleRenderViewState() {
+        if (Looper.myLooper() == Looper.getMainLooper())
+            renderViewState();
+        else if (renderScheduled.compareAndSet(false, true))
+            submitOnUiThread(renderViewState);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <S> S getViewState() {
+        return (S) viewState.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    void renderViewState() {
+        Object state = viewState.get();
+        V view = this.view;
+        if (state == null || view == null || state == renderedViewState)
+            return;
+        ViewStateRenderer<V, Object> renderer = (ViewStateRenderer<V, Object>) ViewStateRenderer.of(state.getClass());
+        renderer.render(view, renderedViewState, state);
+        renderedViewState = state;
+    }
+
     protected void submitOnUiThread(Runnable runnable) {
-        handler.post(runnable);
+        MainThreadMailbox.post(handler, this, runnable);
     }
 
     protected void submitOnUiThread(Runnable runnable, int delay) {
@@ -93,31 +194,49 @@ public abstract class MvpPresenter<V extends MvpView> implements IMvpPresenter<V
 
     }
 
-    protected synchronized void tryCancelTask(String key) {
-        if (tasks.containsKey(key)) {
-            tasks.get(key).cancel(false);
-            tasks.remove(key);
-        }
+    protected void tryCancelTask(String key) {
+        scheduler().cancel(key);
     }
 
     public void submit(final String taskId, final Runnable runnable){
-        tryCancelTask(taskId);
-        tasks.put(taskId, executorService.submit(new Runnable() {
-            @Override
-            public void run() {
-                runnable.run();
-                if (tasks.containsKey(taskId)) {
-                    Future<?> future = tasks.get(taskId);
-                    future.cancel(false);
-                    tasks.remove(taskId);
-                }
-            }
-        }));
+        submit(taskId, BackgroundThread.Policy.SWITCH, 0, 0, runnable);
+    }
+
+    /**
+     * Runs {@code runnable} on the executor of this presenter, see {@link BackgroundThread} for the
+     * policies and intervals.
+     */
+    public void submit(String taskId, BackgroundThread.Policy policy, long debounceMillis, long throttleMillis, Runnable runnable){
+        scheduler().submit(taskId, policy, debounceMillis, throttleMillis, runnable);
+    }
+
+    /**
+     * @return the token that is cancelled when this presenter is destroyed, tasks submitted to this
+     * presenter run with a child of it, see {@link CancellationToken#current()}
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    synchronized TaskScheduler scheduler() {
+        if (scheduler == null)
+            scheduler = new TaskScheduler(executorService, handler, cancellationToken);
+        return scheduler;
+    }
+
+    synchronized ViewCommandBuffer<V> viewCommands() {
+        if (viewCommands == null)
+            viewCommands = new ViewCommandBuffer<>(handler);
+        return viewCommands;
     }
 
     @Override
     public void setView(V view) {
         this.view = view;
+        viewCommands().setView(view);
+        renderedViewState = null;
+        if (view != null)
+            renderViewState();
     }
 
 }
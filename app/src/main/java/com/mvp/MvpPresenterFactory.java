@@ -24,6 +24,8 @@ public abstract class MvpPresenterFactory<V extends MvpView, T extends MvpPresen
                 Events.bind(presenterImpl, eventBus, new Handler(Looper.myLooper()), Executors.newSingleThreadExecutor());
                 return presenterImpl;
             }else {
+                if (eventBus != null)
+                    presenterImpl.eventBus = eventBus;
                 Class<?> clazz = Class.forName(presenterImpl.getClass().getName() + "Proxy");
                 Constructor<?> constructor = clazz.getDeclaredConstructors()[0];
                 T presenterProxy = (T) constructor.newInstance(presenterImpl);
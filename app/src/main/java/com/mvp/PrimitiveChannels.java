@@ -0,0 +1,102 @@
+package com.mvp;
+
+import com.mvp.annotation.ChannelEventListener;
+import com.mvp.annotation.DoubleEventListener;
+import com.mvp.annotation.IntEventListener;
+import com.mvp.annotation.LongEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The int, long and double channels of a bus. Every channel keeps its listeners in a copy-on-write
+ * array, so sending a value reads one map entry and loops over the array, it neither boxes the
+ * value nor allocates anything else.
+ */
+final class PrimitiveChannels {
+
+    private final ConcurrentHashMap<String, Object[]> ints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object[]> longs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object[]> doubles = new ConcurrentHashMap<>();
+
+    boolean add(ChannelEventListener<?> listener) {
+        ConcurrentHashMap<String, Object[]> channels = channelsOf(listener);
+        synchronized (channels) {
+            Object[] listeners = channels.get(listener.getChannel());
+            if (listeners == null) {
+                channels.put(listener.getChannel(), new Object[] { listener });
+                return true;
+            }
+            if (indexOf(listeners, listener) >= 0)
+                return false;
+            Object[] copy = new Object[listeners.length + 1];
+            System.arraycopy(listeners, 0, copy, 0, listeners.length);
+            copy[listeners.length] = listener;
+            channels.put(listener.getChannel(), copy);
+            return true;
+        }
+    }
+
+    boolean remove(ChannelEventListener<?> listener) {
+        ConcurrentHashMap<String, Object[]> channels = channelsOf(listener);
+        synchronized (channels) {
+            Object[] listeners = channels.get(listener.getChannel());
+            int index = listeners == null ? -1 : indexOf(listeners, listener);
+            if (index < 0)
+                return false;
+            if (listeners.length == 1) {
+                channels.remove(listener.getChannel());
+                return true;
+            }
+            Object[] copy = new Object[listeners.length - 1];
+            System.arraycopy(listeners, 0, copy, 0, index);
+            System.arraycopy(listeners, index + 1, copy, index, copy.length - index);
+            channels.put(listener.getChannel(), copy);
+            return true;
+        }
+    }
+
+    boolean sendInt(String channel, int value) {
+        Object[] listeners = ints.get(channel);
+        if (listeners == null)
+            return false;
+        for (Object listener : listeners)
+            ((IntEventListener) listener).onIntEvent(value);
+        return true;
+    }
+
+    boolean sendLong(String channel, long value) {
+        Object[] listeners = longs.get(channel);
+        if (listeners == null)
+            return false;
+        for (Object listener : listeners)
+            ((LongEventListener) listener).onLongEvent(value);
+        return true;
+    }
+
+    boolean sendDouble(String channel, double value) {
+        Object[] listeners = doubles.get(channel);
+        if (listeners == null)
+            return false;
+        for (Object listener : listeners)
+            ((DoubleEventListener) listener).onDoubleEvent(value);
+        return true;
+    }
+
+    private ConcurrentHashMap<String, Object[]> channelsOf(ChannelEventListener<?> listener) {
+        if (listener instanceof IntEventListener)
+            return ints;
+        if (listener instanceof LongEventListener)
+            return longs;
+        if (listener instanceof DoubleEventListener)
+            return doubles;
+        throw new IllegalArgumentException("no channel for listeners of " + listener.getDataClass());
+    }
+
+    private static int indexOf(Object[] listeners, Object listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener)
+                return i;
+        }
+        return -1;
+    }
+}
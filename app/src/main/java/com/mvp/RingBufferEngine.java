@@ -0,0 +1,101 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts every dispatched event into a bounded ring buffer and delivers it on a single daemon thread
+ * through another engine. Dispatching only costs the enqueue, listeners see the events in the
+ * order they were dispatched, but always after {@link #dispatch} returned.
+ */
+public class RingBufferEngine implements EventBusEngine {
+
+    private final EventBusEngine engine;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final EventQueue queue;
+
+    public RingBufferEngine() {
+        this(new CopyOnWriteEngine(), MvpEventBus.DEFAULT_QUEUE_CAPACITY, BackpressurePolicy.BLOCK);
+    }
+
+    public RingBufferEngine(EventBusEngine engine, int capacity, BackpressurePolicy policy) {
+        this.engine = engine;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.queue = new EventQueue(capacity, policy, RingBufferEngine.class.getSimpleName()) {
+            @Override
+            void deliver(Object data, Class<?>[] target, long traceId) {
+                if (data instanceof Barrier)
+                    ((Barrier) data).countDown();
+                else
+                    RingBufferEngine.this.engine.dispatch(data, target);
+            }
+        };
+    }
+
+    @Override
+    public boolean add(OnEventListener<?> eventListener) {
+        return engine.add(eventListener);
+    }
+
+    @Override
+    public boolean remove(OnEventListener<?> eventListener) {
+        return engine.remove(eventListener);
+    }
+
+    @Override
+    public <V> boolean dispatch(V data, Class<?>[] targets) {
+        return queue.offer(data, targets);
+    }
+
+    @Override
+    public void collect(Object data, List<OnEventListener<?>> listeners) {
+        engine.collect(data, listeners);
+    }
+
+    @Override
+    public Map<Class<?>, Integer> listenerCounts() {
+        return engine.listenerCounts();
+    }
+
+    @Override
+    public EventBusEngine newInstance() {
+        return new RingBufferEngine(engine.newInstance(), capacity, policy);
+    }
+
+    @Override
+    public void shutdown() {
+        queue.shutdown();
+        engine.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDroppedEventCount() {
+        return queue.droppedEvents();
+    }
+
+    /**
+     * Waits until the events dispatched before this call have been delivered.
+     *
+     * @return false if the timeout elapsed first, or a dropping policy dropped the marker this
+     * call waits for
+     */
+    boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException {
+        Barrier barrier = new Barrier();
+        return queue.offer(barrier, null) && barrier.await(timeout, unit);
+    }
+
+    private static final class Barrier extends CountDownLatch {
+        Barrier() {
+            super(1);
+        }
+    }
+}
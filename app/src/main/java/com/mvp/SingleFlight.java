@@ -0,0 +1,142 @@
+package com.mvp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+
+/**
+ * Lets concurrent identical requests share one call. The first caller of a key runs the loader,
+ * callers arriving before it finished wait for its result instead of loading it again. Results are
+ * not cached, a key is loaded again once its call finished.
+ * <p>
+ * A caller whose {@link CancellationToken} is cancelled stops waiting and gets a
+ * {@link java.util.concurrent.CancellationException}. The call itself is only cancelled once every
+ * caller left, it runs with its own token so loaders register on {@link CancellationToken#current()}
+ * as usual. A cancelled first caller keeps running the call until the others got their result.
+ */
+public class SingleFlight {
+
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private final HashMap<Object, Flight> flights = new HashMap<>();
+
+    public <T> T execute(Object key, Loader<T> loader) throws IOException {
+        return execute(key, CancellationToken.current(), loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, CancellationToken token, Loader<T> loader) throws IOException {
+        token.throwIfCancelled();
+        Flight flight;
+        boolean leader = false;
+        synchronized (this) {
+            flight = flights.get(key);
+            if (flight == null) {
+                flight = new Flight(key);
+                flights.put(key, flight);
+                leader = true;
+            }
+            flight.callers++;
+        }
+        Caller caller = new Caller(flight);
+        token.onCancel(caller);
+        try {
+            if (leader)
+                run(flight, loader);
+            else
+                await(flight, token);
+        } finally {
+            token.remove(caller);
+        }
+        token.throwIfCancelled();
+        return (T) flight.result();
+    }
+
+    synchronized int callers(Object key) {
+        Flight flight = flights.get(key);
+        return flight != null ? flight.callers : 0;
+    }
+
+    private void run(Flight flight, Loader<?> loader) {
+        Object value = null;
+        Throwable failure = null;
+        CancellationToken previous = CancellationToken.enter(flight.token);
+        try {
+            value = loader.load();
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            CancellationToken.enter(previous);
+        }
+        synchronized (this) {
+            flight.value = value;
+            flight.failure = failure;
+            flight.done = true;
+            if (flights.get(flight.key) == flight)
+                flights.remove(flight.key);
+            notifyAll();
+        }
+    }
+
+    private synchronized void await(Flight flight, CancellationToken token) throws IOException {
+        try {
+            while (!flight.done && !token.isCancelled())
+                wait();
+        } catch (InterruptedException e) {
+            leave(flight);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void leave(Flight flight) {
+        synchronized (this) {
+            if (flight.done || flight.callers == 0)
+                return;
+            notifyAll();
+            if (--flight.callers > 0)
+                return;
+            if (flights.get(flight.key) == flight)
+                flights.remove(flight.key);
+        }
+        flight.token.cancel();
+    }
+
+    private static final class Flight {
+        final Object key;
+        final CancellationToken token = new CancellationToken();
+        int callers;
+        boolean done;
+        Object value;
+        Throwable failure;
+
+        Flight(Object key) {
+            this.key = key;
+        }
+
+        Object result() throws IOException {
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+            return value;
+        }
+    }
+
+    private final class Caller implements Cancellable {
+        private final Flight flight;
+
+        Caller(Flight flight) {
+            this.flight = flight;
+        }
+
+        @Override
+        public void cancel() {
+            leave(flight);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mvp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the latest sticky event per concrete event class. The cache is bounded, once it is full
+ * the event type that was dispatched or requested least recently is dropped.
+ */
+class StickyEvents {
+
+    static final int DEFAULT_CAPACITY = 32;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final LinkedHashMap<Class<?>, Object> events;
+
+    StickyEvents(final int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        this.events = new LinkedHashMap<Class<?>, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Class<?>, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized void put(Object event) {
+        events.put(event.getClass(), event);
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <V> V get(Class<V> eventClass) {
+        return (V) events.get(eventClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <V> V remove(Class<V> eventClass) {
+        return (V) events.remove(eventClass);
+    }
+
+    synchronized void clear() {
+        events.clear();
+    }
+
+    synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * @return all cached events that are instances of the given type, oldest first
+     */
+    synchronized Object[] matching(Class<?> type) {
+        if (events.isEmpty())
+            return EMPTY;
+        int count = 0;
+        Object[] result = new Object[events.size()];
+        for (Object event : events.values()) {
+            if (type.isInstance(event))
+                result[count++] = event;
+        }
+        if (count == 0)
+            return EMPTY;
+        if (count == result.length)
+            return result;
+        Object[] trimmed = new Object[count];
+        System.arraycopy(result, 0, trimmed, 0, count);
+        return trimmed;
+    }
+}
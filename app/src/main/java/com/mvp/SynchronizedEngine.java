@@ -0,0 +1,96 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the listeners in plain lists guarded by the engine's monitor. Every dispatch copies the
+ * matching listeners under the lock and delivers outside of it. Changing listeners is cheap,
+ * dispatching is not, mainly a baseline to measure the other engines against.
+ */
+public class SynchronizedEngine implements EventBusEngine {
+
+    private final HashMap<Class<?>, ArrayList<OnEventListener<?>>> listeners = new HashMap<>();
+
+    @Override
+    public synchronized boolean add(OnEventListener<?> eventListener) {
+        ArrayList<OnEventListener<?>> current = listeners.get(eventListener.getDataClass());
+        if (current == null) {
+            current = new ArrayList<>();
+            listeners.put(eventListener.getDataClass(), current);
+        } else if (current.contains(eventListener)) {
+            return false;
+        }
+        current.add(eventListener);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(OnEventListener<?> eventListener) {
+        ArrayList<OnEventListener<?>> current = listeners.get(eventListener.getDataClass());
+        if (current == null || !current.remove(eventListener))
+            return false;
+        if (current.isEmpty())
+            listeners.remove(eventListener.getDataClass());
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> boolean dispatch(V data, Class<?>[] targets) {
+        ArrayList<OnEventListener<?>> matching = new ArrayList<>();
+        collect(data, matching);
+        boolean consumed = false;
+        for (OnEventListener<?> listener : matching) {
+            OnEventListener<V> eventListener = (OnEventListener<V>) listener;
+            if (targets == null) {
+                if (eventListener.shouldConsumeEvent(data)) {
+                    eventListener.onEvent(data, (Class<?>[]) null);
+                    consumed = true;
+                }
+            } else if (isTarget(eventListener.getTargetClass(), targets)) {
+                eventListener.onEvent(data, targets);
+                consumed = true;
+            }
+        }
+        return consumed;
+    }
+
+    private static boolean isTarget(Class<?> targetClass, Class<?>[] targets) {
+        for (Class<?> target : targets) {
+            if (target.isAssignableFrom(targetClass))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void collect(Object data, List<OnEventListener<?>> listeners) {
+        for (Class<?> type : ListenerTable.typeHierarchy(data.getClass())) {
+            ArrayList<OnEventListener<?>> current = this.listeners.get(type);
+            if (current != null)
+                listeners.addAll(current);
+        }
+    }
+
+    @Override
+    public synchronized Map<Class<?>, Integer> listenerCounts() {
+        HashMap<Class<?>, Integer> counts = new HashMap<>();
+        for (Map.Entry<Class<?>, ArrayList<OnEventListener<?>>> entry : listeners.entrySet())
+            counts.put(entry.getKey(), entry.getValue().size());
+        return counts;
+    }
+
+    @Override
+    public EventBusEngine newInstance() {
+        return new SynchronizedEngine();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
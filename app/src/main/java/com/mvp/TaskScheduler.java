@@ -0,0 +1,283 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.mvp.annotation.BackgroundThread;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the background tasks of one presenter. Tasks are submitted under a key, a key runs at most
+ * one task at a time and its {@link BackgroundThread.Policy} decides what happens to tasks submitted
+ * meanwhile. Debounced and throttled tasks wait on the handler before they are submitted.
+ * <p>
+ * A finished task only clears its key if no newer task took it over. Every task runs with a child
+ * of the scheduler's {@link CancellationToken}, it is cancelled when the task is superseded or the
+ * scheduler shuts down. A superseded task may ignore the cancellation, the task that replaced it
+ * only starts once it returned, so two tasks of a key never run at the same time.
+ * <p>
+ * The state of a key is dropped once nothing of it runs, waits or is deferred and its throttle
+ * interval is over.
+ */
+public class TaskScheduler {
+
+    private final ExecutorService executorService;
+    private final Handler handler;
+    private final CancellationToken scope;
+    private final HashMap<String, Slot> slots = new HashMap<>();
+    private boolean shutdown;
+
+    public TaskScheduler(ExecutorService executorService, Handler handler) {
+        this(executorService, handler, new CancellationToken());
+    }
+
+    public TaskScheduler(ExecutorService executorService, Handler handler, CancellationToken scope) {
+        this.executorService = executorService;
+        this.handler = handler;
+        this.scope = scope;
+    }
+
+    public synchronized void submit(String key, BackgroundThread.Policy policy, long debounceMillis, long throttleMillis, Runnable runnable) {
+        if (shutdown)
+            return;
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            slot = new Slot(key);
+            slots.put(key, slot);
+        }
+        slot.policy = policy;
+        slot.throttleMillis = throttleMillis;
+        if (debounceMillis > 0) {
+            defer(slot, runnable, debounceMillis);
+            return;
+        }
+        long wait = slot.started + throttleMillis - now();
+        if (throttleMillis > 0 && slot.started != 0 && wait > 0) {
+            if (slot.deferred == null)
+                defer(slot, runnable, wait);
+            else
+                slot.deferred = runnable;
+            return;
+        }
+        start(slot, runnable);
+    }
+
+    /**
+     * Cancels the running, queued and deferred tasks of {@code key}.
+     */
+    public synchronized void cancel(String key) {
+        Slot slot = slots.remove(key);
+        if (slot != null)
+            cancel(slot);
+    }
+
+    /**
+     * Cancels all tasks, later submissions are ignored.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        scope.cancel();
+        ArrayList<Slot> cancelled = new ArrayList<>(slots.values());
+        slots.clear();
+        for (Slot slot : cancelled)
+            cancel(slot);
+    }
+
+    public synchronized boolean isRunning(String key) {
+        Slot slot = slots.get(key);
+        return slot != null && (slot.running != null || slot.waiting != null);
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+
+    private void cancel(Slot slot) {
+        if (slot.timer != null)
+            removeCallbacks(slot.timer);
+        slot.queue.clear();
+        slot.deferred = null;
+        slot.waiting = null;
+        slot.timer = null;
+        if (slot.running != null)
+            slot.running.cancel(true);
+    }
+
+    private void defer(Slot slot, Runnable runnable, long delayMillis) {
+        if (slot.timer != null)
+            removeCallbacks(slot.timer);
+        slot.deferred = runnable;
+        slot.timer = new Timer(slot);
+        postDelayed(slot.timer, delayMillis);
+    }
+
+    private void start(Slot slot, Runnable runnable) {
+        if (slot.running != null || slot.waiting != null) {
+            switch (slot.policy) {
+                case QUEUE:
+                    slot.queue.add(runnable);
+                    return;
+                case DROP:
+                    return;
+                default:
+                    Task superseded = slot.running;
+                    slot.running = null;
+                    if (superseded != null)
+                        superseded.cancel(true);
+            }
+        }
+        if (slot.executing != null) {
+            slot.waiting = runnable;
+            return;
+        }
+        slot.started = now();
+        Task task = new Task(slot, Tracer.wrap(Tracer.SUBMIT, slot.key, runnable));
+        slot.running = task;
+        execute(task);
+    }
+
+    private synchronized void finished(Task task) {
+        Slot slot = task.slot;
+        if (slot.running != task)
+            return;
+        slot.running = null;
+        Runnable next = slot.queue.poll();
+        if (next != null && !shutdown)
+            start(slot, next);
+        else
+            release(slot);
+    }
+
+    private synchronized boolean entered(Task task) {
+        if (task.isDone())
+            return false;
+        task.slot.executing = task;
+        return true;
+    }
+
+    private synchronized void exited(Task task) {
+        Slot slot = task.slot;
+        if (slot.executing != task)
+            return;
+        slot.executing = null;
+        Runnable waiting = slot.waiting;
+        slot.waiting = null;
+        if (waiting != null && !shutdown)
+            start(slot, waiting);
+        else
+            release(slot);
+    }
+
+    /**
+     * Drops {@code slot} if it is idle, or once its throttle interval is over.
+     */
+    private void release(Slot slot) {
+        if (slot.running != null || slot.executing != null || slot.waiting != null || slot.deferred != null
+                || slot.timer != null || !slot.queue.isEmpty())
+            return;
+        long wait = slot.started + slot.throttleMillis - now();
+        if (slot.throttleMillis > 0 && wait > 0) {
+            slot.timer = new Timer(slot);
+            postDelayed(slot.timer, wait);
+            return;
+        }
+        if (slots.get(slot.key) == slot)
+            slots.remove(slot.key);
+    }
+
+    void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+    void postDelayed(Runnable runnable, long delayMillis) {
+        handler.postDelayed(runnable, delayMillis);
+    }
+
+    void removeCallbacks(Runnable runnable) {
+        handler.removeCallbacks(runnable);
+    }
+
+    long now() {
+        return SystemClock.uptimeMillis();
+    }
+
+    private static final class Slot {
+        final String key;
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        BackgroundThread.Policy policy = BackgroundThread.Policy.SWITCH;
+        Task running;
+        Task executing;
+        Runnable waiting;
+        Runnable deferred;
+        Timer timer;
+        long started;
+        long throttleMillis;
+
+        Slot(String key) {
+            this.key = key;
+        }
+    }
+
+    private final class Task extends FutureTask<Void> {
+        final Slot slot;
+        final CancellationToken token = scope.child();
+
+        Task(Slot slot, Runnable runnable) {
+            super(runnable, null);
+            this.slot = slot;
+        }
+
+        @Override
+        public void run() {
+            if (!entered(this))
+                return;
+            CancellationToken previous = CancellationToken.enter(token);
+            try {
+                super.run();
+            } finally {
+                CancellationToken.enter(previous);
+                exited(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            token.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done() {
+            token.release();
+            finished(this);
+        }
+    }
+
+    private final class Timer implements Runnable {
+        private final Slot slot;
+
+        Timer(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public void run() {
+            synchronized (TaskScheduler.this) {
+                if (slot.timer != this)
+                    return;
+                Runnable runnable = slot.deferred;
+                slot.deferred = null;
+                slot.timer = null;
+                if (runnable != null)
+                    start(slot, runnable);
+                else
+                    release(slot);
+            }
+        }
+    }
+}
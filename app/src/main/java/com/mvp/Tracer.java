@@ -0,0 +1,278 @@
+package com.mvp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records begin/end spans of event dispatches, thread hops and presenter tasks into a fixed-size
+ * ring buffer and exports them in the Chrome trace event format (chrome://tracing, Perfetto).
+ * <p>
+ * Every span carries a correlation id. A span started on a thread without an open span gets a new
+ * id, nested spans and runnables created by {@link #wrap} inherit it, so all hops of an event share
+ * one id. While tracing is disabled every call returns after a single volatile read. Generated code
+ * only contains tracing calls if the annotation processor option {@code mvp.trace} is set to true.
+ */
+public final class Tracer {
+
+    public static final String DISPATCH = "dispatch";
+    public static final String ASYNC_DISPATCH = "dispatch.async";
+    public static final String HOP_UI = "hop.ui";
+    public static final String HOP_BACKGROUND = "hop.background";
+    public static final String SUBMIT = "submit";
+    public static final String PRESENTER = "presenter";
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final byte BEGIN = 'B';
+    private static final byte END = 'E';
+
+    private static final AtomicLong ids = new AtomicLong();
+    private static final ConcurrentHashMap<Long, String> threadNames = new ConcurrentHashMap<>();
+    private static final ThreadLocal<State> states = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            Thread thread = Thread.currentThread();
+            threadNames.put(thread.getId(), thread.getName());
+            return new State(thread.getId());
+        }
+    };
+
+    private static volatile Buffer buffer;
+
+    private Tracer() { }
+
+    public static boolean isEnabled() {
+        return buffer != null;
+    }
+
+    public static void enable() {
+        enable(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts recording into a new buffer, the capacity is rounded up to the next power of two.
+     */
+    public static synchronized void enable(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        int size = 1;
+        while (size < capacity)
+            size <<= 1;
+        buffer = new Buffer(size);
+    }
+
+    public static synchronized void disable() {
+        buffer = null;
+    }
+
+    public static synchronized void clear() {
+        Buffer current = buffer;
+        if (current != null)
+            buffer = new Buffer(current.sequences.length());
+    }
+
+    /**
+     * @return the correlation id of the innermost open span on this thread, 0 if there is none
+     */
+    public static long currentId() {
+        Buffer current = buffer;
+        if (current == null)
+            return 0;
+        return state(current).id;
+    }
+
+    /**
+     * Spans that were still open when the buffer was replaced are forgotten.
+     */
+    private static State state(Buffer current) {
+        State state = states.get();
+        if (state.buffer != current) {
+            state.buffer = current;
+            state.depth = 0;
+            state.id = 0;
+        }
+        return state;
+    }
+
+    public static void begin(String category, String name) {
+        begin(category, name, 0);
+    }
+
+    /**
+     * Opens a span, {@code id} is only used if there is no open span on this thread yet. Pass 0 to
+     * get a new id in that case.
+     */
+    public static void begin(String category, String name, long id) {
+        Buffer current = buffer;
+        if (current == null)
+            return;
+        State state = state(current);
+        if (state.depth++ == 0)
+            state.id = id != 0 ? id : ids.incrementAndGet();
+        current.record(BEGIN, category, name, state.id, state.threadId);
+    }
+
+    public static void end(String category, String name) {
+        Buffer current = buffer;
+        if (current == null)
+            return;
+        State state = state(current);
+        if (state.depth == 0)
+            return;
+        current.record(END, category, name, state.id, state.threadId);
+        if (--state.depth == 0)
+            state.id = 0;
+    }
+
+    /**
+     * @return a runnable that runs {@code runnable} inside a span carrying the current correlation
+     * id, or {@code runnable} itself while tracing is disabled
+     */
+    public static Runnable wrap(final String category, final String name, final Runnable runnable) {
+        if (buffer == null)
+            return runnable;
+        final long id = currentId() != 0 ? currentId() : ids.incrementAndGet();
+        return new Runnable() {
+            @Override
+            public void run() {
+                begin(category, name, id);
+                try {
+                    runnable.run();
+                } finally {
+                    end(category, name);
+                }
+            }
+        };
+    }
+
+    public static String exportChromeTrace() {
+        StringWriter writer = new StringWriter();
+        try {
+            exportChromeTrace(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes all complete records that are still in the buffer as a Chrome trace JSON object.
+     * Spans of the same correlation id are connected by flow events.
+     */
+    public static void exportChromeTrace(Writer writer) throws IOException {
+        Buffer current = buffer;
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<Long, String> entry : threadNames.entrySet()) {
+            first = separate(writer, first);
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":" + entry.getKey()
+                    + ",\"args\":{\"name\":\"" + escape(entry.getValue()) + "\"}}");
+        }
+        if (current != null) {
+            HashSet<Long> flows = new HashSet<>();
+            long end = current.cursor.get();
+            long start = Math.max(0, end - current.sequences.length());
+            for (long seq = start; seq < end; seq++) {
+                int i = (int) (seq & current.mask);
+                if (current.sequences.get(i) != seq + 1)
+                    continue;
+                byte phase = current.phases[i];
+                String category = current.categories[i];
+                String name = current.names[i];
+                long id = current.ids[i];
+                long threadId = current.threadIds[i];
+                long timestamp = current.timestamps[i];
+                if (current.sequences.get(i) != seq + 1)
+                    continue;
+                String ts = String.valueOf((timestamp - current.origin) / 1000.0);
+                first = separate(writer, first);
+                writer.write("{\"name\":\"" + escape(name) + "\",\"cat\":\"" + category + "\",\"ph\":\"" + (char) phase
+                        + "\",\"ts\":" + ts + ",\"pid\":0,\"tid\":" + threadId + ",\"args\":{\"id\":" + id + "}}");
+                if (phase == BEGIN) {
+                    writer.write(",{\"name\":\"event\",\"cat\":\"flow\",\"ph\":\"" + (flows.add(id) ? "s" : "t")
+                            + "\",\"id\":" + id + ",\"ts\":" + ts + ",\"pid\":0,\"tid\":" + threadId + "}");
+                }
+            }
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    private static boolean separate(Writer writer, boolean first) throws IOException {
+        if (!first)
+            writer.write(',');
+        return false;
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static final class State {
+        final long threadId;
+        Buffer buffer;
+        long id;
+        int depth;
+
+        State(long threadId) {
+            this.threadId = threadId;
+        }
+    }
+
+    /**
+     * Writers claim a slot by incrementing the cursor, invalidate its sequence, write the fields and
+     * publish the sequence again. The exporter skips slots whose sequence changed while reading.
+     */
+    private static final class Buffer {
+        final int mask;
+        final long origin = System.nanoTime();
+        final AtomicLong cursor = new AtomicLong();
+        final AtomicLongArray sequences;
+        final byte[] phases;
+        final String[] categories;
+        final String[] names;
+        final long[] ids;
+        final long[] threadIds;
+        final long[] timestamps;
+
+        Buffer(int capacity) {
+            mask = capacity - 1;
+            sequences = new AtomicLongArray(capacity);
+            phases = new byte[capacity];
+            categories = new String[capacity];
+            names = new String[capacity];
+            ids = new long[capacity];
+            threadIds = new long[capacity];
+            timestamps = new long[capacity];
+        }
+
+        void record(byte phase, String category, String name, long id, long threadId) {
+            long seq = cursor.getAndIncrement();
+            int i = (int) (seq & mask);
+            sequences.set(i, -1);
+            phases[i] = phase;
+            categories[i] = category;
+            names[i] = name;
+            ids[i] = id;
+            threadIds[i] = threadId;
+            timestamps[i] = System.nanoTime();
+            sequences.set(i, seq + 1);
+        }
+    }
+}
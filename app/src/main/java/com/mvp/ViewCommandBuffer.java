@@ -0,0 +1,177 @@
+package com.mvp;
+
+import android.os.Handler;
+
+import com.mvp.annotation.Conflate;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Records the void view calls a presenter makes off the main thread and applies them in one batch
+ * on the main thread. The batch is posted once through the {@link MainThreadMailbox} of the main
+ * looper when its first call is recorded, every call recorded until it runs joins it. So a burst of
+ * view calls costs a single message and runs in order with the work the presenter posted before.
+ * A call of a method annotated with {@link Conflate} replaces the pending call of the same method.
+ * <p>
+ * Only the methods of the {@link MvpView} interfaces of a view are recorded, calls that return a
+ * value reach the view right away.
+ * <p>
+ * Commands are applied to the view that is attached when the batch runs, they are dropped if there
+ * is none.
+ */
+public class ViewCommandBuffer<V extends MvpView> {
+
+    private final Handler handler;
+    private final HashMap<Method, Integer> conflated = new HashMap<>();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private ArrayList<Method> methods = new ArrayList<>();
+    private ArrayList<Object[]> arguments = new ArrayList<>();
+    private ArrayList<Method> drainedMethods = new ArrayList<>();
+    private ArrayList<Object[]> drainedArguments = new ArrayList<>();
+    private int size;
+    private boolean scheduled;
+    private volatile V view;
+    private volatile Recorder recorder;
+
+    public ViewCommandBuffer(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Sets the view commands are applied to, null drops the pending ones.
+     */
+    public void setView(V view) {
+        this.view = view;
+        if (view == null)
+            clear();
+    }
+
+    /**
+     * @return a view that records the calls to {@code view}
+     */
+    @SuppressWarnings("unchecked")
+    public V record(V view) {
+        Recorder recorder = this.recorder;
+        if (recorder == null || recorder.target != view) {
+            recorder = new Recorder(view);
+            this.recorder = recorder;
+        }
+        return (V) recorder.proxy;
+    }
+
+    public synchronized void clear() {
+        methods.clear();
+        arguments.clear();
+        conflated.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    void post(Runnable batch) {
+        MainThreadMailbox.post(handler, this, batch);
+    }
+
+    private void add(Method method, Object[] args) {
+        synchronized (this) {
+            if (method.isAnnotationPresent(Conflate.class)) {
+                Integer pending = conflated.put(method, methods.size());
+                if (pending != null) {
+                    methods.set(pending, null);
+                    arguments.set(pending, null);
+                    size--;
+                }
+            }
+            methods.add(method);
+            arguments.add(args);
+            size++;
+            if (scheduled)
+                return;
+            scheduled = true;
+        }
+        post(drain);
+    }
+
+    private void drain() {
+        ArrayList<Method> methods;
+        ArrayList<Object[]> arguments;
+        synchronized (this) {
+            methods = this.methods;
+            arguments = this.arguments;
+            this.methods = drainedMethods;
+            this.arguments = drainedArguments;
+            drainedMethods = methods;
+            drainedArguments = arguments;
+            conflated.clear();
+            size = 0;
+            scheduled = false;
+        }
+        try {
+            for (int i = 0; i < methods.size(); i++) {
+                Method method = methods.get(i);
+                V view = this.view;
+                if (method != null && view != null)
+                    invoke(method, view, arguments.get(i));
+            }
+        } finally {
+            methods.clear();
+            arguments.clear();
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?>[] viewInterfacesOf(Class<?> viewClass) {
+        ArrayList<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> c = viewClass; c != null; c = c.getSuperclass()) {
+            for (Class<?> i : c.getInterfaces()) {
+                if (MvpView.class.isAssignableFrom(i) && !interfaces.contains(i))
+                    interfaces.add(i);
+            }
+        }
+        return interfaces.toArray(new Class<?>[interfaces.size()]);
+    }
+
+    private final class Recorder implements InvocationHandler {
+        final Object target;
+        final Object proxy;
+
+        Recorder(Object target) {
+            this.target = target;
+            this.proxy = Proxy.newProxyInstance(target.getClass().getClassLoader(), viewInterfacesOf(target.getClass()), this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || method.getReturnType() != void.class)
+                return ViewCommandBuffer.invoke(method, target, args);
+            add(method, args);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mvp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies a state to a view, generated for every class annotated with
+ * {@link com.mvp.annotation.ViewState}. A view method is only called if one of the properties it
+ * renders changed since the previous state. If there is none, all of them are called except those
+ * whose properties are all null.
+ */
+public abstract class ViewStateRenderer<V extends MvpView, S> {
+
+    private static final String SUFFIX = "Renderer";
+    private static final ConcurrentHashMap<Class<?>, ViewStateRenderer<?, ?>> renderers = new ConcurrentHashMap<>();
+
+    /**
+     * @param previous the state rendered last on {@code view}, null if there is none
+     */
+    public abstract void render(V view, S previous, S state);
+
+    protected static boolean changed(Object previous, Object state) {
+        return previous != state && (previous == null || !previous.equals(state));
+    }
+
+    /**
+     * @return the generated renderer of {@code stateClass}
+     */
+    static ViewStateRenderer<?, ?> of(Class<?> stateClass) {
+        ViewStateRenderer<?, ?> renderer = renderers.get(stateClass);
+        if (renderer == null) {
+            try {
+                renderer = (ViewStateRenderer<?, ?>) Class.forName(stateClass.getName().replace('$', '_') + SUFFIX).getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("no renderer generated for " + stateClass.getName() + ", is it annotated with @ViewState?", e);
+            }
+            ViewStateRenderer<?, ?> existing = renderers.putIfAbsent(stateClass, renderer);
+            if (existing != null)
+                renderer = existing;
+        }
+        return renderer;
+    }
+}
@@ -0,0 +1,93 @@
+package com.mvp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTokenTest
+{
+
+    @Test
+    public void cancelRunsRegisteredCancellablesOnce() {
+        CancellationToken token = new CancellationToken();
+        CountingCancellable cancellable = new CountingCancellable();
+        token.onCancel(cancellable);
+        token.cancel();
+        token.cancel();
+        assertTrue(token.isCancelled());
+        assertEquals(1, cancellable.count);
+    }
+
+    @Test
+    public void cancellablesRegisteredAfterCancelRunRightAway() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        CountingCancellable cancellable = new CountingCancellable();
+        token.onCancel(cancellable);
+        assertEquals(1, cancellable.count);
+    }
+
+    @Test
+    public void removedCancellablesDoNotRun() {
+        CancellationToken token = new CancellationToken();
+        CountingCancellable cancellable = new CountingCancellable();
+        token.onCancel(cancellable);
+        token.remove(cancellable);
+        token.cancel();
+        assertEquals(0, cancellable.count);
+    }
+
+    @Test
+    public void childrenAreCancelledWithTheirParent() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = parent.child();
+        CancellationToken released = parent.child();
+        released.release();
+        CountingCancellable cancellable = new CountingCancellable();
+        child.child().onCancel(cancellable);
+        parent.cancel();
+        assertTrue(child.isCancelled());
+        assertFalse(released.isCancelled());
+        assertEquals(1, cancellable.count);
+    }
+
+    @Test
+    public void cancellingAChildLeavesTheParent() {
+        CancellationToken parent = new CancellationToken();
+        parent.child().cancel();
+        assertFalse(parent.isCancelled());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void throwIfCancelledThrowsOnceCancelled() {
+        CancellationToken token = new CancellationToken();
+        token.throwIfCancelled();
+        token.cancel();
+        token.throwIfCancelled();
+    }
+
+    @Test
+    public void noneIsNeverCancelled() {
+        assertSame(CancellationToken.NONE, CancellationToken.current());
+        CountingCancellable cancellable = new CountingCancellable();
+        CancellationToken.NONE.onCancel(cancellable);
+        CancellationToken.NONE.cancel();
+        assertFalse(CancellationToken.NONE.isCancelled());
+        assertEquals(0, cancellable.count);
+    }
+
+    static class CountingCancellable implements Cancellable
+    {
+        int count;
+
+        @Override
+        public void cancel() {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mvp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelQueueTest
+{
+
+    private final ChannelQueue queue = new ChannelQueue();
+
+    @Test
+    public void onlyFirstOfferSchedules() {
+        assertTrue(queue.offer(1));
+        assertFalse(queue.offer(2));
+        assertFalse(queue.offer(3));
+    }
+
+    @Test
+    public void everyValueIsDeliveredInOrder() {
+        for (long i = 0; i < 20; i++)
+            queue.offer(i);
+        List<Long> delivered = drain();
+        assertEquals(20, delivered.size());
+        for (int i = 0; i < 20; i++)
+            assertEquals(i, (long) delivered.get(i));
+    }
+
+    @Test
+    public void orderIsKeptWhenTheBufferGrowsAfterWrapping() {
+        for (long i = 0; i < 6; i++)
+            queue.offer(i);
+        assertEquals(0, queue.next());
+        assertEquals(1, queue.next());
+        assertEquals(2, queue.next());
+        for (long i = 6; i < 14; i++)
+            queue.offer(i);
+        assertEquals(Arrays.asList(3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L), drain());
+    }
+
+    @Test
+    public void offerAfterDrainSchedulesAgain() {
+        queue.offer(1);
+        drain();
+        assertTrue(queue.offer(2));
+        assertEquals(Arrays.asList(2L), drain());
+    }
+
+    @Test
+    public void doublesSurviveTheLongEncoding() {
+        queue.offer(Double.doubleToRawLongBits(-0.5));
+        queue.offer(Double.doubleToRawLongBits(Double.NaN));
+        assertEquals(-0.5, Double.longBitsToDouble(queue.next()), 0);
+        assertTrue(Double.isNaN(Double.longBitsToDouble(queue.next())));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nextFailsOnAnEmptyQueue() {
+        queue.next();
+    }
+
+    private List<Long> drain() {
+        List<Long> delivered = new ArrayList<>();
+        while (queue.hasNext())
+            delivered.add(queue.next());
+        return delivered;
+    }
+}
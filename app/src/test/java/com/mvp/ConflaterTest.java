@@ -0,0 +1,64 @@
+package com.mvp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConflaterTest
+{
+
+    private final List<String> delivered = new ArrayList<>();
+    private final List<Class<?>[]> deliveredTargets = new ArrayList<>();
+
+    private final Conflater<String> conflater = new Conflater<String>() {
+        @Override
+        protected void deliver(String data, Class<?>[] target) {
+            delivered.add(data);
+            deliveredTargets.add(target);
+        }
+    };
+
+    @Test
+    public void onlyFirstOfferSchedules() {
+        assertTrue(conflater.offer("a", null));
+        assertFalse(conflater.offer("b", null));
+        assertFalse(conflater.offer("c", null));
+        assertTrue(conflater.isScheduled());
+    }
+
+    @Test
+    public void burstIsDeliveredOnceWithLatestValue() {
+        conflater.offer("a", null);
+        conflater.offer("b", null);
+        conflater.offer("c", new Class<?>[]{String.class});
+        conflater.run();
+        assertEquals(1, delivered.size());
+        assertEquals("c", delivered.get(0));
+        assertArrayEquals(new Class<?>[]{String.class}, deliveredTargets.get(0));
+        assertFalse(conflater.isScheduled());
+    }
+
+    @Test
+    public void offerAfterDeliverySchedulesAgain() {
+        assertTrue(conflater.offer("a", null));
+        conflater.run();
+        assertTrue(conflater.offer("b", null));
+        conflater.run();
+        assertEquals(2, delivered.size());
+        assertEquals("b", delivered.get(1));
+        assertNull(deliveredTargets.get(1));
+    }
+
+    @Test
+    public void runWithoutPendingEventDeliversNothing() {
+        conflater.run();
+        assertTrue(delivered.isEmpty());
+    }
+}
@@ -0,0 +1,10 @@
+package com.mvp;
+
+public class CopyOnWriteEngineTest extends EventBusEngineConformanceTest
+{
+
+    @Override
+    protected EventBusEngine createEngine() {
+        return new CopyOnWriteEngine();
+    }
+}
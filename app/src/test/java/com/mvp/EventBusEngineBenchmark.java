@@ -0,0 +1,115 @@
+package com.mvp;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the dispatch throughput of the engines, once from a single thread and once from several
+ * threads while listeners are added and removed. It is not part of the unit tests, remove the
+ * {@link Ignore} locally and pass {@code -Dmvp.benchmark.events=<n>} to run it. Other engines can
+ * be measured with {@link #measure(EventBusEngine, int, int, int)}, which returns the elapsed time.
+ */
+@Ignore("benchmark, run manually")
+@RunWith(Parameterized.class)
+public class EventBusEngineBenchmark
+{
+
+    private static final int EVENTS = Integer.getInteger("mvp.benchmark.events", 20000);
+    private static final int LISTENERS = 10;
+
+    private final String name;
+    private final Class<? extends EventBusEngine> engineClass;
+
+    public EventBusEngineBenchmark(String name, Class<? extends EventBusEngine> engineClass) {
+        this.name = name;
+        this.engineClass = engineClass;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.asList(new Object[][] {
+                { "copy-on-write", CopyOnWriteEngine.class },
+                { "synchronized", SynchronizedEngine.class },
+                { "ring-buffer", RingBufferEngine.class }
+        });
+    }
+
+    @Test
+    public void singleThreaded() throws Exception {
+        assertTrue(name, measure(engineClass.getDeclaredConstructor().newInstance(), LISTENERS, EVENTS, 1) > 0);
+    }
+
+    @Test
+    public void contended() throws Exception {
+        assertTrue(name, measure(engineClass.getDeclaredConstructor().newInstance(), LISTENERS, EVENTS, 4) > 0);
+    }
+
+    /**
+     * Dispatches {@code events} events to {@code listeners} listeners from {@code threads} threads.
+     * With more than one thread another thread keeps adding and removing a listener meanwhile.
+     *
+     * @return the time until all events were delivered, in nanoseconds
+     */
+    public static long measure(final EventBusEngine engine, int listeners, final int events, int threads)
+            throws InterruptedException {
+        final List<TestListener<Integer>> counters = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            counters.add(counter());
+            engine.add(counters.get(i));
+        }
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicLong delivered = new AtomicLong();
+        final int perThread = events / threads;
+        Thread churn = threads > 1 ? new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TestListener<Integer> listener = counter();
+                while (done.getCount() > 0) {
+                    engine.add(listener);
+                    engine.remove(listener);
+                }
+            }
+        }) : null;
+        long start = System.nanoTime();
+        if (churn != null)
+            churn.start();
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++)
+                        engine.dispatch(i, null);
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        if (engine instanceof RingBufferEngine)
+            assertTrue(((RingBufferEngine) engine).awaitDelivery(60, TimeUnit.SECONDS));
+        long nanos = System.nanoTime() - start;
+        if (churn != null)
+            churn.join();
+        for (TestListener<Integer> counter : counters)
+            delivered.addAndGet(counter.count.get());
+        engine.shutdown();
+        assertEquals((long) perThread * threads * listeners, delivered.get());
+        return nanos;
+    }
+
+    private static TestListener<Integer> counter() {
+        return new TestListener<>(Integer.class, Object.class).countOnly();
+    }
+}
@@ -0,0 +1,215 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The rules every {@link EventBusEngine} has to follow. An engine is checked by a subclass that
+ * creates it and, if it delivers asynchronously, waits for the delivery.
+ */
+public abstract class EventBusEngineConformanceTest
+{
+
+    protected final List<Object> delivered = Collections.synchronizedList(new ArrayList<Object>());
+    protected EventBusEngine engine;
+
+    protected abstract EventBusEngine createEngine();
+
+    /**
+     * Returns once the events dispatched so far have been delivered.
+     */
+    protected void awaitDelivery(EventBusEngine engine) throws Exception {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        engine = createEngine();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.shutdown();
+    }
+
+    @Test
+    public void listenersOfSupertypesReceiveEvents() throws Exception {
+        Probe<String> string = add(new Probe<>("string", String.class, Object.class));
+        Probe<CharSequence> charSequence = add(new Probe<>("charSequence", CharSequence.class, Object.class));
+        Probe<Serializable> serializable = add(new Probe<>("serializable", Serializable.class, Object.class));
+        Probe<Integer> integer = add(new Probe<>("integer", Integer.class, Object.class));
+        dispatch("id", null);
+        assertEquals(1, string.count);
+        assertEquals(1, charSequence.count);
+        assertEquals(1, serializable.count);
+        assertEquals(0, integer.count);
+    }
+
+    @Test
+    public void listenersOfOneTypeReceiveEventsInOrderOfAddition() throws Exception {
+        for (int i = 0; i < 5; i++)
+            add(new Probe<>(i, String.class, Object.class));
+        dispatch("id", null);
+        assertEquals(5, delivered.size());
+        for (int i = 0; i < 5; i++)
+            assertEquals(i, delivered.get(i));
+    }
+
+    @Test
+    public void eventsArriveInOrderOfDispatch() throws Exception {
+        Probe<Integer> probe = add(new Probe<>(null, Integer.class, Object.class));
+        for (int i = 0; i < 100; i++)
+            engine.dispatch(i, null);
+        awaitDelivery(engine);
+        assertEquals(100, probe.events.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, (int) probe.events.get(i));
+    }
+
+    @Test
+    public void listenersNotConsumingAnEventDoNotReceiveIt() throws Exception {
+        Probe<String> consuming = add(new Probe<>("consuming", String.class, Object.class));
+        Probe<String> skipping = add(new Probe<>("skipping", String.class, Object.class));
+        skipping.consume = false;
+        dispatch("id", null);
+        dispatch("id", new Class<?>[] { Object.class });
+        assertEquals(2, consuming.count);
+        assertEquals(0, skipping.count);
+    }
+
+    @Test
+    public void targetedEventsOnlyReachMatchingTargets() throws Exception {
+        Probe<String> number = add(new Probe<>("number", String.class, Integer.class));
+        Probe<String> text = add(new Probe<>("text", String.class, String.class));
+        dispatch("id", new Class<?>[] { Number.class });
+        assertEquals(1, number.count);
+        assertEquals(0, text.count);
+    }
+
+    @Test
+    public void listenerMatchingSeveralTargetsReceivesEventOnce() throws Exception {
+        Probe<String> number = add(new Probe<>("number", String.class, Integer.class));
+        dispatch("id", new Class<?>[] { Integer.class, Number.class, Comparable.class });
+        assertEquals(1, number.count);
+    }
+
+    @Test
+    public void removedListenersReceiveNothing() throws Exception {
+        Probe<String> first = add(new Probe<>("first", String.class, Object.class));
+        Probe<String> second = add(new Probe<>("second", String.class, Object.class));
+        assertTrue(engine.remove(first));
+        dispatch("id", null);
+        assertEquals(0, first.count);
+        assertEquals(1, second.count);
+        assertFalse(engine.remove(first));
+    }
+
+    @Test
+    public void listenersAreOnlyAddedOnce() throws Exception {
+        Probe<String> probe = add(new Probe<>("probe", String.class, Object.class));
+        assertFalse(engine.add(probe));
+        dispatch("id", null);
+        assertEquals(1, probe.count);
+        assertEquals(1, (int) engine.listenerCounts().get(String.class));
+    }
+
+    @Test
+    public void collectReturnsListenersOfAnEvent() {
+        Probe<String> string = add(new Probe<>("string", String.class, Object.class));
+        Probe<CharSequence> charSequence = add(new Probe<>("charSequence", CharSequence.class, Object.class));
+        add(new Probe<>("integer", Integer.class, Object.class));
+        List<OnEventListener<?>> listeners = new ArrayList<>();
+        engine.collect("id", listeners);
+        assertEquals(2, listeners.size());
+        assertTrue(listeners.contains(string));
+        assertTrue(listeners.contains(charSequence));
+    }
+
+    @Test
+    public void newInstanceIsEmpty() throws Exception {
+        add(new Probe<>("probe", String.class, Object.class));
+        EventBusEngine child = engine.newInstance();
+        try {
+            assertTrue(child.listenerCounts().isEmpty());
+        } finally {
+            child.shutdown();
+        }
+    }
+
+    private void dispatch(Object data, Class<?>[] targets) throws Exception {
+        engine.dispatch(data, targets);
+        awaitDelivery(engine);
+    }
+
+    private <T> Probe<T> add(Probe<T> probe) {
+        assertTrue(engine.add(probe));
+        return probe;
+    }
+
+    /**
+     * Behaves like a generated delegate: it checks its condition and targets itself.
+     */
+    class Probe<T> implements OnEventListener<T>
+    {
+        private final Object name;
+        private final Class<T> dataClass;
+        private final Class<?> targetClass;
+        final List<T> events = Collections.synchronizedList(new ArrayList<T>());
+        volatile boolean consume = true;
+        volatile int count;
+
+        Probe(Object name, Class<T> dataClass, Class<?> targetClass) {
+            this.name = name;
+            this.dataClass = dataClass;
+            this.targetClass = targetClass;
+        }
+
+        @Override
+        public void onEvent(T data, Class<?>... targets) {
+            if (!shouldConsumeEvent(data) || (targets != null && !isTarget(targets)))
+                return;
+            count++;
+            events.add(data);
+            if (name != null)
+                delivered.add(name);
+        }
+
+        private boolean isTarget(Class<?>[] targets) {
+            for (Class<?> target : targets) {
+                if (target.isAssignableFrom(targetClass))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onDestroy() {
+        }
+
+        @Override
+        public boolean shouldConsumeEvent(T data) {
+            return consume;
+        }
+
+        @Override
+        public Class<T> getDataClass() {
+            return dataClass;
+        }
+
+        @Override
+        public Class<?> getTargetClass() {
+            return targetClass;
+        }
+    }
+}
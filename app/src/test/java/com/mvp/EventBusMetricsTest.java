@@ -0,0 +1,186 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class EventBusMetricsTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+    private TestListener<String> stringListener;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        stringListener = new TestListener<>(String.class);
+        eventBus.addEventListener(stringListener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        eventBus.stopMetricsReporter();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void nothingIsCountedWhileDisabled() {
+        eventBus.dispatchEvent("id").toAny();
+        EventBusMetrics.Snapshot snapshot = eventBus.getMetricsSnapshot();
+        assertEquals(0, snapshot.getEventType(String.class).getDispatched());
+        assertEquals(1, snapshot.getEventType(String.class).getListeners());
+    }
+
+    @Test
+    public void countsDispatchesAndConsumedDispatchesPerType() {
+        eventBus.getMetrics().setEnabled(true);
+        eventBus.dispatchEvent("id").toAny();
+        eventBus.dispatchEvent("id").toAny();
+        stringListener.consume = false;
+        eventBus.dispatchEvent("id").toAny();
+        eventBus.dispatchEvent(1).toAny();
+        EventBusMetrics.Snapshot snapshot = eventBus.getMetricsSnapshot();
+        assertEquals(3, snapshot.getEventType(String.class).getDispatched());
+        assertEquals(2, snapshot.getEventType(String.class).getConsumed());
+        assertEquals(1, snapshot.getEventType(Integer.class).getDispatched());
+        assertEquals(0, snapshot.getEventType(Integer.class).getConsumed());
+        assertEquals(0, snapshot.getEventType(Integer.class).getListeners());
+    }
+
+    @Test
+    public void resetClearsCounters() {
+        eventBus.getMetrics().setEnabled(true);
+        eventBus.dispatchEvent("id").toAny();
+        eventBus.getMetrics().reset();
+        assertEquals(0, eventBus.getMetricsSnapshot().getEventType(String.class).getDispatched());
+    }
+
+    @Test
+    public void executorsAreOnlyMeteredWhileEnabled() {
+        assertSame(executorService, eventBus.meter(executorService));
+        eventBus.getMetrics().setEnabled(true);
+        ExecutorService metered = eventBus.meter(executorService);
+        assertTrue(metered instanceof MeteredExecutorService);
+        assertSame(metered, eventBus.meter(executorService));
+        assertSame(metered, eventBus.meter(metered));
+    }
+
+    @Test
+    public void meteredExecutorRecordsLatencyAndQueueDepth() throws Exception {
+        eventBus.getMetrics().setEnabled(true);
+        ExecutorService metered = eventBus.meter(executorService);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+        metered.submit(task);
+        metered.submit(task);
+        Thread.sleep(20);
+        assertEquals(1, eventBus.getMetricsSnapshot().getExecutorQueueDepth());
+        release.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        EventBusMetrics.Histogram latency = eventBus.getMetricsSnapshot().getBackgroundLatency();
+        assertEquals(2, latency.getCount());
+        assertTrue(latency.getMaxMicros() >= 20000);
+        assertEquals(0, eventBus.getMetricsSnapshot().getExecutorQueueDepth());
+    }
+
+    @Test
+    public void mailboxDeliveriesRecordUiLatency() {
+        eventBus.getMetrics().setEnabled(true);
+        final CountDownLatch ran = new CountDownLatch(1);
+        MainThreadMailbox.post(eventBus.meter(new Handler(Looper.getMainLooper())), null, new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, ran.getCount());
+        assertEquals(1, eventBus.getMetricsSnapshot().getUiLatency().getCount());
+    }
+
+    @Test
+    public void mailboxUiLatencyIsRecordedInTheMetricsOfThePostingHandler() {
+        MvpEventBus other = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        eventBus.getMetrics().setEnabled(true);
+        other.getMetrics().setEnabled(true);
+        Handler metered = eventBus.meter(new Handler(Looper.getMainLooper()));
+        Handler otherMetered = other.meter(new Handler(Looper.getMainLooper()));
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        MainThreadMailbox.post(metered, null, noop);
+        MainThreadMailbox.post(otherMetered, null, noop);
+        MainThreadMailbox.post(otherMetered, null, noop);
+        MainThreadMailbox.of(otherMetered).post(null, noop);
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, eventBus.getMetricsSnapshot().getUiLatency().getCount());
+        assertEquals(2, other.getMetricsSnapshot().getUiLatency().getCount());
+    }
+
+    @Test
+    public void histogramPercentilesUseBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+            histogram.record(3);
+        histogram.record(1000);
+        EventBusMetrics.Histogram snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(4, snapshot.getPercentileMicros(50));
+        assertEquals(4, snapshot.getPercentileMicros(99));
+        assertEquals(1000, snapshot.getPercentileMicros(100));
+        assertEquals(1000, snapshot.getMaxMicros());
+        assertEquals(12, snapshot.getMeanMicros());
+    }
+
+    @Test
+    public void reporterReceivesSnapshots() throws Exception {
+        final CountDownLatch reported = new CountDownLatch(2);
+        final AtomicReference<EventBusMetrics.Snapshot> last = new AtomicReference<>();
+        eventBus.startMetricsReporter(10, TimeUnit.MILLISECONDS, new EventBusMetrics.Reporter() {
+            @Override
+            public void report(EventBusMetrics.Snapshot snapshot) {
+                last.set(snapshot);
+                reported.countDown();
+            }
+        });
+        assertTrue(eventBus.getMetrics().isEnabled());
+        eventBus.dispatchEvent("id").toAny();
+        assertTrue(reported.await(1, TimeUnit.SECONDS));
+        assertNotNull(last.get());
+    }
+}
@@ -0,0 +1,184 @@
+package com.mvp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventQueueTest
+{
+
+    private final List<Object> delivered = Collections.synchronizedList(new ArrayList<Object>());
+    private final CountDownLatch firstDelivery = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Object> failed = Collections.synchronizedList(new ArrayList<Object>());
+    private TestQueue queue;
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        if (queue != null)
+            queue.shutdown();
+    }
+
+    @Test
+    public void deliversEventsInOrder() throws Exception {
+        queue = new TestQueue(4, BackpressurePolicy.BLOCK);
+        release.countDown();
+        for (int i = 0; i < 100; i++)
+            assertTrue(queue.offer(i, null));
+        awaitDelivered(100);
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, delivered.get(i));
+        assertEquals(0, queue.droppedEvents());
+    }
+
+    @Test
+    public void failingDeliveryDoesNotStopTheQueue() throws Exception {
+        queue = new TestQueue(4, BackpressurePolicy.BLOCK);
+        release.countDown();
+        queue.offer("fail", null);
+        queue.offer(1, null);
+        queue.offer(2, null);
+        awaitDelivered(3);
+        assertEquals(2, delivered.get(2));
+        assertEquals(1, failed.size());
+        assertEquals("fail", failed.get(0));
+    }
+
+    @Test
+    public void dropNewestKeepsQueuedEvents() throws Exception {
+        queue = blockedQueue(2, BackpressurePolicy.DROP_NEWEST);
+        assertTrue(queue.offer(1, null));
+        assertTrue(queue.offer(2, null));
+        assertFalse(queue.offer(3, null));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.droppedEvents());
+        release.countDown();
+        awaitDelivered(3);
+        assertEquals(1, delivered.get(1));
+        assertEquals(2, delivered.get(2));
+    }
+
+    @Test
+    public void dropOldestKeepsNewestEvents() throws Exception {
+        queue = blockedQueue(2, BackpressurePolicy.DROP_OLDEST);
+        assertTrue(queue.offer(1, null));
+        assertTrue(queue.offer(2, null));
+        assertTrue(queue.offer(3, null));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.droppedEvents());
+        release.countDown();
+        awaitDelivered(3);
+        assertEquals(2, delivered.get(1));
+        assertEquals(3, delivered.get(2));
+    }
+
+    @Test
+    public void conflateReplacesQueuedEventOfSameClass() throws Exception {
+        queue = blockedQueue(4, BackpressurePolicy.CONFLATE);
+        assertTrue(queue.offer(1, null));
+        assertTrue(queue.offer("a", null));
+        assertTrue(queue.offer(2, null));
+        assertTrue(queue.offer(3, null));
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.droppedEvents());
+        release.countDown();
+        awaitDelivered(3);
+        assertEquals(3, delivered.get(1));
+        assertEquals("a", delivered.get(2));
+    }
+
+    @Test
+    public void blockWaitsForFreeSlot() throws Exception {
+        queue = blockedQueue(1, BackpressurePolicy.BLOCK);
+        assertTrue(queue.offer(1, null));
+        final CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.offer(2, null);
+                offered.countDown();
+            }
+        });
+        producer.start();
+        assertFalse(offered.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(offered.await(1, TimeUnit.SECONDS));
+        awaitDelivered(3);
+        assertEquals(0, queue.droppedEvents());
+    }
+
+    @Test
+    public void blockDeliversEventOfTheConsumerThreadAheadOfQueuedEvents() throws Exception {
+        queue = new TestQueue(1, BackpressurePolicy.BLOCK) {
+            @Override
+            void deliver(Object data, Class<?>[] target, long traceId) {
+                super.deliver(data, target, traceId);
+                if ("blocker".equals(data))
+                    offer("nested", null);
+            }
+        };
+        queue.offer("blocker", null);
+        assertTrue(firstDelivery.await(1, TimeUnit.SECONDS));
+        assertTrue(queue.offer(1, null));
+        release.countDown();
+        awaitDelivered(3);
+        assertEquals("nested", delivered.get(1));
+        assertEquals(1, delivered.get(2));
+        assertEquals(0, queue.droppedEvents());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullEventIsRejected() {
+        queue = new TestQueue(1, BackpressurePolicy.CONFLATE);
+        queue.offer(null, null);
+    }
+
+    private TestQueue blockedQueue(int capacity, BackpressurePolicy policy) throws Exception {
+        TestQueue queue = new TestQueue(capacity, policy);
+        queue.offer("blocker", null);
+        assertTrue(firstDelivery.await(1, TimeUnit.SECONDS));
+        return queue;
+    }
+
+    private void awaitDelivered(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (delivered.size() < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, delivered.size());
+    }
+
+    private class TestQueue extends EventQueue
+    {
+        TestQueue(int capacity, BackpressurePolicy policy) {
+            super(capacity, policy, "test-queue");
+        }
+
+        @Override
+        void deliver(Object data, Class<?>[] target, long traceId) {
+            delivered.add(data);
+            firstDelivery.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if ("fail".equals(data))
+                throw new IllegalStateException("fail");
+        }
+
+        @Override
+        void onDeliveryFailed(Object data, RuntimeException e) {
+            failed.add(data);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ListenerTableTest
+{
+
+    private ListenerTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        table = new ListenerTable();
+    }
+
+    @Test
+    public void snapshotBeingDispatchedIsNotChangedByWriters() {
+        TestListener<String> first = new TestListener<>(String.class);
+        TestListener<String> second = new TestListener<>(String.class);
+        TestListener<String> third = new TestListener<>(String.class);
+        table.add(first);
+        table.add(second);
+        OnEventListener<?>[] snapshot = table.get(String.class);
+        table.remove(first);
+        table.add(third);
+        assertArrayEquals(new OnEventListener<?>[] { first, second }, snapshot);
+        assertArrayEquals(new OnEventListener<?>[] { second, third }, table.get(String.class));
+    }
+
+    @Test
+    public void dispatchSeesCompleteSnapshotsWhileListenersAreAddedAndRemoved() throws Exception {
+        final TestListener<String> stable = new TestListener<>(String.class);
+        table.add(stable);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (running.get()) {
+                        TestListener<String> string = new TestListener<>(String.class);
+                        TestListener<CharSequence> charSequence = new TestListener<>(CharSequence.class);
+                        table.add(string);
+                        table.add(charSequence);
+                        table.remove(string);
+                        table.remove(charSequence);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 100000; i++) {
+                int seen = 0;
+                for (OnEventListener<?>[] snapshot : table.plan(String.class)) {
+                    for (OnEventListener<?> listener : snapshot) {
+                        assertNotNull(listener);
+                        if (listener == stable)
+                            seen++;
+                    }
+                }
+                assertEquals(1, seen);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        assertNull(failure.get());
+        assertArrayEquals(new OnEventListener<?>[] { stable }, table.get(String.class));
+        assertEquals(0, table.get(CharSequence.class).length);
+        assertEquals(1, table.plan(String.class).length);
+    }
+
+    @Test
+    public void intIndexFindsEveryKeyAfterPutsAndRemoves() {
+        OnEventListener<?>[] listeners = { new TestListener<>(String.class) };
+        HashMap<Integer, OnEventListener<?>[]> expected = new HashMap<>();
+        ListenerTable.IntIndex index = ListenerTable.IntIndex.EMPTY_INDEX;
+        for (int i = 0; i < 1000; i++) {
+            int key = i * 65536 - 500;
+            OnEventListener<?>[] value = i % 2 == 0 ? listeners : new OnEventListener<?>[] { new TestListener<>(String.class) };
+            index = index.put(key, value);
+            expected.put(key, value);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            index = index.remove(i * 65536 - 500);
+            expected.remove(i * 65536 - 500);
+        }
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < 1000; i++) {
+            int key = i * 65536 - 500;
+            OnEventListener<?>[] value = expected.get(key);
+            assertSame(value != null ? value : ListenerTable.EMPTY, index.get(key));
+        }
+        assertSame(ListenerTable.EMPTY, index.get(7));
+    }
+
+    @Test
+    public void intIndexWritesDoNotChangePublishedCopies() {
+        OnEventListener<?>[] first = { new TestListener<>(String.class) };
+        OnEventListener<?>[] second = { new TestListener<>(String.class) };
+        ListenerTable.IntIndex published = ListenerTable.IntIndex.EMPTY_INDEX.put(1, first);
+        ListenerTable.IntIndex next = published.put(1, second).put(2, second).remove(1);
+        assertSame(first, published.get(1));
+        assertSame(ListenerTable.EMPTY, published.get(2));
+        assertSame(ListenerTable.EMPTY, next.get(1));
+        assertSame(second, next.get(2));
+        assertSame(ListenerTable.IntIndex.EMPTY_INDEX, next.remove(2));
+    }
+}
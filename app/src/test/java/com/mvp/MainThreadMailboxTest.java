@@ -0,0 +1,136 @@
+package com.mvp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MainThreadMailboxTest
+{
+
+    private final List<Integer> ran = new ArrayList<>();
+    private TestMailbox mailbox;
+
+    @Before
+    public void setUp() throws Exception {
+        mailbox = new TestMailbox();
+    }
+
+    @Test
+    public void schedulesOneMessageForManyPosts() {
+        for (int i = 0; i < 5; i++)
+            mailbox.post(null, record(i));
+        assertEquals(1, mailbox.scheduled);
+        mailbox.run();
+        assertEquals(5, ran.size());
+        for (int i = 0; i < 5; i++)
+            assertEquals(i, (int) ran.get(i));
+        mailbox.post(null, record(5));
+        assertEquals(2, mailbox.scheduled);
+    }
+
+    @Test
+    public void reschedulesWhenTheBudgetIsUsedUp() {
+        mailbox.setTimeBudget(1, TimeUnit.NANOSECONDS);
+        for (int i = 0; i < 3; i++)
+            mailbox.post(null, record(i));
+        mailbox.run();
+        assertEquals(1, ran.size());
+        assertEquals(2, mailbox.scheduled);
+        mailbox.run();
+        mailbox.run();
+        assertEquals(3, ran.size());
+        assertEquals(0, mailbox.size());
+        assertEquals(3, mailbox.scheduled);
+    }
+
+    @Test
+    public void runnablesPostedWhileDrainingRunInTheSamePass() {
+        mailbox.post(null, new Runnable() {
+            @Override
+            public void run() {
+                ran.add(0);
+                mailbox.post(null, record(1));
+            }
+        });
+        mailbox.run();
+        assertEquals(2, ran.size());
+        assertEquals(1, mailbox.scheduled);
+    }
+
+    @Test
+    public void cancelDropsPendingRunnablesOfOwner() {
+        Object first = new Object();
+        Object second = new Object();
+        mailbox.post(first, record(0));
+        mailbox.post(second, record(1));
+        mailbox.post(first, record(2));
+        mailbox.cancel(first);
+        mailbox.run();
+        assertEquals(1, ran.size());
+        assertEquals(1, (int) ran.get(0));
+    }
+
+    @Test
+    public void cancellingEverythingAllowsANewMessage() {
+        Object owner = new Object();
+        mailbox.post(owner, record(0));
+        mailbox.cancel(owner);
+        assertEquals(0, mailbox.scheduled);
+        mailbox.post(null, record(1));
+        assertEquals(1, mailbox.scheduled);
+        mailbox.run();
+        assertEquals(1, ran.size());
+        assertEquals(1, (int) ran.get(0));
+    }
+
+    @Test
+    public void failingRunnableDoesNotStallTheMailbox() {
+        mailbox.post(null, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+        mailbox.post(null, record(1));
+        try {
+            mailbox.run();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(2, mailbox.scheduled);
+        mailbox.run();
+        assertEquals(1, ran.size());
+    }
+
+    private Runnable record(final int value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(value);
+            }
+        };
+    }
+
+    private static class TestMailbox extends MainThreadMailbox
+    {
+        int scheduled;
+
+        TestMailbox() {
+            super(null);
+        }
+
+        @Override
+        void schedule() {
+            scheduled++;
+        }
+
+        @Override
+        void unschedule() {
+            scheduled--;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.OnEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusAllocationTest
+{
+
+    private static final int WARM_UP = 20000;
+    private static final int ITERATIONS = 10000;
+    private static final int ROUNDS = 5;
+    /**
+     * What a thread hop of a generated delegate may allocate per event: its runnable, the entry of
+     * the mailbox and the node of the mailbox queue.
+     */
+    private static final int HOP_BYTES = 128;
+
+    private ExecutorService executorService;
+    private Handler handler;
+    private MvpEventBus eventBus;
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    private TestListener<BaseEvent> baseListener;
+    private TestListener<LoadingEvent> loadingListener;
+    private TestListener<LoadingEvent> secondLoadingListener;
+    private TestListener<Marker> markerListener;
+
+    private final LoadingEvent event = new LoadingEvent();
+    private final UnobservedEvent unobservedEvent = new UnobservedEvent();
+
+    @Before
+    public void setUp() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        executorService = Executors.newSingleThreadExecutor();
+        handler = new Handler(Looper.getMainLooper());
+        eventBus = new MvpEventBus(handler, executorService);
+        baseListener = new TestListener<>(BaseEvent.class).countOnly();
+        loadingListener = new TestListener<>(LoadingEvent.class).countOnly();
+        secondLoadingListener = new TestListener<>(LoadingEvent.class).countOnly();
+        markerListener = new TestListener<>(Marker.class).countOnly();
+        eventBus.addEventListener(baseListener);
+        eventBus.addEventListener(loadingListener);
+        eventBus.addEventListener(secondLoadingListener);
+        eventBus.addEventListener(markerListener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void dispatchEventToAnyDoesNotAllocate() {
+        long allocated = measureAllocations(new Runnable() {
+            @Override
+            public void run() {
+                eventBus.dispatchEventToAny(event);
+            }
+        });
+        assertEquals(0, allocated);
+        int expected = WARM_UP + ROUNDS * ITERATIONS;
+        assertEquals(expected, loadingListener.count.get());
+        assertEquals(expected, secondLoadingListener.count.get());
+        assertEquals(expected, baseListener.count.get());
+        assertEquals(expected, markerListener.count.get());
+    }
+
+    @Test
+    public void fluentDispatchDoesNotAllocate() {
+        long allocated = measureAllocations(new Runnable() {
+            @Override
+            public void run() {
+                eventBus.dispatchEvent(event).toAny();
+            }
+        });
+        assertEquals(0, allocated);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS, loadingListener.count.get());
+    }
+
+    @Test
+    public void primitiveChannelsDoNotAllocate() {
+        final MvpEventBusChannelTest.IntListener scroll = new MvpEventBusChannelTest.IntListener("scroll");
+        final MvpEventBusChannelTest.DoubleListener latitude = new MvpEventBusChannelTest.DoubleListener("latitude");
+        eventBus.addEventListener(scroll);
+        eventBus.addEventListener(latitude);
+        long allocated = measureAllocations(new Runnable() {
+            private int offset;
+
+            @Override
+            public void run() {
+                eventBus.dispatchInt("scroll", offset++);
+                eventBus.dispatchDouble("latitude", offset * 0.5);
+            }
+        });
+        assertEquals(0, allocated);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS, scroll.count);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS, latitude.count);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS - 1, scroll.last);
+    }
+
+    @Test
+    public void generatedDelegateOnTheMainThreadDoesNotAllocate() {
+        LoadingPresenter presenter = new LoadingPresenter();
+        eventBus.addEventListener(new LoadingPresenterDelegate(presenter, handler));
+        long allocated = measureAllocations(new Runnable() {
+            @Override
+            public void run() {
+                eventBus.dispatchEvent(event).toAny();
+            }
+        });
+        assertEquals(0, allocated);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS, presenter.count);
+    }
+
+    @Test
+    public void generatedDelegateOnlyAllocatesTheThreadHop() throws Exception {
+        LoadingPresenter presenter = new LoadingPresenter();
+        eventBus.addEventListener(new LoadingPresenterDelegate(presenter, handler));
+        ShadowLooper.pauseMainLooper();
+        long allocated = executorService.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return measureAllocations(new Runnable() {
+                    @Override
+                    public void run() {
+                        eventBus.dispatchEvent(event).toAny();
+                    }
+                });
+            }
+        }).get(60, TimeUnit.SECONDS);
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasks();
+        assertTrue(allocated + " bytes", allocated <= ITERATIONS * HOP_BYTES);
+        assertEquals(WARM_UP + ROUNDS * ITERATIONS, presenter.count);
+    }
+
+    @Test
+    public void dispatchWithoutListenersDoesNotAllocate() {
+        long allocated = measureAllocations(new Runnable() {
+            @Override
+            public void run() {
+                eventBus.dispatchEventToAny(unobservedEvent);
+            }
+        });
+        assertEquals(0, allocated);
+    }
+
+    /**
+     * @return the fewest bytes allocated by {@link #ITERATIONS} dispatches in any of the rounds,
+     * which filters out one-off allocations of the runtime on the test thread
+     */
+    private long measureAllocations(Runnable dispatch) {
+        for (int i = 0; i < WARM_UP; i++)
+            dispatch.run();
+        long baseline = measureBaseline();
+        long min = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = allocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++)
+                dispatch.run();
+            min = Math.min(min, allocatedBytes() - allocated - baseline);
+        }
+        return min;
+    }
+
+    private long measureBaseline() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = allocatedBytes();
+            min = Math.min(min, allocatedBytes() - before);
+        }
+        return min;
+    }
+
+    private long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    interface Marker { }
+
+    static class BaseEvent { }
+
+    static class LoadingEvent extends BaseEvent implements Marker { }
+
+    static class UnobservedEvent { }
+
+    static class LoadingPresenter
+    {
+        boolean active = true;
+        int count;
+
+        void onLoading(LoadingEvent event) {
+            count++;
+        }
+    }
+
+    /**
+     * The delegate the processor generates for {@code @Event(condition = "this.active")} on
+     * {@link LoadingPresenter#onLoading(LoadingEvent)}.
+     */
+    static final class LoadingPresenterDelegate implements OnEventListener<LoadingEvent>
+    {
+        private final WeakReference<LoadingPresenter> e;
+        private final WeakReference<Handler> handler;
+        private final Class<?> targetClass;
+
+        LoadingPresenterDelegate(LoadingPresenter e, Handler handler) {
+            this.e = new WeakReference<>(e);
+            this.handler = new WeakReference<>(handler);
+            this.targetClass = e.getClass();
+        }
+
+        @Override
+        public void onEvent(final LoadingEvent data, final Class<?>... target) {
+            if (shouldConsumeEvent(data) && (target == null || isTarget(target))) {
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    processEvent(data);
+                } else {
+                    MainThreadMailbox.post(handler.get(), e.get(), new Runnable() {
+                        @Override
+                        public void run() {
+                            processEvent(data);
+                        }
+                    });
+                }
+            }
+        }
+
+        private void processEvent(LoadingEvent data) {
+            LoadingPresenter presenter = e.get();
+            if (presenter != null)
+                presenter.onLoading(data);
+        }
+
+        @Override
+        public void onDestroy() {
+            e.clear();
+            handler.clear();
+        }
+
+        @Override
+        public boolean shouldConsumeEvent(LoadingEvent data) {
+            LoadingPresenter presenter = e.get();
+            return presenter != null && presenter.active;
+        }
+
+        @Override
+        public Class<LoadingEvent> getDataClass() {
+            return LoadingEvent.class;
+        }
+
+        @Override
+        public Class<?> getTargetClass() {
+            return targetClass;
+        }
+
+        private boolean isTarget(Class<?>[] target) {
+            for (Class<?> clazz : target) {
+                if (clazz.isAssignableFrom(targetClass))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.DoubleEventListener;
+import com.mvp.annotation.IntEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusChannelTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void valuesOnlyReachListenersOfTheirChannel() {
+        IntListener scroll = new IntListener("scroll");
+        IntListener page = new IntListener("page");
+        DoubleListener latitude = new DoubleListener("scroll");
+        eventBus.addEventListener(scroll);
+        eventBus.addEventListener(page);
+        eventBus.addEventListener(latitude);
+        eventBus.dispatchInt("scroll", 42);
+        assertEquals(1, scroll.count);
+        assertEquals(42, scroll.last);
+        assertEquals(0, page.count);
+        assertEquals(0, latitude.count);
+        eventBus.dispatchDouble("scroll", 49.87);
+        assertEquals(1, latitude.count);
+        assertEquals(49.87, latitude.last, 0);
+        assertEquals(1, scroll.count);
+    }
+
+    @Test
+    public void channelListenersDoNotReceiveEventObjects() {
+        IntListener listener = new IntListener("");
+        eventBus.addEventListener(listener);
+        eventBus.dispatchEventToAny(7);
+        assertEquals(0, listener.count);
+        eventBus.dispatchInt("", 7);
+        assertEquals(1, listener.count);
+    }
+
+    @Test
+    public void removedListenersReceiveNothing() {
+        IntListener first = new IntListener("page");
+        IntListener second = new IntListener("page");
+        assertTrue(eventBus.addEventListener(first));
+        assertFalse(eventBus.addEventListener(first));
+        eventBus.addEventListener(second);
+        eventBus.removeEventListener(first);
+        eventBus.dispatchInt("page", 2);
+        assertEquals(0, first.count);
+        assertEquals(1, second.count);
+        eventBus.removeEventListener(second);
+        eventBus.dispatchInt("page", 3);
+        assertEquals(1, second.count);
+    }
+
+    @Test
+    public void childBusesReceiveValuesOfTheirParent() {
+        IntListener root = new IntListener("page");
+        IntListener child = new IntListener("page");
+        eventBus.addEventListener(root);
+        eventBus.child("screen").addEventListener(child);
+        eventBus.dispatchInt("page", 2);
+        assertEquals(1, root.count);
+        assertEquals(1, child.count);
+        eventBus.child("screen").dispatchInt("page", 3);
+        assertEquals(1, root.count);
+        assertEquals(2, child.count);
+    }
+
+    /**
+     * Behaves like a generated delegate that consumes its values on the calling thread.
+     */
+    static class IntListener implements IntEventListener
+    {
+        private final String channel;
+        int count;
+        int last;
+
+        IntListener(String channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void onIntEvent(int value) {
+            count++;
+            last = value;
+        }
+
+        @Override
+        public void onEvent(Integer data, Class<?>... targets) {
+            onIntEvent(data);
+        }
+
+        @Override
+        public void onDestroy() {
+        }
+
+        @Override
+        public boolean shouldConsumeEvent(Integer data) {
+            return true;
+        }
+
+        @Override
+        public Class<Integer> getDataClass() {
+            return int.class;
+        }
+
+        @Override
+        public Class<?> getTargetClass() {
+            return getClass();
+        }
+
+        @Override
+        public String getChannel() {
+            return channel;
+        }
+    }
+
+    static class DoubleListener implements DoubleEventListener
+    {
+        private final String channel;
+        int count;
+        double last;
+
+        DoubleListener(String channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void onDoubleEvent(double value) {
+            count++;
+            last = value;
+        }
+
+        @Override
+        public void onEvent(Double data, Class<?>... targets) {
+            onDoubleEvent(data);
+        }
+
+        @Override
+        public void onDestroy() {
+        }
+
+        @Override
+        public boolean shouldConsumeEvent(Double data) {
+            return true;
+        }
+
+        @Override
+        public Class<Double> getDataClass() {
+            return double.class;
+        }
+
+        @Override
+        public Class<?> getTargetClass() {
+            return getClass();
+        }
+
+        @Override
+        public String getChannel() {
+            return channel;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.GlobalEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusChildScopeTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+    private MvpEventBus firstScreen;
+    private MvpEventBus secondScreen;
+
+    private TestListener<String> rootListener;
+    private TestListener<String> firstListener;
+    private TestListener<String> secondListener;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        firstScreen = eventBus.child(1);
+        secondScreen = eventBus.child(2);
+        rootListener = listener(eventBus, String.class);
+        firstListener = listener(firstScreen, String.class);
+        secondListener = listener(secondScreen, String.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void childIsCreatedOncePerScope() {
+        assertSame(firstScreen, eventBus.child(1));
+        assertNotSame(firstScreen, secondScreen);
+        assertSame(eventBus, firstScreen.getParent());
+    }
+
+    @Test
+    public void eventsOfChildStayLocal() {
+        firstScreen.dispatchEvent("id").toAny();
+        assertEquals(0, rootListener.received.size());
+        assertEquals(1, firstListener.received.size());
+        assertEquals(0, secondListener.received.size());
+    }
+
+    @Test
+    public void eventsOfParentReachAllChildren() {
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(1, rootListener.received.size());
+        assertEquals(1, firstListener.received.size());
+        assertEquals(1, secondListener.received.size());
+    }
+
+    @Test
+    public void escalatedEventIsDispatchedOnParent() {
+        firstScreen.dispatchEvent("id").escalate().toAny();
+        assertEquals(1, rootListener.received.size());
+        assertEquals(1, firstListener.received.size());
+        assertEquals(1, secondListener.received.size());
+
+        firstScreen.dispatchEvent("id").toAny();
+        assertEquals(1, rootListener.received.size());
+    }
+
+    @Test
+    public void globalEventsAreDispatchedOnRoot() {
+        TestListener<Global> rootGlobalListener = listener(eventBus, Global.class);
+        TestListener<Global> nestedGlobalListener = listener(firstScreen.child(1), Global.class);
+        secondScreen.dispatchEvent(new Global()).toAny();
+        assertEquals(1, rootGlobalListener.received.size());
+        assertEquals(1, nestedGlobalListener.received.size());
+    }
+
+    @Test
+    public void destroyedChildNoLongerReceivesEvents() {
+        firstScreen.destroy();
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(0, firstListener.received.size());
+        assertEquals(1, secondListener.received.size());
+        assertNotSame(firstScreen, eventBus.child(1));
+        assertFalse(executorService.isShutdown());
+    }
+
+    @Test
+    public void destroyedChildDropsEnqueuedEvents() {
+        firstScreen.destroy();
+        assertFalse(firstScreen.enqueueEvent("id"));
+    }
+
+    @Test
+    public void childOnlyRemovesItsOwnStickyEvents() {
+        eventBus.dispatchStickyEvent("sticky");
+        assertNull(firstScreen.removeStickyEvent(String.class));
+        assertEquals("sticky", eventBus.getStickyEvent(String.class));
+        firstScreen.dispatchStickyEvent("local");
+        assertEquals("local", firstScreen.removeStickyEvent(String.class));
+        assertEquals("sticky", firstScreen.getStickyEvent(String.class));
+    }
+
+    @Test
+    public void stickyEventsOfParentAreVisibleToChildren() {
+        eventBus.dispatchStickyEvent("sticky");
+        assertEquals("sticky", firstScreen.getStickyEvent(String.class));
+        TestListener<String> lateListener = listener(secondScreen, String.class);
+        assertEquals(1, lateListener.received.size());
+    }
+
+    private static <T> TestListener<T> listener(MvpEventBus bus, Class<T> dataClass) {
+        TestListener<T> listener = new TestListener<>(dataClass);
+        bus.addEventListener(listener);
+        return listener;
+    }
+
+    @GlobalEvent
+    static class Global { }
+}
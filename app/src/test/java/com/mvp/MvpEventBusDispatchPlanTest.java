@@ -0,0 +1,77 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusDispatchPlanTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+    private TestListener<String> stringListener;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        stringListener = new TestListener<>(String.class);
+        eventBus.addEventListener(stringListener);
+        eventBus.dispatchEvent("cached").toAny();
+        eventBus.dispatchEvent("cached").to(TestListener.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void addingAListenerInvalidatesTheCachedPlan() {
+        TestListener<String> added = new TestListener<>(String.class);
+        eventBus.addEventListener(added);
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(1, added.received.size());
+        assertEquals(3, stringListener.received.size());
+    }
+
+    @Test
+    public void addingASupertypeListenerInvalidatesTheCachedPlan() {
+        TestListener<CharSequence> added = new TestListener<>(CharSequence.class);
+        eventBus.addEventListener(added);
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(1, added.received.size());
+    }
+
+    @Test
+    public void removingAListenerInvalidatesTheCachedPlan() {
+        eventBus.removeEventListener(stringListener);
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(2, stringListener.received.size());
+    }
+
+    @Test
+    public void addingAndRemovingInvalidatesTheCachedTargetedPlan() {
+        TestListener<String> added = new TestListener<>(String.class);
+        eventBus.addEventListener(added);
+        eventBus.dispatchEvent("id").to(TestListener.class);
+        assertEquals(1, added.received.size());
+        eventBus.removeEventListener(added);
+        eventBus.dispatchEvent("id").to(TestListener.class);
+        assertEquals(1, added.received.size());
+        assertEquals(4, stringListener.received.size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.ConcurrentEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusFanOutTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newFixedThreadPool(3);
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void backgroundListenersRunInParallel() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        BackgroundListener first = new BackgroundListener(barrier);
+        BackgroundListener second = new BackgroundListener(barrier);
+        BackgroundListener third = new BackgroundListener(barrier);
+        eventBus.addEventListener(first);
+        eventBus.addEventListener(second);
+        eventBus.addEventListener(third);
+
+        Completion completion = new Completion();
+        eventBus.dispatchEvent("id").toAnyConcurrently(completion);
+
+        assertTrue(completion.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, completion.count.get());
+        assertEquals(1, first.count.get());
+        assertEquals(1, second.count.get());
+        assertEquals(1, third.count.get());
+    }
+
+    @Test
+    public void completionWaitsForSkippedAndPlainListeners() throws Exception {
+        BackgroundListener skipping = new BackgroundListener(null);
+        skipping.consume = false;
+        TestListener<String> plainFirst = new TestListener<>(String.class);
+        TestListener<String> plainSecond = new TestListener<>(String.class);
+        eventBus.addEventListener(skipping);
+        eventBus.addEventListener(plainFirst);
+        eventBus.addEventListener(plainSecond);
+
+        Completion completion = new Completion();
+        eventBus.dispatchEvent("id").toAnyConcurrently(completion);
+
+        assertTrue(completion.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, completion.count.get());
+        assertEquals(0, skipping.count.get());
+        assertEquals(1, plainFirst.received.size());
+        assertEquals(1, plainSecond.received.size());
+    }
+
+    @Test
+    public void completionRunsWithoutListeners() {
+        Completion completion = new Completion();
+        eventBus.dispatchEvent("id").toAnyConcurrently(completion);
+        assertEquals(1, completion.count.get());
+    }
+
+    private static class Completion implements Runnable
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Behaves like a generated delegate whose only step runs on a background thread.
+     */
+    private class BackgroundListener extends TestListener<String> implements ConcurrentEventListener<String>
+    {
+        private final CyclicBarrier barrier;
+
+        BackgroundListener(CyclicBarrier barrier) {
+            super(String.class);
+            this.barrier = barrier;
+        }
+
+        @Override
+        public void onEventConcurrently(String data, final Runnable completion) {
+            if (!shouldConsumeEvent(data)) {
+                completion.run();
+                return;
+            }
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                        count.incrementAndGet();
+                    } catch (Exception ignored) {
+                    } finally {
+                        completion.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.IntKeyedEventListener;
+import com.mvp.annotation.KeyedEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusKeyedDispatchTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+
+    private KeyListener first;
+    private KeyListener second;
+    private KeyListener alsoSecond;
+    private TestListener<Item> unkeyed;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        first = new KeyListener(1, MvpEventBusTargetedDispatchTest.MainPresenter.class);
+        second = new KeyListener(2, MvpEventBusTargetedDispatchTest.MainPresenter.class);
+        alsoSecond = new KeyListener(2, MvpEventBusTargetedDispatchTest.DetailPresenter.class);
+        unkeyed = new TestListener<>(Item.class, MvpEventBusTargetedDispatchTest.DetailPresenter.class);
+        eventBus.addEventListener(first);
+        eventBus.addEventListener(second);
+        eventBus.addEventListener(alsoSecond);
+        eventBus.addEventListener(unkeyed);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void eventOnlyReachesListenersWithMatchingKey() {
+        eventBus.dispatchEvent(new Item(2)).toAny();
+        assertEquals(0, first.count.get());
+        assertEquals(1, second.count.get());
+        assertEquals(1, alsoSecond.count.get());
+        assertEquals(1, unkeyed.count.get());
+    }
+
+    @Test
+    public void eventWithUnknownKeyOnlyReachesUnkeyedListeners() {
+        eventBus.dispatchEvent(new Item(3)).toAny();
+        assertEquals(0, first.count.get());
+        assertEquals(0, second.count.get());
+        assertEquals(0, alsoSecond.count.get());
+        assertEquals(1, unkeyed.count.get());
+    }
+
+    @Test
+    public void removedListenerNoLongerReceivesEvents() {
+        eventBus.removeEventListener(second);
+        eventBus.dispatchEvent(new Item(2)).toAny();
+        assertEquals(0, second.count.get());
+        assertEquals(1, alsoSecond.count.get());
+    }
+
+    @Test
+    public void targetedEventReachesKeyedListenersOfTarget() {
+        eventBus.dispatchEvent(new Item(2)).to(MvpEventBusTargetedDispatchTest.DetailPresenter.class);
+        assertEquals(0, second.count.get());
+        assertEquals(1, alsoSecond.count.get());
+        assertEquals(1, unkeyed.count.get());
+    }
+
+    @Test
+    public void intKeyedEventIsRoutedWithoutBoxing() {
+        List<Integer> received = new ArrayList<>();
+        IntKeyListener seven = new IntKeyListener(7, received);
+        IntKeyListener eight = new IntKeyListener(8, received);
+        eventBus.addEventListener(seven);
+        eventBus.addEventListener(eight);
+        eventBus.dispatchEvent(new Item(8)).toAny();
+        eventBus.dispatchEvent(new Item(9)).toAny();
+        assertEquals(Arrays.asList(8), received);
+        eventBus.removeEventListener(eight);
+        eventBus.dispatchEvent(new Item(8)).toAny();
+        eventBus.dispatchEvent(new Item(7)).toAny();
+        assertEquals(Arrays.asList(8, 7), received);
+    }
+
+    @Test
+    public void targetedKeyedListenersAreCalledInOrderOfAddition() {
+        List<Integer> received = new ArrayList<>();
+        for (int key : new int[] { 30, 10, 20, -5 })
+            eventBus.addEventListener(new IntKeyListener(key, received));
+        eventBus.dispatchEvent(new Item(0)).to(MvpEventBusTargetedDispatchTest.BasePresenter.class);
+        assertEquals(Arrays.asList(30, 10, 20, -5), received);
+    }
+
+    static class Item
+    {
+        final int id;
+
+        Item(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Behaves like a generated delegate whose condition is {@code #id == this.id}.
+     */
+    static class KeyListener extends TestListener<Item> implements KeyedEventListener<Item>
+    {
+        private final Object key;
+
+        KeyListener(int key, Class<?> targetClass) {
+            super(Item.class, targetClass);
+            this.key = key;
+        }
+
+        @Override
+        public boolean shouldConsumeEvent(Item data) {
+            return key.equals(data.id);
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object extractKey(Item data) {
+            return data.id;
+        }
+    }
+
+    static class IntKeyListener extends TestListener<Item> implements IntKeyedEventListener<Item>
+    {
+        private final int key;
+        private final List<Integer> deliveries;
+
+        IntKeyListener(int key, List<Integer> deliveries) {
+            super(Item.class, MvpEventBusTargetedDispatchTest.BasePresenter.class);
+            this.key = key;
+            this.deliveries = deliveries;
+        }
+
+        @Override
+        public void onEvent(Item data, Class<?>... target) {
+            deliveries.add(key);
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public int getIntKey() {
+            return key;
+        }
+
+        @Override
+        public Object extractKey(Item data) {
+            throw new UnsupportedOperationException("int keys are extracted with extractIntKey");
+        }
+
+        @Override
+        public int extractIntKey(Item data) {
+            return data.id;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mvp.annotation.OnEventListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusReclaimTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+    private Object liveOwner;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void listenersOfCollectedOwnersAreReclaimed() throws Exception {
+        TestListener<String> deadListener = bindListenerOfCollectableOwner();
+        TestListener<String> liveListener = new TestListener<>(String.class);
+        liveOwner = new Object();
+        eventBus.addEventListener(liveListener);
+        eventBus.track(liveOwner, Collections.<OnEventListener<?>>singletonList(liveListener));
+
+        int reclaimed = 0;
+        for (int i = 0; i < 50 && reclaimed == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            reclaimed = eventBus.reclaimDeadListeners();
+        }
+        assertEquals(1, reclaimed);
+        assertEquals(1, eventBus.getReclaimedListenerCount());
+        assertEquals(1, eventBus.getMetricsSnapshot().getReclaimedListeners());
+
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(0, deadListener.received.size());
+        assertEquals(1, liveListener.received.size());
+    }
+
+    @Test
+    public void removingAReclaimedListenerDoesNotThrow() {
+        TestListener<String> listener = new TestListener<>(String.class);
+        eventBus.addEventListener(listener);
+        eventBus.track(liveOwner = new Object(), Collections.<OnEventListener<?>>singletonList(listener));
+        eventBus.remove(listener);
+        assertFalse(eventBus.remove(listener));
+        eventBus.unregister(liveOwner);
+    }
+
+    @Test
+    public void ownersAreComparedByIdentity() {
+        ListenerOwners owners = new ListenerOwners();
+        Object first = new SameHash();
+        Object second = new SameHash();
+        OnEventListener<String> firstListener = new TestListener<>(String.class);
+        OnEventListener<String> secondListener = new TestListener<>(String.class);
+        owners.add(first, Collections.singletonList(firstListener));
+        owners.add(second, Collections.singletonList(secondListener));
+        assertEquals(2, owners.size());
+        assertSame(secondListener, owners.remove(second).get(0));
+        assertSame(firstListener, owners.remove(first).get(0));
+        assertNull(owners.remove(first));
+    }
+
+    @Test
+    public void pollReturnsNullWithoutCollectedOwners() {
+        ListenerOwners owners = new ListenerOwners();
+        Object owner = new Object();
+        owners.add(owner, new ArrayList<OnEventListener<?>>());
+        assertNull(owners.poll(ListenerOwners.SWEEP_BATCH));
+        assertEquals(1, owners.size());
+    }
+
+    private TestListener<String> bindListenerOfCollectableOwner() {
+        TestListener<String> listener = new TestListener<>(String.class);
+        List<OnEventListener<?>> listeners = new ArrayList<>();
+        listeners.add(listener);
+        eventBus.addEventListener(listener);
+        eventBus.track(new Object(), listeners);
+        return listener;
+    }
+
+    private static class SameHash
+    {
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameHash;
+        }
+    }
+}
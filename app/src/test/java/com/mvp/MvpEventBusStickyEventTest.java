@@ -0,0 +1,106 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusStickyEventTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void lateListenerReceivesLatestStickyEvent() {
+        eventBus.dispatchStickyEvent("first");
+        eventBus.dispatchStickyEvent("second");
+        TestListener<String> listener = new TestListener<>(String.class);
+        eventBus.addEventListener(listener);
+        assertEquals(1, listener.received.size());
+        assertEquals("second", listener.received.get(0));
+        assertNull(listener.targets.get(0));
+    }
+
+    @Test
+    public void registeredListenerReceivesStickyEventOnce() {
+        TestListener<String> listener = new TestListener<>(String.class);
+        eventBus.addEventListener(listener);
+        eventBus.dispatchStickyEvent("id");
+        assertEquals(1, listener.received.size());
+    }
+
+    @Test
+    public void stickyEventIsDeliveredToSupertypeListeners() {
+        eventBus.dispatchStickyEvent(Integer.valueOf(3));
+        TestListener<Number> listener = new TestListener<>(Number.class);
+        eventBus.addEventListener(listener);
+        assertEquals(1, listener.received.size());
+        assertEquals(3, listener.received.get(0));
+    }
+
+    @Test
+    public void removedStickyEventIsNotDelivered() {
+        eventBus.dispatchStickyEvent("id");
+        assertEquals("id", eventBus.removeStickyEvent(String.class));
+        TestListener<String> listener = new TestListener<>(String.class);
+        eventBus.addEventListener(listener);
+        assertTrue(listener.received.isEmpty());
+        assertNull(eventBus.getStickyEvent(String.class));
+    }
+
+    @Test
+    public void clearedStickyEventsAreNotDelivered() {
+        eventBus.dispatchStickyEvent("id");
+        eventBus.dispatchStickyEvent(1L);
+        eventBus.clearStickyEvents();
+        TestListener<Object> listener = new TestListener<>(Object.class);
+        eventBus.addEventListener(listener);
+        assertTrue(listener.received.isEmpty());
+    }
+
+    @Test
+    public void leastRecentlyUsedStickyEventIsEvicted() {
+        eventBus.dispatchStickyEvent("id");
+        eventBus.dispatchStickyEvent(1L);
+        eventBus.getStickyEvent(String.class);
+        eventBus.dispatchStickyEvent(2.0d);
+        assertEquals("id", eventBus.getStickyEvent(String.class));
+        assertNull(eventBus.getStickyEvent(Long.class));
+        assertEquals(2.0d, eventBus.getStickyEvent(Double.class), 0.0d);
+    }
+
+    @Test
+    public void stickyEventIsOnlyDeliveredIfListenerConsumesIt() {
+        eventBus.dispatchStickyEvent("id");
+        TestListener<String> listener = new TestListener<>(String.class);
+        listener.consume = false;
+        eventBus.addEventListener(listener);
+        assertTrue(listener.received.isEmpty());
+    }
+}
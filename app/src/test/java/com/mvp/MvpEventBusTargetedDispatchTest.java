@@ -0,0 +1,123 @@
+package com.mvp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.Serializable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class MvpEventBusTargetedDispatchTest
+{
+
+    private ExecutorService executorService;
+    private MvpEventBus eventBus;
+
+    private TestListener<String> basePresenterListener;
+    private TestListener<String> mainPresenterListener;
+    private TestListener<String> detailPresenterListener;
+    private TestListener<CharSequence> detailPresenterCharSequenceListener;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+        eventBus = new MvpEventBus(new Handler(Looper.getMainLooper()), executorService);
+        basePresenterListener = new TestListener<>(String.class, BasePresenter.class);
+        mainPresenterListener = new TestListener<>(String.class, MainPresenter.class);
+        detailPresenterListener = new TestListener<>(String.class, DetailPresenter.class);
+        detailPresenterCharSequenceListener = new TestListener<>(CharSequence.class, DetailPresenter.class);
+        eventBus.addEventListener(basePresenterListener);
+        eventBus.addEventListener(mainPresenterListener);
+        eventBus.addEventListener(detailPresenterListener);
+        eventBus.addEventListener(detailPresenterCharSequenceListener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void untargetedEventReachesAllListeners() {
+        eventBus.dispatchEvent("id").toAny();
+        assertEquals(1, basePresenterListener.count.get());
+        assertEquals(1, mainPresenterListener.count.get());
+        assertEquals(1, detailPresenterListener.count.get());
+        assertEquals(1, detailPresenterCharSequenceListener.count.get());
+    }
+
+    @Test
+    public void targetedEventOnlyReachesMatchingListeners() {
+        eventBus.dispatchEvent("id").to(DetailPresenter.class);
+        assertEquals(0, basePresenterListener.count.get());
+        assertEquals(0, mainPresenterListener.count.get());
+        assertEquals(1, detailPresenterListener.count.get());
+        assertEquals(1, detailPresenterCharSequenceListener.count.get());
+    }
+
+    @Test
+    public void supertypeTargetReachesAllSubclasses() {
+        eventBus.dispatchEvent("id").to(BasePresenter.class);
+        assertEquals(1, basePresenterListener.count.get());
+        assertEquals(1, mainPresenterListener.count.get());
+        assertEquals(0, detailPresenterListener.count.get());
+        assertEquals(0, detailPresenterCharSequenceListener.count.get());
+    }
+
+    @Test
+    public void listenerMatchingSeveralTargetsReceivesEventOnce() {
+        eventBus.dispatchEvent("id").to(BasePresenter.class, MainPresenter.class, DetailPresenter.class);
+        assertEquals(1, basePresenterListener.count.get());
+        assertEquals(1, mainPresenterListener.count.get());
+        assertEquals(1, detailPresenterListener.count.get());
+        assertEquals(1, detailPresenterCharSequenceListener.count.get());
+    }
+
+    @Test
+    public void targetedPlanFollowsListenerChanges() {
+        eventBus.dispatchEvent("id").to(DetailPresenter.class);
+        eventBus.removeEventListener(detailPresenterListener);
+        TestListener<Serializable> serializableListener = new TestListener<>(Serializable.class, DetailPresenter.class);
+        eventBus.addEventListener(serializableListener);
+        eventBus.dispatchEvent("id").to(DetailPresenter.class);
+        assertEquals(1, detailPresenterListener.count.get());
+        assertEquals(2, detailPresenterCharSequenceListener.count.get());
+        assertEquals(1, serializableListener.count.get());
+    }
+
+    @Test
+    public void nonConsumingListenerIsSkipped() {
+        detailPresenterListener.consume = false;
+        eventBus.dispatchEvent("id").to(DetailPresenter.class);
+        assertEquals(0, detailPresenterListener.count.get());
+        assertEquals(1, detailPresenterCharSequenceListener.count.get());
+    }
+
+    @Test
+    public void manyListenersOfOneTypeDoNotGrowTheStack() {
+        TestListener<Integer> last = null;
+        for (int i = 0; i < 10000; i++) {
+            last = new TestListener<>(Integer.class, MainPresenter.class);
+            eventBus.addEventListener(last);
+        }
+        eventBus.dispatchEvent(1).toAny();
+        assertEquals(1, last.count.get());
+    }
+
+    static class BasePresenter { }
+
+    static class MainPresenter extends BasePresenter { }
+
+    static class DetailPresenter { }
+}
@@ -0,0 +1,19 @@
+package com.mvp;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferEngineTest extends EventBusEngineConformanceTest
+{
+
+    @Override
+    protected EventBusEngine createEngine() {
+        return new RingBufferEngine(new CopyOnWriteEngine(), 16, BackpressurePolicy.BLOCK);
+    }
+
+    @Override
+    protected void awaitDelivery(EventBusEngine engine) throws Exception {
+        assertTrue(((RingBufferEngine) engine).awaitDelivery(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,173 @@
+package com.mvp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest
+{
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneLoad() throws Exception {
+        Future<String> first = submit("key", CancellationToken.NONE);
+        started.await(1, TimeUnit.SECONDS);
+        Future<String> second = submit("key", CancellationToken.NONE);
+        awaitCallers("key", 2);
+        release.countDown();
+        assertEquals("result", first.get(1, TimeUnit.SECONDS));
+        assertEquals("result", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.callers("key"));
+    }
+
+    @Test
+    public void finishedCallsAreLoadedAgain() throws Exception {
+        release.countDown();
+        submit("key", CancellationToken.NONE).get(1, TimeUnit.SECONDS);
+        submit("key", CancellationToken.NONE).get(1, TimeUnit.SECONDS);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void failuresAreSharedWithAllCallers() throws Exception {
+        Future<String> first = executorService.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlight.execute("key", new SingleFlight.Loader<String>() {
+                    @Override
+                    public String load() throws IOException {
+                        started.countDown();
+                        await(release);
+                        throw new IOException("offline");
+                    }
+                });
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+        Future<String> second = submit("key", CancellationToken.NONE);
+        awaitCallers("key", 2);
+        release.countDown();
+        assertFailedWith(IOException.class, first);
+        assertFailedWith(IOException.class, second);
+    }
+
+    @Test
+    public void cancelledCallerStopsWaitingWithoutCancellingTheCall() throws Exception {
+        CancellationToken token = new CancellationToken();
+        Future<String> first = submit("key", CancellationToken.NONE);
+        started.await(1, TimeUnit.SECONDS);
+        Future<String> second = submit("key", token);
+        awaitCallers("key", 2);
+        token.cancel();
+        assertFailedWith(CancellationException.class, second);
+        release.countDown();
+        assertEquals("result", first.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledLeaderKeepsTheCallRunningForOtherCallers() throws Exception {
+        CancellationToken token = new CancellationToken();
+        Future<String> first = submit("key", token);
+        started.await(1, TimeUnit.SECONDS);
+        Future<String> second = submit("key", CancellationToken.NONE);
+        awaitCallers("key", 2);
+        token.cancel();
+        release.countDown();
+        assertEquals("result", second.get(1, TimeUnit.SECONDS));
+        assertFailedWith(CancellationException.class, first);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void cancelledLeaderCancelsTheCallIfNobodyWaits() throws Exception {
+        final CancellationToken token = new CancellationToken();
+        final CancellationTokenTest.CountingCancellable call = new CancellationTokenTest.CountingCancellable();
+        Future<String> first = executorService.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlight.execute("key", token, new SingleFlight.Loader<String>() {
+                    @Override
+                    public String load() throws IOException {
+                        CancellationToken.current().onCancel(call);
+                        started.countDown();
+                        await(release);
+                        return "result";
+                    }
+                });
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+        token.cancel();
+        assertEquals(1, call.count);
+        assertEquals(0, singleFlight.callers("key"));
+        release.countDown();
+        assertFailedWith(CancellationException.class, first);
+    }
+
+    private Future<String> submit(final String key, final CancellationToken token) {
+        return executorService.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlight.execute(key, token, new SingleFlight.Loader<String>() {
+                    @Override
+                    public String load() throws IOException {
+                        loads.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return "result";
+                    }
+                });
+            }
+        });
+    }
+
+    private void awaitCallers(String key, int callers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (singleFlight.callers(key) < callers && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(callers, singleFlight.callers(key));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertFailedWith(Class<? extends Throwable> type, Future<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.mvp;
+
+public class SynchronizedEngineTest extends EventBusEngineConformanceTest
+{
+
+    @Override
+    protected EventBusEngine createEngine() {
+        return new SynchronizedEngine();
+    }
+}
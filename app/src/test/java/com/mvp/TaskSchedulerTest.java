@@ -0,0 +1,276 @@
+package com.mvp;
+
+import com.mvp.annotation.BackgroundThread;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSchedulerTest
+{
+
+    private static final String KEY = "search";
+
+    private final List<String> ran = new ArrayList<>();
+    private TestScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new TestScheduler();
+    }
+
+    @Test
+    public void switchCancelsThePendingTask() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("first"));
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("second"));
+        scheduler.runTasks();
+        assertEquals(1, ran.size());
+        assertEquals("second", ran.get(0));
+    }
+
+    @Test
+    public void finishingTaskDoesNotClearTheTaskThatReplacedIt() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("second"));
+                assertTrue(Thread.currentThread().isInterrupted());
+            }
+        });
+        scheduler.runTask();
+        Thread.interrupted();
+        assertTrue(scheduler.isRunning(KEY));
+        scheduler.runTasks();
+        assertEquals(1, ran.size());
+        assertFalse(scheduler.isRunning(KEY));
+    }
+
+    @Test
+    public void switchWaitsForTheSupersededTaskToReturn() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("second"));
+                scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("third"));
+                Thread.interrupted();
+                ran.add(scheduler.tasks.isEmpty() ? "first" : "overlapping");
+            }
+        });
+        scheduler.runTask();
+        assertEquals(1, scheduler.tasks.size());
+        scheduler.runTasks();
+        assertEquals(2, ran.size());
+        assertEquals("first", ran.get(0));
+        assertEquals("third", ran.get(1));
+    }
+
+    @Test
+    public void idleKeysAreDropped() {
+        scheduler.submit(KEY, BackgroundThread.Policy.QUEUE, 0, 0, record("first"));
+        scheduler.submit(KEY, BackgroundThread.Policy.QUEUE, 0, 0, record("second"));
+        assertEquals(1, scheduler.size());
+        scheduler.runTasks();
+        assertEquals(0, scheduler.size());
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 300, 0, record("debounced"));
+        scheduler.fireTimers();
+        assertEquals(1, scheduler.size());
+        scheduler.runTasks();
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void throttledKeysAreDroppedAtTheEndOfTheInterval() {
+        scheduler.time = 1000;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 300, record("first"));
+        scheduler.runTasks();
+        assertEquals(1, scheduler.size());
+        assertEquals(300, (long) scheduler.delays.get(0));
+        scheduler.time = 1300;
+        scheduler.fireTimers();
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void queueRunsTasksOneAfterAnother() {
+        for (int i = 0; i < 3; i++)
+            scheduler.submit(KEY, BackgroundThread.Policy.QUEUE, 0, 0, record(String.valueOf(i)));
+        assertEquals(1, scheduler.tasks.size());
+        scheduler.runTasks();
+        assertEquals(3, ran.size());
+        for (int i = 0; i < 3; i++)
+            assertEquals(String.valueOf(i), ran.get(i));
+    }
+
+    @Test
+    public void dropIgnoresTasksWhileOneIsRunning() {
+        scheduler.submit(KEY, BackgroundThread.Policy.DROP, 0, 0, record("first"));
+        scheduler.submit(KEY, BackgroundThread.Policy.DROP, 0, 0, record("second"));
+        scheduler.runTasks();
+        scheduler.submit(KEY, BackgroundThread.Policy.DROP, 0, 0, record("third"));
+        scheduler.runTasks();
+        assertEquals(2, ran.size());
+        assertEquals("first", ran.get(0));
+        assertEquals("third", ran.get(1));
+    }
+
+    @Test
+    public void keysDoNotAffectEachOther() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("search"));
+        scheduler.submit("load", BackgroundThread.Policy.SWITCH, 0, 0, record("load"));
+        scheduler.runTasks();
+        assertEquals(2, ran.size());
+    }
+
+    @Test
+    public void debounceOnlyRunsTheLastTask() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 300, 0, record("a"));
+        scheduler.time = 100;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 300, 0, record("ab"));
+        scheduler.time = 200;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 300, 0, record("abc"));
+        assertEquals(1, scheduler.timers.size());
+        assertEquals(300, (long) scheduler.delays.get(0));
+        assertTrue(scheduler.tasks.isEmpty());
+        scheduler.fireTimers();
+        scheduler.runTasks();
+        assertEquals(1, ran.size());
+        assertEquals("abc", ran.get(0));
+    }
+
+    @Test
+    public void throttleRunsTheLastTaskAtTheEndOfTheInterval() {
+        scheduler.time = 1000;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 300, record("first"));
+        scheduler.runTasks();
+        scheduler.time = 1100;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 300, record("second"));
+        scheduler.time = 1150;
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 300, record("third"));
+        assertEquals(1, scheduler.timers.size());
+        assertEquals(200, (long) scheduler.delays.get(0));
+        scheduler.time = 1300;
+        scheduler.fireTimers();
+        scheduler.runTasks();
+        assertEquals(2, ran.size());
+        assertEquals("third", ran.get(1));
+    }
+
+    @Test
+    public void shutdownCancelsAllTasks() {
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("running"));
+        scheduler.submit("debounced", BackgroundThread.Policy.SWITCH, 300, 0, record("debounced"));
+        scheduler.shutdown();
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("late"));
+        scheduler.fireTimers();
+        scheduler.runTasks();
+        assertTrue(ran.isEmpty());
+        assertFalse(scheduler.isRunning(KEY));
+    }
+
+    @Test
+    public void supersededTasksCancelTheirToken() {
+        final CancellationTokenTest.CountingCancellable call = new CancellationTokenTest.CountingCancellable();
+        final CancellationToken[] tokens = new CancellationToken[1];
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, new Runnable() {
+            @Override
+            public void run() {
+                tokens[0] = CancellationToken.current();
+                tokens[0].onCancel(call);
+                scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, record("second"));
+            }
+        });
+        scheduler.runTask();
+        Thread.interrupted();
+        assertTrue(tokens[0].isCancelled());
+        assertEquals(1, call.count);
+        assertSame(CancellationToken.NONE, CancellationToken.current());
+    }
+
+    @Test
+    public void shutdownCancelsTheTokenOfTheRunningTask() {
+        final CancellationTokenTest.CountingCancellable call = new CancellationTokenTest.CountingCancellable();
+        scheduler.submit(KEY, BackgroundThread.Policy.SWITCH, 0, 0, new Runnable() {
+            @Override
+            public void run() {
+                CancellationToken.current().onCancel(call);
+                scheduler.shutdown();
+                CancellationToken.current().throwIfCancelled();
+                ran.add("not cancelled");
+            }
+        });
+        scheduler.runTask();
+        Thread.interrupted();
+        assertEquals(1, call.count);
+        assertTrue(ran.isEmpty());
+    }
+
+    private Runnable record(final String value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(value);
+            }
+        };
+    }
+
+    private static class TestScheduler extends TaskScheduler
+    {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Runnable> timers = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+        long time;
+
+        TestScheduler() {
+            super(null, null);
+        }
+
+        void runTask() {
+            tasks.remove(0).run();
+        }
+
+        void runTasks() {
+            while (!tasks.isEmpty())
+                runTask();
+        }
+
+        void fireTimers() {
+            List<Runnable> due = new ArrayList<>(timers);
+            timers.clear();
+            delays.clear();
+            for (Runnable timer : due)
+                timer.run();
+        }
+
+        @Override
+        void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        void postDelayed(Runnable runnable, long delayMillis) {
+            timers.add(runnable);
+            delays.add(delayMillis);
+        }
+
+        @Override
+        void removeCallbacks(Runnable runnable) {
+            int index = timers.indexOf(runnable);
+            if (index >= 0) {
+                timers.remove(index);
+                delays.remove(index);
+            }
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mvp;
+
+import com.mvp.annotation.OnEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Behaves like a generated delegate of a presenter of the target class, it counts the events it
+ * consumes and records them unless {@link #countOnly()} was called. Counting does not allocate, so
+ * a counting listener can be used to measure the allocations of a dispatch.
+ */
+class TestListener<T> implements OnEventListener<T>
+{
+    private final Class<T> dataClass;
+    private final Class<?> targetClass;
+    final AtomicInteger count = new AtomicInteger();
+    final List<T> received = Collections.synchronizedList(new ArrayList<T>());
+    final List<Class<?>[]> targets = Collections.synchronizedList(new ArrayList<Class<?>[]>());
+    volatile boolean consume = true;
+    private boolean record = true;
+
+    /**
+     * Creates a listener whose target class is its own class.
+     */
+    TestListener(Class<T> dataClass) {
+        this(dataClass, null);
+    }
+
+    TestListener(Class<T> dataClass, Class<?> targetClass) {
+        this.dataClass = dataClass;
+        this.targetClass = targetClass != null ? targetClass : getClass();
+    }
+
+    /**
+     * Stops recording the events, only {@link #count} is updated afterwards.
+     */
+    TestListener<T> countOnly() {
+        record = false;
+        return this;
+    }
+
+    @Override
+    public void onEvent(T data, Class<?>... target) {
+        if (!shouldConsumeEvent(data) || target != null && !isTarget(target))
+            return;
+        count.incrementAndGet();
+        if (record) {
+            received.add(data);
+            targets.add(target);
+        }
+    }
+
+    private boolean isTarget(Class<?>[] target) {
+        for (Class<?> clazz : target) {
+            if (clazz.isAssignableFrom(targetClass))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onDestroy() {
+    }
+
+    @Override
+    public boolean shouldConsumeEvent(T data) {
+        return consume;
+    }
+
+    @Override
+    public Class<T> getDataClass() {
+        return dataClass;
+    }
+
+    @Override
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+}
@@ -0,0 +1,93 @@
+package com.mvp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest
+{
+
+    @After
+    public void tearDown() throws Exception {
+        Tracer.disable();
+    }
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() {
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() { }
+        };
+        assertSame(runnable, Tracer.wrap(Tracer.HOP_UI, "hop", runnable));
+        Tracer.begin(Tracer.DISPATCH, "event");
+        assertEquals(0, Tracer.currentId());
+        Tracer.end(Tracer.DISPATCH, "event");
+        assertFalse(Tracer.exportChromeTrace().contains("\"ph\":\"B\""));
+    }
+
+    @Test
+    public void nestedSpansShareTheOuterId() {
+        Tracer.enable();
+        Tracer.begin(Tracer.DISPATCH, "outer");
+        long outer = Tracer.currentId();
+        Tracer.begin(Tracer.DISPATCH, "inner", 42);
+        assertEquals(outer, Tracer.currentId());
+        Tracer.end(Tracer.DISPATCH, "inner");
+        Tracer.end(Tracer.DISPATCH, "outer");
+        assertEquals(0, Tracer.currentId());
+        Tracer.begin(Tracer.DISPATCH, "next");
+        assertNotEquals(outer, Tracer.currentId());
+        Tracer.end(Tracer.DISPATCH, "next");
+    }
+
+    @Test
+    public void wrappedRunnablesInheritTheIdOnOtherThreads() throws Exception {
+        Tracer.enable();
+        final AtomicLong seen = new AtomicLong();
+        Tracer.begin(Tracer.DISPATCH, "event");
+        long id = Tracer.currentId();
+        Thread thread = new Thread(Tracer.wrap(Tracer.HOP_BACKGROUND, "event", new Runnable() {
+            @Override
+            public void run() {
+                seen.set(Tracer.currentId());
+            }
+        }));
+        Tracer.end(Tracer.DISPATCH, "event");
+        thread.start();
+        thread.join();
+        assertEquals(id, seen.get());
+    }
+
+    @Test
+    public void exportsChromeTraceEvents() {
+        Tracer.enable();
+        Tracer.begin(Tracer.DISPATCH, "java.lang.String");
+        Tracer.end(Tracer.DISPATCH, "java.lang.String");
+        String json = Tracer.exportChromeTrace();
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.contains("\"name\":\"java.lang.String\",\"cat\":\"dispatch\",\"ph\":\"B\""));
+        assertTrue(json.contains("\"ph\":\"E\""));
+        assertTrue(json.contains("\"ph\":\"s\""));
+        assertTrue(json.endsWith("]}"));
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentRecords() {
+        Tracer.enable(3);
+        for (int i = 0; i < 10; i++) {
+            Tracer.begin(Tracer.DISPATCH, "event" + i);
+            Tracer.end(Tracer.DISPATCH, "event" + i);
+        }
+        String json = Tracer.exportChromeTrace();
+        assertFalse(json.contains("\"event7\""));
+        assertTrue(json.contains("\"event8\""));
+        assertTrue(json.contains("\"event9\""));
+    }
+}
@@ -0,0 +1,170 @@
+package com.mvp;
+
+import com.mvp.annotation.Conflate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class ViewCommandBufferTest
+{
+
+    private TestBuffer buffer;
+    private TestView view;
+
+    @Before
+    public void setUp() throws Exception {
+        buffer = new TestBuffer();
+        view = new TestView();
+        buffer.setView(view);
+    }
+
+    @Test
+    public void aBurstOfCallsIsAppliedInOneBatch() {
+        ITestView recorder = buffer.record(view);
+        recorder.add("a");
+        recorder.add("b");
+        recorder.add("c");
+        assertTrue(view.calls.isEmpty());
+        assertEquals(1, buffer.posted.size());
+        assertEquals(3, buffer.size());
+        buffer.runPosted();
+        assertEquals(Arrays.asList("add a", "add b", "add c"), view.calls);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void batchRunsInOrderWithOtherPostedWork() {
+        ITestView recorder = buffer.record(view);
+        buffer.post(new Runnable() {
+            @Override
+            public void run() {
+                view.calls.add("posted");
+            }
+        });
+        recorder.add("a");
+        buffer.runPosted();
+        recorder.add("b");
+        assertEquals(1, buffer.posted.size());
+        buffer.runPosted();
+        assertEquals(Arrays.asList("posted", "add a", "add b"), view.calls);
+    }
+
+    @Test
+    public void conflatedCallsReplaceThePendingOne() {
+        ITestView recorder = buffer.record(view);
+        recorder.show("a");
+        recorder.add("b");
+        recorder.show("c");
+        assertEquals(2, buffer.size());
+        buffer.runPosted();
+        assertEquals(Arrays.asList("add b", "show c"), view.calls);
+        recorder.show("d");
+        buffer.runPosted();
+        assertEquals(Arrays.asList("add b", "show c", "show d"), view.calls);
+    }
+
+    @Test
+    public void callsWithResultReachTheViewRightAway() {
+        ITestView recorder = buffer.record(view);
+        assertEquals("tag", recorder.tag());
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.posted.isEmpty());
+    }
+
+    @Test
+    public void onlyViewInterfacesAreRecorded() {
+        Object recorder = buffer.record(new ListeningView());
+        assertTrue(recorder instanceof ITestView);
+        assertFalse(recorder instanceof Runnable);
+    }
+
+    @Test
+    public void commandsAreAppliedToTheCurrentView() {
+        buffer.record(view).show("a");
+        TestView reattached = new TestView();
+        buffer.setView(reattached);
+        buffer.runPosted();
+        assertTrue(view.calls.isEmpty());
+        assertEquals(Arrays.asList("show a"), reattached.calls);
+    }
+
+    @Test
+    public void detachingTheViewDropsPendingCommands() {
+        buffer.record(view).show("a");
+        buffer.setView(null);
+        assertEquals(0, buffer.size());
+        buffer.setView(view);
+        buffer.runPosted();
+        assertTrue(view.calls.isEmpty());
+    }
+
+    @Test
+    public void recorderIsReusedForTheSameView() {
+        assertSame(buffer.record(view), buffer.record(view));
+    }
+
+    interface ITestView extends MvpView {
+        @Conflate
+        void show(String text);
+        void add(String text);
+        String tag();
+    }
+
+    static class TestView implements ITestView {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void show(String text) {
+            calls.add("show " + text);
+        }
+
+        @Override
+        public void add(String text) {
+            calls.add("add " + text);
+        }
+
+        @Override
+        public String tag() {
+            return "tag";
+        }
+    }
+
+    static class ListeningView extends TestView implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    private static class TestBuffer extends ViewCommandBuffer<ITestView>
+    {
+        final List<Runnable> posted = new ArrayList<>();
+
+        TestBuffer() {
+            super(null);
+        }
+
+        void runPosted() {
+            while (!posted.isEmpty())
+                posted.remove(0).run();
+        }
+
+        @Override
+        void post(Runnable batch) {
+            posted.add(batch);
+        }
+    }
+}
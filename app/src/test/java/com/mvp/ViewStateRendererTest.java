@@ -0,0 +1,136 @@
+package com.mvp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, constants = com.mvp.BuildConfig.class)
+@RunWith(RobolectricTestRunner.class)
+public class ViewStateRendererTest
+{
+
+    private TestPresenter presenter;
+    private TestView view;
+
+    @Before
+    public void setUp() throws Exception {
+        presenter = new TestPresenter();
+        view = new TestView();
+        presenter.setView(view);
+    }
+
+    @Test
+    public void firstStateCallsAllViewMethods() {
+        presenter.setViewState(new State("a", 1));
+        assertEquals(Arrays.asList("title a", "count 1"), view.calls);
+    }
+
+    @Test
+    public void firstStateSkipsNullProperties() {
+        presenter.setViewState(new State(null, 1));
+        assertEquals(Arrays.asList("count 1"), view.calls);
+    }
+
+    @Test
+    public void onlyChangedPropertiesAreRendered() {
+        presenter.setViewState(new State("a", 1));
+        view.calls.clear();
+        presenter.setViewState(new State("a", 2));
+        presenter.setViewState(new State(new String("a"), 2));
+        assertEquals(Arrays.asList("count 2"), view.calls);
+    }
+
+    @Test
+    public void lastStateIsRenderedOnReattach() {
+        presenter.setViewState(new State("a", 1));
+        presenter.setView(null);
+        presenter.setViewState(new State("b", 1));
+        TestView reattached = new TestView();
+        presenter.setView(reattached);
+        assertEquals(Arrays.asList("title b", "count 1"), reattached.calls);
+        assertEquals(2, view.calls.size());
+    }
+
+    @Test
+    public void rendererIsLookedUpByStateClass() {
+        assertTrue(ViewStateRenderer.of(State.class) instanceof ViewStateRendererTest_StateRenderer);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingRendererFails() {
+        ViewStateRenderer.of(String.class);
+    }
+
+    interface ITestView extends MvpView {
+        void showTitle(String title);
+        void showCount(int count);
+    }
+
+    static class TestView implements ITestView {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void showTitle(String title) {
+            calls.add("title " + title);
+        }
+
+        @Override
+        public void showCount(int count) {
+            calls.add("count " + count);
+        }
+    }
+
+    static final class State {
+        private final String title;
+        private final int count;
+
+        State(String title, int count) {
+            this.title = title;
+            this.count = count;
+        }
+
+        String title() {
+            return title;
+        }
+
+        int count() {
+            return count;
+        }
+    }
+
+    private static class TestPresenter extends MvpPresenter<ITestView>
+    {
+        @Override
+        public void onViewAttached(ITestView view) { }
+
+        @Override
+        public void onViewReattached(ITestView view) { }
+
+        @Override
+        public void onViewDetached(ITestView view) { }
+    }
+}
+
+/**
+ * What the processor generates for {@link ViewStateRendererTest.State}.
+ */
+final class ViewStateRendererTest_StateRenderer extends ViewStateRenderer<ViewStateRendererTest.ITestView, ViewStateRendererTest.State> {
+    @Override
+    public void render(ViewStateRendererTest.ITestView view, ViewStateRendererTest.State previous, ViewStateRendererTest.State state) {
+        if (previous == null ? state.title() != null : changed(previous.title(), state.title())) {
+            view.showTitle(state.title());
+        }
+        if (previous == null || previous.count() != state.count()) {
+            view.showCount(state.count());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.mvp.annotation.processor;
 
 import com.mvp.annotation.BackgroundThread;
+import com.mvp.annotation.ConcurrentEventListener;
 import com.mvp.annotation.DelegateScope;
 import com.mvp.annotation.Event;
+import com.mvp.annotation.IntKeyedEventListener;
+import com.mvp.annotation.KeyedEventListener;
 import com.mvp.annotation.OnEventListener;
 import com.mvp.annotation.Presenter;
 import com.mvp.annotation.PresenterScope;
@@ -11,6 +14,7 @@ import com.mvp.annotation.ProvidesComponent;
 import com.mvp.annotation.UiThread;
 import com.mvp.annotation.View;
 import com.mvp.annotation.ViewEvent;
+import com.mvp.annotation.ViewState;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
@@ -37,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Generated;
 import javax.annotation.processing.AbstractProcessor;
@@ -54,6 +59,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -67,7 +73,11 @@ public class AnnotationProcessor extends AbstractProcessor
     public static final String CLASSNAME_DEPENDENCY_PROVIDER = "DependencyProvider";
     public static final String MEMBER_NEEDS_MODULES = "needsModules";
     public static final String MEMBER_NEEDS_COMPONENTS = "needsComponents";
-    static final ParameterizedTypeName IFACTORY_CLASS_NAME = ParameterizedTypeName.get(ClassName.get("com.mvp", "IFactory"), WildcardTypeName.subtypeOf(TypeName.OBJECT));
+    public static final String OPTION_TRACE = "mvp.trace";
+    static final String TRACER_CLASS_NAME = "com.mvp.Tracer";
+    static final String MAILBOX_POST = "com.mvp.MainThreadMailbox.post";
+    static final ClassName CONFLATER_CLASS_NAME = ClassName.get("com.mvp", "Conflater");
+    static final ClassName CHANNEL_QUEUE_CLASS_NAME = ClassName.get("com.mvp", "ChannelQueue");
     private static final String MEMBER_PRESENTER_CLASS = "presenter";
     private static ClassName APP_COMPAT_ACTIVITY;
     private static TypeMirror APP_COMPAT_ACTIVITY_TYPE;
@@ -88,6 +98,7 @@ public class AnnotationProcessor extends AbstractProcessor
 
     private boolean alreadyProcessed = false;
     private boolean shouldSkipAllRounds = false;
+    private boolean trace = false;
 
     @Override
     public synchronized void init(ProcessingEnvironment env)
@@ -95,6 +106,7 @@ public class AnnotationProcessor extends AbstractProcessor
         this.processingEnv = env;
         typeUtils = processingEnv.getTypeUtils();
         elementUtils = processingEnv.getElementUtils();
+        trace = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_TRACE));
     }
 
     @Override
@@ -108,6 +120,8 @@ public class AnnotationProcessor extends AbstractProcessor
         APP_COMPAT_ACTIVITY = ClassName.get("android.support.v7.app", "AppCompatActivity");
         APP_COMPAT_ACTIVITY_TYPE = elementUtils.getTypeElement("android.support.v7.app.AppCompatActivity").asType();
 
+        processViewStates(env);
+
         if (gangs == null)
             findGangs(env);
 
@@ -274,7 +288,6 @@ public class AnnotationProcessor extends AbstractProcessor
         if (!alreadyProcessed)
             generateCustomEventListenerClasses(env);
 
-        writeFactoryInterface();
         writeMethodsClass();
         processUiViewClasses(env);
 
@@ -371,6 +384,11 @@ public class AnnotationProcessor extends AbstractProcessor
                         allGeneratedEventListenerClasses.put(declaringType.asType().toString(), new ArrayList<String>());
                     }
                     Event eventAnnotation = method.getAnnotation(Event.class);
+                    if (isChannelEvent(method))
+                    {
+                        writeClass(buildChannelEventListenerClass(declaringType, method, eventAnnotation), "com.mvp");
+                        continue;
+                    }
                     String methodName = method.getSimpleName().toString();
                     TypeMirror parameterType = method.getParameters().get(0).asType();
                     TypeMirror returnType = method.getReturnType();
@@ -381,7 +399,7 @@ public class AnnotationProcessor extends AbstractProcessor
                         typeMirrorListMap.put(parameterType, new ArrayList<Interceptor>());
                     }
                     List<Interceptor> interceptorList = typeMirrorListMap.get(parameterType);
-                    Interceptor o = new Interceptor(methodName, parameterType, returnType, eventAnnotation.thread(), eventAnnotation.condition());
+                    Interceptor o = new Interceptor(methodName, parameterType, returnType, eventAnnotation.thread(), eventAnnotation.condition(), eventAnnotation.conflate());
                     if (!interceptorList.contains(o))
                     {
                         interceptorList.add(o);
@@ -401,10 +419,12 @@ public class AnnotationProcessor extends AbstractProcessor
                 TypeMirror dataClass = entry.getKey();
                 MethodSpec constructor = buildConstructor(className);
                 MethodSpec.Builder processEventBuilder = createProcessEventBuilder(dataClass);
-                MethodSpec onEventMethod = buildOnEventMethod(dataClass, null, processEventBuilder, ceptors, true);
+                List<TypeSpec> nestedTypes = new ArrayList<>();
+                List<MethodSpec> methods = new ArrayList<>();
+                MethodSpec onEventMethod = buildOnEventMethod(dataClass, className, null, processEventBuilder, nestedTypes, methods, ceptors, true);
                 MethodSpec onDestroyMethod = buildOnDestroyMethod();
                 MethodSpec processEventMethod = processEventBuilder.build();
-                TypeSpec c = buildOnEventListenerClass(ceptors.get(0), element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, convertDataClassToString(dataClass));
+                TypeSpec c = buildOnEventListenerClass(ceptors.get(0), element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, nestedTypes, methods, convertDataClassToString(dataClass), isConflating(ceptors));
                 writeClass(c, "com.mvp");
             }
         }
@@ -714,78 +734,72 @@ public class AnnotationProcessor extends AbstractProcessor
         }
     }
 
-    private void writeFactoryInterface()
-    {
-        TypeSpec factory = TypeSpec.interfaceBuilder("IFactory")
-                                   .addTypeVariable(TypeVariableName.get("T"))
-                                   .addMethod(
-                                           MethodSpec.methodBuilder("create")
-                                                     .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                                                     .addParameter(TypeVariableName.get("T"), "presenter")
-                                                     .addParameter(ClassName.get("android.os", "Handler"), "handler")
-                                                     .addParameter(ClassName.get(ExecutorService.class), "service")
-                                                     .returns(ParameterizedTypeName.get(ClassName.get(OnEventListener.class), WildcardTypeName.subtypeOf(TypeName.OBJECT)))
-                                                     .build()
-                                   ).build();
-        writeClass(factory, "com.mvp");
-    }
-
     private void writeMethodsClass()
     {
-        ClassName hashMapClass = ClassName.get(HashMap.class);
-        ClassName listClass = ClassName.get(ArrayList.class);
-        ClassName stringClass = ClassName.get("java.lang", "String");
-        ParameterizedTypeName iFactoryListClass = ParameterizedTypeName.get(listClass, IFACTORY_CLASS_NAME);
-        ParameterizedTypeName p = ParameterizedTypeName.get(hashMapClass, stringClass, iFactoryListClass);
-
-        TypeSpec.Builder builder = TypeSpec.classBuilder("MvpEventListener")
-                                           .addModifiers(Modifier.FINAL)
-                                           .addField(p, "METHODS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
-                                           .addStaticBlock(CodeBlock.of("METHODS = new HashMap<String, ArrayList<IFactory<?>>>();"));
-
+        ParameterizedTypeName classType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(TypeName.OBJECT));
         ParameterizedTypeName listOfOnEventListenersType = ParameterizedTypeName.get(ClassName.get(ArrayList.class), ParameterizedTypeName.get(ClassName.get(OnEventListener.class), WildcardTypeName.subtypeOf(TypeName.OBJECT)));
 
-        MethodSpec method = MethodSpec.methodBuilder("get")
-                                      .addParameter(stringClass, "clazz", Modifier.FINAL)
-                                      .addParameter(TypeName.OBJECT, "e")
-                                      .addParameter(ClassName.get("android.os", "Handler"), "handler")
-                                      .addParameter(ClassName.get(ExecutorService.class), "service")
-                                      .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
-                                      .addStatement("ArrayList<OnEventListener<?>> onEventListeners = new ArrayList<>();")
-                                      .addStatement("ArrayList<IFactory<?>> factories = METHODS.get(clazz);")
-                                      .beginControlFlow("if (factories != null)")
-                                      .beginControlFlow("for (IFactory factory : factories)")
-                                      .addCode(CodeBlock.of("onEventListeners.add((factory.create(e, handler, service)));"))
-                                      .endControlFlow()
-                                      .endControlFlow()
-                                      .addCode(CodeBlock.of("return onEventListeners;"))
-                                      .returns(listOfOnEventListenersType)
-                                      .build();
-
-
-        builder.addMethod(method);
+        MethodSpec.Builder method = MethodSpec.methodBuilder("get")
+                                              .addAnnotation(Override.class)
+                                              .addParameter(classType, "clazz")
+                                              .addParameter(TypeName.OBJECT, "e")
+                                              .addParameter(ClassName.get("android.os", "Handler"), "handler")
+                                              .addParameter(ClassName.get(ExecutorService.class), "service")
+                                              .addModifiers(Modifier.PUBLIC)
+                                              .returns(listOfOnEventListenersType)
+                                              .beginControlFlow("switch (clazz.getName())");
 
         for (Map.Entry<String, List<String>> entry : allGeneratedEventListenerClasses.entrySet())
         {
-
-            CodeBlock.Builder initializerBuilder = CodeBlock.builder();
-
-            initializerBuilder.add(CodeBlock.of("METHODS.put(\"" + entry.getKey() + "\", new ArrayList<$T>());\n", IFACTORY_CLASS_NAME));
-
-            for (String clazz : entry.getValue())
-            {
-                initializerBuilder.add("METHODS.get(\"" + entry.getKey() + "\").add(new " + clazz + ".Factory());\n");
-            }
-
-            builder.addStaticBlock(initializerBuilder.build());
+            String className = entry.getKey();
+            int typeArguments = className.indexOf('<');
+            if (typeArguments >= 0)
+                className = className.substring(0, typeArguments);
+            TypeElement typeElement = elementUtils.getTypeElement(className);
+            if (typeElement == null)
+                continue;
+            String holderClassName = typeElement.getSimpleName().toString() + "__EventListeners";
+            writeEventListenersHolderClass(holderClassName, ClassName.get(typeElement), entry.getValue(), listOfOnEventListenersType);
+            method.addStatement("case $S: return $L.create(e, handler, service)", elementUtils.getBinaryName(typeElement).toString(), holderClassName);
         }
 
-        TypeSpec c = builder.build();
+        method.addStatement("default: return new $T<>(0)", ArrayList.class)
+              .endControlFlow();
+
+        TypeSpec c = TypeSpec.classBuilder("MvpEventListener")
+                             .addModifiers(Modifier.FINAL)
+                             .addSuperinterface(ClassName.get("com.mvp", "EventListenerRegistry"))
+                             .addMethod(method.build())
+                             .build();
         writeClass(c, "com.mvp");
 
         allGeneratedEventListenerClasses.clear();
     }
 
+    private void writeEventListenersHolderClass(String holderClassName, ClassName ownerClass, List<String> eventListenerClasses,
+                                                ParameterizedTypeName listOfOnEventListenersType)
+    {
+        MethodSpec.Builder create = MethodSpec.methodBuilder("create")
+                                              .addModifiers(Modifier.STATIC)
+                                              .addParameter(TypeName.OBJECT, "e")
+                                              .addParameter(ClassName.get("android.os", "Handler"), "handler")
+                                              .addParameter(ClassName.get(ExecutorService.class), "service")
+                                              .returns(listOfOnEventListenersType)
+                                              .addStatement("$T onEventListeners = new $T<>($L)", listOfOnEventListenersType, ArrayList.class, eventListenerClasses.size());
+        for (String clazz : eventListenerClasses)
+        {
+            create.addStatement("onEventListeners.add(new $L(($T) e, handler, service))", clazz, ownerClass);
+        }
+        create.addStatement("return onEventListeners");
+
+        TypeSpec holder = TypeSpec.classBuilder(holderClassName)
+                                  .addModifiers(Modifier.FINAL)
+                                  .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                                  .addMethod(create.build())
+                                  .build();
+        writeClass(holder, "com.mvp");
+    }
+
     private void processPresenter(Element element, TypeMirror classType, List<TypeMirror> basePresenters, TypeMirror viewType)
     {
 
@@ -796,17 +810,21 @@ public class AnnotationProcessor extends AbstractProcessor
         List<Element> childElements = combineEnclosedElements(element, basePresenters);
         List<ExecutableElement> allMethods = combineAllDeclaredMethods(element);
 
-        ProxyInfo info = new ProxyInfo(classType, viewType, allMethods);
+        ProxyInfo info = new ProxyInfo(classType, viewType, allMethods, trace);
         TypeSpec t_ = info.processMethods(typeUtils);
         writeClass(t_, extractPackage(element.asType()));
 
+        List<ExecutableElement> channelEvents = new ArrayList<>();
         for (Element childElement : childElements)
         {
             Event eventAnnotation = childElement.getAnnotation(Event.class);
             if (childElement.getKind() == ElementKind.METHOD && eventAnnotation != null)
             {
                 ExecutableElement method = (ExecutableElement) childElement;
-                addInterceptors(eventAnnotation, method);
+                if (isChannelEvent(method))
+                    channelEvents.add(method);
+                else
+                    addInterceptors(eventAnnotation, method);
             }
         }
 
@@ -815,6 +833,11 @@ public class AnnotationProcessor extends AbstractProcessor
 
         allGeneratedEventListenerClasses.put(classType.toString(), new ArrayList<String>());
 
+        for (ExecutableElement method : channelEvents)
+        {
+            writeClass(buildChannelEventListenerClass((TypeElement) element, method, method.getAnnotation(Event.class)), "com.mvp");
+        }
+
         for (ViewEvent event : receivesEvent)
         {
 
@@ -841,10 +864,13 @@ public class AnnotationProcessor extends AbstractProcessor
             List<Interceptor> ceptors = this.interceptors.get(dataClass);
             MethodSpec constructor = buildConstructor(className);
             MethodSpec.Builder processEventBuilder = createProcessEventBuilder(dataClass);
-            MethodSpec onEventMethod = buildOnEventMethod(dataClass, viewMethodName, processEventBuilder, ceptors, declaredParameterAvailable);
+            List<TypeSpec> nestedTypes = new ArrayList<>();
+            List<MethodSpec> methods = new ArrayList<>();
+            MethodSpec onEventMethod = buildOnEventMethod(dataClass, className, viewMethodName, processEventBuilder, nestedTypes, methods, ceptors, declaredParameterAvailable);
             MethodSpec onDestroyMethod = buildOnDestroyMethod();
             MethodSpec processEventMethod = processEventBuilder.build();
-            TypeSpec c = buildOnEventListenerClass(null, element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, convertDataClassToString(dataClass));
+            Interceptor interceptor = ceptors != null && !ceptors.isEmpty() ? ceptors.get(0) : null;
+            TypeSpec c = buildOnEventListenerClass(interceptor, element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, nestedTypes, methods, convertDataClassToString(dataClass), isConflating(ceptors));
             writeClass(c, "com.mvp");
         }
 
@@ -854,10 +880,12 @@ public class AnnotationProcessor extends AbstractProcessor
             TypeMirror dataClass = entry.getKey();
             MethodSpec constructor = buildConstructor(className);
             MethodSpec.Builder processEventBuilder = createProcessEventBuilder(dataClass);
-            MethodSpec onEventMethod = buildOnEventMethod(dataClass, null, processEventBuilder, ceptors, true);
+            List<TypeSpec> nestedTypes = new ArrayList<>();
+            List<MethodSpec> methods = new ArrayList<>();
+            MethodSpec onEventMethod = buildOnEventMethod(dataClass, className, null, processEventBuilder, nestedTypes, methods, ceptors, true);
             MethodSpec onDestroyMethod = buildOnDestroyMethod();
             MethodSpec processEventMethod = processEventBuilder.build();
-            TypeSpec c = buildOnEventListenerClass(ceptors.get(0), element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, convertDataClassToString(dataClass));
+            TypeSpec c = buildOnEventListenerClass(ceptors.get(0), element, dataClass, className, constructor, onEventMethod, processEventMethod, onDestroyMethod, nestedTypes, methods, convertDataClassToString(dataClass), isConflating(ceptors));
             writeClass(c, "com.mvp");
         }
 
@@ -875,7 +903,7 @@ public class AnnotationProcessor extends AbstractProcessor
             interceptors.put(parameterType, new ArrayList<Interceptor>());
         }
         List<Interceptor> interceptorList = interceptors.get(parameterType);
-        Interceptor o = new Interceptor(methodName, parameterType, returnType, eventAnnotation.thread(), eventAnnotation.condition());
+        Interceptor o = new Interceptor(methodName, parameterType, returnType, eventAnnotation.thread(), eventAnnotation.condition(), eventAnnotation.conflate());
         if (!interceptorList.contains(o))
         {
             interceptorList.add(o);
@@ -1084,12 +1112,10 @@ public class AnnotationProcessor extends AbstractProcessor
 
     private MethodSpec.Builder createProcessEventBuilder(TypeMirror dataClass)
     {
-        ParameterizedTypeName targetType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(TypeName.OBJECT));
-        ArrayTypeName arrTargetType = ArrayTypeName.of(targetType);
         return MethodSpec.methodBuilder("processEvent")
                          .addModifiers(Modifier.PRIVATE)
-                         .addParameter(TypeName.get(dataClass), "data", Modifier.FINAL)
-                         .addParameter(arrTargetType, "target", Modifier.FINAL);
+                         .addParameter(TypeName.get(dataClass), "data")
+                         .addParameter(Runnable.class, "completion", Modifier.FINAL);
     }
 
     private MethodSpec buildOnDestroyMethod()
@@ -1100,14 +1126,32 @@ public class AnnotationProcessor extends AbstractProcessor
                          .addStatement("e.clear()")
                          .addStatement("handler.clear()")
                          .addStatement("service.clear()")
-                         .beginControlFlow("if (nextEventListener != null)")
-                         .addStatement("nextEventListener.onDestroy()")
-                         .endControlFlow()
-                         .addStatement("nextEventListener = null")
                          .returns(void.class)
                          .build();
     }
 
+    private void processViewStates(RoundEnvironment env)
+    {
+        for (Element element : env.getElementsAnnotatedWith(ViewState.class))
+        {
+            if (element.getKind() != ElementKind.CLASS)
+                continue;
+            TypeMirror viewClass = null;
+            try
+            {
+                element.getAnnotation(ViewState.class).value();
+            } catch (MirroredTypeException ex)
+            {
+                viewClass = ex.getTypeMirror();
+            }
+            TypeElement stateClass = (TypeElement) element;
+            ViewStateInfo info = new ViewStateInfo(stateClass, (TypeElement) typeUtils.asElement(viewClass));
+            TypeSpec renderer = info.build(elementUtils, processingEnv.getMessager());
+            if (renderer != null)
+                writeClass(renderer, elementUtils.getPackageOf(stateClass).getQualifiedName().toString());
+        }
+    }
+
     private void writeClass(TypeSpec clazz)
     {
         try
@@ -1137,7 +1181,8 @@ public class AnnotationProcessor extends AbstractProcessor
     private TypeSpec buildOnEventListenerClass(Interceptor interceptor, Element e, TypeMirror dataClass, TypeName className,
                                                MethodSpec constructor, MethodSpec onEventMethod,
                                                MethodSpec processEventMethod,
-                                               MethodSpec onDestroyMethod, String strDataClass)
+                                               MethodSpec onDestroyMethod, List<TypeSpec> nestedTypes, List<MethodSpec> methods,
+                                               String strDataClass, boolean conflate)
     {
 
         ParameterizedTypeName targetType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(TypeName.OBJECT));
@@ -1151,87 +1196,290 @@ public class AnnotationProcessor extends AbstractProcessor
             listOfClasses.add(clazz);
         }
 
-        String shouldConsumeEventCode = interceptor == null || interceptor.getEventCondition().equals("") ? "return true" : "return " + new EventConditionParser(elementUtils, typeUtils).parse((TypeElement) e, interceptor.getEventCondition(), dataClass);
+        EventConditionParser.Condition condition = interceptor == null ? null : new EventConditionParser(elementUtils, typeUtils).parse((TypeElement) e, interceptor.getEventCondition(), dataClass);
+        EventConditionParser.Key key = condition != null ? condition.getKey() : null;
+
+        MethodSpec.Builder shouldConsumeEventBuilder = MethodSpec.methodBuilder("shouldConsumeEvent")
+                                                                 .addParameter(ClassName.get(dataClass), "data")
+                                                                 .addAnnotation(Override.class)
+                                                                 .addModifiers(Modifier.PUBLIC)
+                                                                 .returns(boolean.class);
+        if (condition == null)
+        {
+            shouldConsumeEventBuilder.addStatement("return true");
+        } else
+        {
+            shouldConsumeEventBuilder.addStatement("$T presenter = e.get()", className)
+                                     .addStatement("return presenter != null && ($L)", condition.toJava("presenter"));
+        }
 
         ParameterizedTypeName fieldTypeEventListener = ParameterizedTypeName.get(ClassName.get(WeakReference.class), className);
         ParameterizedTypeName fieldTypeHandler = ParameterizedTypeName.get(ClassName.get(WeakReference.class), ClassName.get("android.os", "Handler"));
         ParameterizedTypeName fieldTypeService = ParameterizedTypeName.get(ClassName.get(WeakReference.class), ClassName.get(ExecutorService.class));
-        ParameterizedTypeName fieldTypenextEventListener = ParameterizedTypeName.get(ClassName.get(OnEventListener.class), TypeName.get(dataClass));
-        return TypeSpec.classBuilder(clazz)
+        TypeSpec.Builder builder = TypeSpec.classBuilder(clazz)
                        .addModifiers(Modifier.FINAL)
-                       .addSuperinterface(ParameterizedTypeName.get(ClassName.get(OnEventListener.class), TypeName.get(dataClass)))
+                       .addSuperinterface(ParameterizedTypeName.get(ClassName.get(ConcurrentEventListener.class), TypeName.get(dataClass)))
                        .addField(fieldTypeEventListener, "e", Modifier.PRIVATE, Modifier.FINAL)
                        .addField(fieldTypeHandler, "handler", Modifier.PRIVATE, Modifier.FINAL)
                        .addField(fieldTypeService, "service", Modifier.PRIVATE, Modifier.FINAL)
-                       .addField(fieldTypenextEventListener, "nextEventListener", Modifier.PRIVATE)
+                       .addField(targetType, "targetClass", Modifier.PRIVATE, Modifier.FINAL);
+        if (conflate)
+        {
+            ParameterizedTypeName fieldTypeConflater = ParameterizedTypeName.get(CONFLATER_CLASS_NAME, TypeName.get(dataClass));
+            TypeSpec conflater = TypeSpec.anonymousClassBuilder("")
+                                         .superclass(fieldTypeConflater)
+                                         .addMethod(MethodSpec.methodBuilder("deliver")
+                                                              .addAnnotation(Override.class)
+                                                              .addModifiers(Modifier.PROTECTED)
+                                                              .addParameter(TypeName.get(dataClass), "data")
+                                                              .addParameter(arrTargetType, "target")
+                                                              .addStatement("processEvent(data, null)")
+                                                              .returns(void.class)
+                                                              .build())
+                                         .build();
+            builder.addField(FieldSpec.builder(fieldTypeConflater, "conflater", Modifier.PRIVATE, Modifier.FINAL)
+                                      .initializer("$L", conflater)
+                                      .build());
+        }
+        if (key != null && key.isInt())
+        {
+            builder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(IntKeyedEventListener.class), TypeName.get(dataClass)));
+            constructor = constructor.toBuilder()
+                                     .addStatement("this.key = $L", key.presenterKeyToJava("e"))
+                                     .build();
+            builder.addField(TypeName.INT, "key", Modifier.PRIVATE, Modifier.FINAL)
+                   .addMethod(MethodSpec.methodBuilder("getKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addStatement("return key")
+                                        .returns(TypeName.OBJECT)
+                                        .build())
+                   .addMethod(MethodSpec.methodBuilder("getIntKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addStatement("return key")
+                                        .returns(TypeName.INT)
+                                        .build())
+                   .addMethod(MethodSpec.methodBuilder("extractKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(ClassName.get(dataClass), "data")
+                                        .addStatement("return extractIntKey(data)")
+                                        .returns(TypeName.OBJECT)
+                                        .build())
+                   .addMethod(MethodSpec.methodBuilder("extractIntKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(ClassName.get(dataClass), "data")
+                                        .addStatement("return $L", key.eventKeyToJava())
+                                        .returns(TypeName.INT)
+                                        .build());
+        }
+        else if (key != null)
+        {
+            builder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(KeyedEventListener.class), TypeName.get(dataClass)));
+            constructor = constructor.toBuilder()
+                                     .addStatement("this.key = $L", key.presenterKeyToJava("e"))
+                                     .build();
+            builder.addField(TypeName.OBJECT, "key", Modifier.PRIVATE, Modifier.FINAL)
+                   .addMethod(MethodSpec.methodBuilder("getKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addStatement("return key")
+                                        .returns(TypeName.OBJECT)
+                                        .build())
+                   .addMethod(MethodSpec.methodBuilder("extractKey")
+                                        .addAnnotation(Override.class)
+                                        .addModifiers(Modifier.PUBLIC)
+                                        .addParameter(ClassName.get(dataClass), "data")
+                                        .addStatement("return $L", key.eventKeyToJava())
+                                        .returns(TypeName.OBJECT)
+                                        .build());
+        }
+        return builder
+                       .addTypes(nestedTypes)
                        .addMethod(constructor)
                        .addMethod(onEventMethod)
+                       .addMethods(methods)
                        .addMethod(processEventMethod)
                        .addMethod(onDestroyMethod)
-                       .addMethod(MethodSpec.methodBuilder("setNext")
-                                            .addAnnotation(Override.class)
+                       .addMethod(shouldConsumeEventBuilder.build())
+                       .addMethod(MethodSpec.methodBuilder("getDataClass")
                                             .addModifiers(Modifier.PUBLIC)
-                                            .addParameter(TypeName.OBJECT, "nextEventListener")
-                                            .addStatement("this.nextEventListener = (" + fieldTypenextEventListener.toString() + ")nextEventListener")
-                                            .returns(TypeName.get(void.class))
-                                            .build())
-                       .addMethod(MethodSpec.methodBuilder("hasNext")
                                             .addAnnotation(Override.class)
+                                            .addCode(CodeBlock.of("return $T.class;", TypeName.get(dataClass)))
+                                            .returns(ParameterizedTypeName.get(ClassName.get(Class.class), TypeName.get(dataClass)))
+                                            .build()
+                       )
+                       .addMethod(MethodSpec.methodBuilder("getTargetClass")
                                             .addModifiers(Modifier.PUBLIC)
-                                            .addStatement("return this.nextEventListener != null")
-                                            .returns(TypeName.get(boolean.class))
-                                            .build())
-                       .addMethod(MethodSpec.methodBuilder("getNext")
                                             .addAnnotation(Override.class)
-                                            .addModifiers(Modifier.PUBLIC)
-                                            .addStatement("return this.nextEventListener")
-                                            .returns(fieldTypenextEventListener)
+                                            .addStatement("return targetClass")
+                                            .returns(targetType)
+                                            .build())
+                       .addMethod(MethodSpec.methodBuilder("isTarget")
+                                            .addModifiers(Modifier.PRIVATE)
+                                            .addParameter(arrTargetType, "target")
+                                            .beginControlFlow("for (Class<?> clazz : target)")
+                                            .beginControlFlow("if (clazz.isAssignableFrom(targetClass))")
+                                            .addStatement("return true")
+                                            .endControlFlow()
+                                            .endControlFlow()
+                                            .addStatement("return false")
+                                            .returns(TypeName.BOOLEAN)
                                             .build())
-                       .addMethod(MethodSpec.methodBuilder("clearNext")
+                       .build();
+    }
+
+    private boolean isChannelEvent(ExecutableElement method)
+    {
+        TypeKind kind = method.getParameters().get(0).asType().getKind();
+        if (!kind.isPrimitive())
+            return false;
+        if (kind != TypeKind.INT && kind != TypeKind.LONG && kind != TypeKind.DOUBLE)
+            throw new IllegalStateException(String.format("@Event method \"%s\" in %s: only int, long and double parameters have channels",
+                    method.getSimpleName(), method.getEnclosingElement()));
+        return true;
+    }
+
+    /**
+     * Generates the listener of one {@code @Event} method with an int, long or double parameter. It
+     * receives values of its channel unboxed and calls the method right away if it is already on the
+     * right thread. Otherwise it queues the value in a {@code com.mvp.ChannelQueue} and enqueues
+     * itself, at most once at a time, so a burst of values costs a single hop and every value is
+     * delivered. With {@code conflate} it only keeps the latest value in a field instead.
+     */
+    private TypeSpec buildChannelEventListenerClass(TypeElement e, ExecutableElement method, Event eventAnnotation)
+    {
+        TypeMirror valueType = method.getParameters().get(0).asType();
+        TypeName value = TypeName.get(valueType);
+        String kind = value.toString().substring(0, 1).toUpperCase() + value.toString().substring(1);
+        TypeName className = ClassName.get(e.asType());
+        String methodName = method.getSimpleName().toString();
+        String clazz = e.getSimpleName().toString() + "__" + kind + "EventDelegate__" + methodName;
+        List<String> listOfClasses = allGeneratedEventListenerClasses.get(e.asType().toString());
+        if (!listOfClasses.contains(clazz))
+            listOfClasses.add(clazz);
+
+        ParameterizedTypeName targetType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(TypeName.OBJECT));
+        ArrayTypeName arrTargetType = ArrayTypeName.of(targetType);
+        ClassName looperType = ClassName.get("android.os", "Looper");
+        EventConditionParser.Condition condition = new EventConditionParser(elementUtils, typeUtils).parse(e, eventAnnotation.condition(), valueType);
+        boolean background = eventAnnotation.thread().equals(Event.BACKGROUND_THREAD);
+        boolean conflate = eventAnnotation.conflate();
+        String hop = background
+                ? "service.get().execute(" + traced("HOP_BACKGROUND", methodName, "this") + ")"
+                : MAILBOX_POST + "(handler.get(), e.get(), " + traced("HOP_UI", methodName, "this") + ")";
+
+        MethodSpec.Builder consumes = MethodSpec.methodBuilder("consumes")
+                                                .addModifiers(Modifier.PRIVATE)
+                                                .addParameter(value, "data")
+                                                .returns(boolean.class);
+        if (condition == null)
+            consumes.addStatement("return true");
+        else
+            consumes.addStatement("$T presenter = e.get()", className)
+                    .addStatement("return presenter != null && ($L)", condition.toJava("presenter"));
+
+        MethodSpec.Builder onValue = MethodSpec.methodBuilder("on" + kind + "Event")
+                                               .addAnnotation(Override.class)
+                                               .addModifiers(Modifier.PUBLIC)
+                                               .addParameter(value, "data")
+                                               .beginControlFlow("if (!consumes(data))")
+                                               .addStatement("return")
+                                               .endControlFlow()
+                                               .beginControlFlow("if ($T.myLooper() $L $T.getMainLooper())", looperType, background ? "!=" : "==", looperType)
+                                               .addStatement("processEvent(data)");
+        MethodSpec.Builder run = MethodSpec.methodBuilder("run")
+                                           .addAnnotation(Override.class)
+                                           .addModifiers(Modifier.PUBLIC)
+                                           .returns(void.class);
+        TypeSpec.Builder builder = TypeSpec.classBuilder(clazz);
+        if (conflate)
+        {
+            onValue.nextControlFlow("else")
+                   .addStatement("pending = data")
+                   .beginControlFlow("if (scheduled.compareAndSet(false, true))")
+                   .addStatement(hop)
+                   .endControlFlow();
+            run.addStatement("scheduled.set(false)")
+               .addStatement("processEvent(pending)");
+            builder.addField(FieldSpec.builder(AtomicBoolean.class, "scheduled", Modifier.PRIVATE, Modifier.FINAL)
+                                      .initializer("new $T()", AtomicBoolean.class)
+                                      .build())
+                   .addField(value, "pending", Modifier.PRIVATE, Modifier.VOLATILE);
+        } else
+        {
+            String encoded = value.equals(TypeName.DOUBLE) ? "Double.doubleToRawLongBits(data)" : "data";
+            String decoded = value.equals(TypeName.DOUBLE) ? "Double.longBitsToDouble(queue.next())"
+                    : value.equals(TypeName.INT) ? "(int) queue.next()" : "queue.next()";
+            onValue.nextControlFlow("else if (queue.offer($L))", encoded)
+                   .addStatement(hop);
+            run.beginControlFlow("while (queue.hasNext())")
+               .addStatement("processEvent($L)", decoded)
+               .endControlFlow();
+            builder.addField(FieldSpec.builder(CHANNEL_QUEUE_CLASS_NAME, "queue", Modifier.PRIVATE, Modifier.FINAL)
+                                      .initializer("new $T()", CHANNEL_QUEUE_CLASS_NAME)
+                                      .build());
+        }
+        onValue.endControlFlow()
+               .returns(void.class);
+
+        return builder
+                       .addModifiers(Modifier.FINAL)
+                       .addSuperinterface(ClassName.get("com.mvp.annotation", kind + "EventListener"))
+                       .addSuperinterface(Runnable.class)
+                       .addField(ParameterizedTypeName.get(ClassName.get(WeakReference.class), className), "e", Modifier.PRIVATE, Modifier.FINAL)
+                       .addField(ParameterizedTypeName.get(ClassName.get(WeakReference.class), ClassName.get("android.os", "Handler")), "handler", Modifier.PRIVATE, Modifier.FINAL)
+                       .addField(ParameterizedTypeName.get(ClassName.get(WeakReference.class), ClassName.get(ExecutorService.class)), "service", Modifier.PRIVATE, Modifier.FINAL)
+                       .addField(targetType, "targetClass", Modifier.PRIVATE, Modifier.FINAL)
+                       .addMethod(buildConstructor(className))
+                       .addMethod(onValue.build())
+                       .addMethod(run.build())
+                       .addMethod(MethodSpec.methodBuilder("processEvent")
+                                            .addModifiers(Modifier.PRIVATE)
+                                            .addParameter(value, "data")
+                                            .addStatement("$T presenter = e.get()", className)
+                                            .beginControlFlow("if (presenter != null)")
+                                            .addStatement("presenter.$L(data)", methodName)
+                                            .endControlFlow()
+                                            .returns(void.class)
+                                            .build())
+                       .addMethod(consumes.build())
+                       .addMethod(MethodSpec.methodBuilder("onEvent")
                                             .addAnnotation(Override.class)
                                             .addModifiers(Modifier.PUBLIC)
-                                            .addStatement("this.nextEventListener = null")
+                                            .addParameter(value.box(), "data")
+                                            .addParameter(arrTargetType, "target")
+                                            .addStatement("on$LEvent(data)", kind)
                                             .returns(void.class)
                                             .build())
+                       .addMethod(buildOnDestroyMethod())
                        .addMethod(MethodSpec.methodBuilder("shouldConsumeEvent")
-                                            .addParameter(ClassName.get(dataClass), "data")
                                             .addAnnotation(Override.class)
                                             .addModifiers(Modifier.PUBLIC)
-                                            .addStatement(shouldConsumeEventCode)
+                                            .addParameter(value.box(), "data")
+                                            .addStatement("return consumes(data)")
                                             .returns(boolean.class)
                                             .build())
                        .addMethod(MethodSpec.methodBuilder("getDataClass")
+                                            .addAnnotation(Override.class)
                                             .addModifiers(Modifier.PUBLIC)
+                                            .addStatement("return $T.class", value)
+                                            .returns(ParameterizedTypeName.get(ClassName.get(Class.class), value.box()))
+                                            .build())
+                       .addMethod(MethodSpec.methodBuilder("getTargetClass")
                                             .addAnnotation(Override.class)
-                                            .addCode(CodeBlock.of("return $T.class;", TypeName.get(dataClass)))
-                                            .returns(ParameterizedTypeName.get(ClassName.get(Class.class), TypeName.get(dataClass)))
-                                            .build()
-                       )
-                       .addMethod(MethodSpec.methodBuilder("isTarget")
-                                            .addModifiers(Modifier.PRIVATE)
-                                            .addParameter(arrTargetType, "target")
-                                            .addStatement("Class<?> presenterClass = this.e.get().getClass()")
-                                            .beginControlFlow("for (Class<?> clazz : target)")
-                                            .beginControlFlow("if (clazz.isAssignableFrom(presenterClass))")
-                                            .addStatement("return true")
-                                            .endControlFlow()
-                                            .endControlFlow()
-                                            .addStatement("return false")
-                                            .returns(TypeName.BOOLEAN)
+                                            .addModifiers(Modifier.PUBLIC)
+                                            .addStatement("return targetClass")
+                                            .returns(targetType)
+                                            .build())
+                       .addMethod(MethodSpec.methodBuilder("getChannel")
+                                            .addAnnotation(Override.class)
+                                            .addModifiers(Modifier.PUBLIC)
+                                            .addStatement("return $S", eventAnnotation.channel())
+                                            .returns(String.class)
                                             .build())
-                       .addType(TypeSpec.classBuilder("Factory")
-                                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                                        .addSuperinterface(ParameterizedTypeName.get(IFACTORY_CLASS_NAME.rawType, className))
-                                        .addMethod(MethodSpec.methodBuilder("create")
-                                                             .addAnnotation(Override.class)
-                                                             .addModifiers(Modifier.PUBLIC)
-                                                             .addParameter(ClassName.get(e.asType()), "e")
-                                                             .addParameter(ClassName.get("android.os", "Handler"), "handler")
-                                                             .addParameter(ClassName.get(ExecutorService.class), "service")
-                                                             .addCode(CodeBlock.of("return new " + clazz + "(e, handler, service);"))
-                                                             .returns(ParameterizedTypeName.get(ClassName.get(OnEventListener.class), WildcardTypeName.subtypeOf(TypeName.OBJECT)))
-                                                             .build())
-                                        .build())
                        .build();
     }
 
@@ -1242,7 +1490,9 @@ public class AnnotationProcessor extends AbstractProcessor
         return s.substring(index + 1);
     }
 
-    private MethodSpec buildOnEventMethod(TypeMirror dataClass, String viewMethodName, MethodSpec.Builder processEventBuilder, List<Interceptor> interceptors, boolean declaredParameterAvailable)
+    private MethodSpec buildOnEventMethod(TypeMirror dataClass, TypeName className, String viewMethodName, MethodSpec.Builder processEventBuilder,
+                                          List<TypeSpec> nestedTypes, List<MethodSpec> methods, List<Interceptor> interceptors,
+                                          boolean declaredParameterAvailable)
     {
 
         ParameterizedTypeName targetType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(TypeName.OBJECT));
@@ -1254,134 +1504,240 @@ public class AnnotationProcessor extends AbstractProcessor
                                                .addParameter(TypeName.get(dataClass), "data", Modifier.FINAL)
                                                .addParameter(arrTargetType, "target", Modifier.FINAL);
 
-        processEventBuilder.beginControlFlow("if (e.get() != null)");
-
-        String finalStatement = "%s";
-
-        List<Interceptor> usedInterceptors = new ArrayList<>();
-
         builder.beginControlFlow("if (shouldConsumeEvent(data) && (target == null || isTarget(target)))");
 
-        if (interceptors != null && !interceptors.isEmpty())
-        {
+        boolean conflate = isConflating(interceptors);
+        String firstThreadType = Event.UI_THREAD;
+        List<String> stepThreadTypes = new ArrayList<>();
+        List<List<String>> steps = new ArrayList<>();
 
-            for (int i = 0; i < interceptors.size(); i++)
+        if (interceptors != null)
+        {
+            for (Interceptor interceptor : interceptors)
             {
-                Interceptor interceptor = interceptors.get(i);
-                Interceptor previousInterceptor = null;
-                if (i - 1 >= 0)
-                    previousInterceptor = interceptors.get(i - 1);
-
+                if (!interceptor.getParameterType().equals(dataClass))
+                    continue;
                 String statement;
+                if (interceptor.getReturnType().equals(dataClass))
+                    statement = "data = presenter." + interceptor.getMethodName() + "(data)";
+                else
+                    statement = "presenter." + interceptor.getMethodName() + "(data)";
+                if (steps.isEmpty())
+                    firstThreadType = interceptor.getThreadType();
+                addStep(steps, stepThreadTypes, interceptor.getThreadType(), statement);
+            }
+        }
 
-                if (interceptor.getParameterType().equals(dataClass))
-                {
-                    if (interceptor.getReturnType().equals(dataClass))
-                    {
-                        statement = "data = e.get()." + interceptor.getMethodName() + "(data);";
-                    } else
-                    {
-                        statement = "e.get()." + interceptor.getMethodName() + "(data);";
-                    }
-                    if (previousInterceptor == null)
-                    {
-                        if (interceptor.getThreadType().equals(Event.BACKGROUND_THREAD))
-                        {
-                            ensureBackgroundThread(builder);
-                        } else
-                        {
-                            ensureUiThread(builder);
-                        }
-                        finalStatement = String.format(finalStatement, addStatement(statement));
-                    } else if (previousInterceptor.getThreadType().equals(interceptor.getThreadType()))
-                    {
-                        finalStatement = String.format(finalStatement, addStatement(statement));
-                    } else if (previousInterceptor.getThreadType().equals(Event.BACKGROUND_THREAD))
-                    {
-                        finalStatement = String.format(finalStatement, addUiStatement(statement));
-                    } else
-                    {
-                        finalStatement = String.format(finalStatement, addBackgroundStatement(statement));
-                    }
-                    usedInterceptors.add(interceptor);
-                }
+        if (viewMethodName != null)
+            addStep(steps, stepThreadTypes, Event.UI_THREAD, "presenter.getView()." + viewMethodName + (declaredParameterAvailable ? "(data)" : "()"));
 
-            }
+        boolean continuation = steps.size() > 1;
+        String runnable = continuation ? "new Continuation(data, null)" : "new Runnable(){ @Override public void run() { processEvent(data, null); } }";
 
-        } else
-        {
-            ensureUiThread(builder);
-        }
+        if (conflate)
+            ensureConflated(builder, firstThreadType, dataClass.toString());
+        else if (firstThreadType.equals(Event.BACKGROUND_THREAD))
+            ensureBackgroundThread(builder, dataClass.toString(), runnable);
+        else
+            ensureUiThread(builder, dataClass.toString(), runnable);
 
-        builder.nextControlFlow("else");
-        builder.addStatement(addCallNextEventListenerStatement());
         builder.endControlFlow();
 
-        if (viewMethodName != null)
+        if (continuation)
         {
-            String statement = "e.get().getView()." + viewMethodName + (declaredParameterAvailable ? "(data);" : "();");
-            if (interceptors != null && !interceptors.isEmpty())
-            {
-                String threadType = interceptors.get(interceptors.size() - 1).getThreadType();
-                if (threadType.equals(Event.UI_THREAD))
-                    finalStatement = String.format(finalStatement, addStatement(statement));
-                else
-                    finalStatement = String.format(finalStatement, addUiStatement(statement));
-            } else
+            processEventBuilder.addStatement("new Continuation(data, completion).run()");
+            nestedTypes.add(buildContinuation(dataClass, className, steps, stepThreadTypes));
+        } else
+        {
+            processEventBuilder.beginControlFlow("try");
+            processEventBuilder.addStatement("$T presenter = e.get()", className);
+            processEventBuilder.beginControlFlow("if (presenter != null)");
+            if (!steps.isEmpty())
             {
-                finalStatement = String.format(finalStatement, addStatement(statement));
+                for (String statement : steps.get(0))
+                    processEventBuilder.addStatement(statement);
             }
+            processEventBuilder.endControlFlow();
+            processEventBuilder.nextControlFlow("finally");
+            processEventBuilder.addStatement("if (completion != null) completion.run()");
+            processEventBuilder.endControlFlow();
         }
 
-        finalStatement = String.format(finalStatement, addCallNextEventListenerStatement());
-        finalStatement = finalStatement.replace("%s", "");
-        processEventBuilder.addStatement(finalStatement);
+        methods.add(buildOnEventConcurrentlyMethod(dataClass, firstThreadType, continuation, conflate));
 
-        processEventBuilder.endControlFlow();
+        return builder.returns(void.class).build();
+    }
 
+    /**
+     * Fan-out delivery: the work of this listener is always enqueued on the thread of its first
+     * step and reports back through {@code completion}.
+     * A conflating listener is finished as soon as it took the event over.
+     */
+    private MethodSpec buildOnEventConcurrentlyMethod(TypeMirror dataClass, String firstThreadType, boolean continuation, boolean conflate)
+    {
+        String traceName = dataClass.toString();
+        boolean background = firstThreadType.equals(Event.BACKGROUND_THREAD);
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("onEventConcurrently")
+                                               .addAnnotation(Override.class)
+                                               .addModifiers(Modifier.PUBLIC)
+                                               .addParameter(TypeName.get(dataClass), "data", Modifier.FINAL)
+                                               .addParameter(Runnable.class, "completion", Modifier.FINAL)
+                                               .beginControlFlow("if (!shouldConsumeEvent(data))")
+                                               .addStatement("completion.run()")
+                                               .addStatement("return")
+                                               .endControlFlow();
+        String runnable;
+        if (conflate)
+        {
+            builder.beginControlFlow("if (conflater.offer(data, null))");
+            runnable = "conflater";
+        } else if (continuation)
+            runnable = "new Continuation(data, completion)";
+        else
+            runnable = "new Runnable(){ @Override public void run() { processEvent(data, completion); } }";
+
+        if (background)
+            builder.addStatement("service.get().submit(" + traced("HOP_BACKGROUND", traceName, runnable) + ")");
+        else
+            builder.addStatement(MAILBOX_POST + "(handler.get(), e.get(), " + traced("HOP_UI", traceName, runnable) + ")");
+
+        if (conflate)
+            builder.endControlFlow()
+                   .addStatement("completion.run()");
         return builder.returns(void.class).build();
     }
 
-    private String addCallNextEventListenerStatement()
+    private void addStep(List<List<String>> steps, List<String> stepThreadTypes, String threadType, String statement)
     {
-        return "if (nextEventListener != null) nextEventListener.onEvent(data, target);";
+        if (steps.isEmpty() || !stepThreadTypes.get(stepThreadTypes.size() - 1).equals(threadType))
+        {
+            steps.add(new ArrayList<String>());
+            stepThreadTypes.add(threadType);
+        }
+        steps.get(steps.size() - 1).add(statement);
     }
 
-    private String addUiStatement(String statement)
+    /**
+     * Runs the interceptor chain of one event in steps, one step per thread. At the end of a step
+     * the continuation enqueues itself on the thread of the next step, so the whole chain only
+     * allocates this one object.
+     */
+    private TypeSpec buildContinuation(TypeMirror dataClass, TypeName className, List<List<String>> steps, List<String> stepThreadTypes)
     {
-        return "handler.get().post(new Runnable(){ @Override public void run() { " + statement + ";%s\n } });";
+        String traceName = dataClass.toString();
+
+        MethodSpec.Builder run = MethodSpec.methodBuilder("run")
+                                           .addAnnotation(Override.class)
+                                           .addModifiers(Modifier.PUBLIC)
+                                           .returns(void.class)
+                                           .addStatement("boolean finished = true")
+                                           .beginControlFlow("try")
+                                           .addStatement("$T presenter = e.get()", className)
+                                           .beginControlFlow("if (presenter == null)")
+                                           .addStatement("return")
+                                           .endControlFlow()
+                                           .beginControlFlow("switch (step)");
+        for (int i = 0; i < steps.size(); i++)
+        {
+            boolean last = i == steps.size() - 1;
+            run.addCode(last ? "default:\n" : "case $L:\n", i);
+            run.addCode("$>");
+            for (String statement : steps.get(i))
+                run.addStatement(statement);
+            if (!last)
+            {
+                run.addStatement("step = $L", i + 1);
+                if (stepThreadTypes.get(i + 1).equals(Event.BACKGROUND_THREAD))
+                    run.addStatement("service.get().submit(" + traced("HOP_BACKGROUND", traceName, "this") + ")");
+                else
+                    run.addStatement(MAILBOX_POST + "(handler.get(), presenter, " + traced("HOP_UI", traceName, "this") + ")");
+                run.addStatement("finished = false");
+                run.addStatement("return");
+            }
+            run.addCode("$<");
+        }
+        run.endControlFlow()
+           .nextControlFlow("finally")
+           .addStatement("if (finished && completion != null) completion.run()")
+           .endControlFlow();
+
+        return TypeSpec.classBuilder("Continuation")
+                       .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                       .addSuperinterface(Runnable.class)
+                       .addField(TypeName.get(dataClass), "data", Modifier.PRIVATE)
+                       .addField(Runnable.class, "completion", Modifier.PRIVATE, Modifier.FINAL)
+                       .addField(TypeName.INT, "step", Modifier.PRIVATE)
+                       .addMethod(MethodSpec.constructorBuilder()
+                                            .addParameter(TypeName.get(dataClass), "data")
+                                            .addParameter(Runnable.class, "completion")
+                                            .addStatement("this.data = data")
+                                            .addStatement("this.completion = completion")
+                                            .build())
+                       .addMethod(run.build())
+                       .build();
     }
 
-    private String addBackgroundStatement(String statement)
+    private boolean isConflating(List<Interceptor> interceptors)
     {
-        return "service.get().submit(new Runnable(){ @Override public void run() { " + statement + ";\n%s\n } });";
+        if (interceptors == null)
+            return false;
+        for (Interceptor interceptor : interceptors)
+        {
+            if (interceptor.isConflating())
+                return true;
+        }
+        return false;
     }
 
-    private String addStatement(String statement)
+    private String traced(String category, String traceName, String runnable)
     {
-        return statement + ";\n%s";
+        if (!trace)
+            return runnable;
+        return TRACER_CLASS_NAME + ".wrap(" + TRACER_CLASS_NAME + "." + category + ", \"" + traceName + "\", " + runnable + ")";
     }
 
-    private void ensureBackgroundThread(MethodSpec.Builder builder)
+    private void ensureBackgroundThread(MethodSpec.Builder builder, String traceName, String runnable)
     {
         ClassName looperType = ClassName.get("android.os", "Looper");
         builder.beginControlFlow("if ($T.myLooper() == $T.getMainLooper())", looperType, looperType)
-               .addStatement("service.get().submit(new Runnable(){ @Override public void run() { processEvent(data, target); } })")
+               .addStatement("service.get().submit(" + traced("HOP_BACKGROUND", traceName, runnable) + ")")
                .nextControlFlow("else")
-               .addStatement("processEvent(data, target)")
+               .addStatement("processEvent(data, null)")
                .endControlFlow();
     }
 
-    private void ensureUiThread(MethodSpec.Builder builder)
+    private void ensureUiThread(MethodSpec.Builder builder, String traceName, String runnable)
     {
         ClassName looperType = ClassName.get("android.os", "Looper");
         builder.beginControlFlow("if ($T.myLooper() == $T.getMainLooper())", looperType, looperType)
-               .addStatement("processEvent(data, target)")
+               .addStatement("processEvent(data, null)")
                .nextControlFlow("else")
-               .addStatement("handler.get().post(new Runnable(){ @Override public void run() { processEvent(data, target); } })")
+               .addStatement(MAILBOX_POST + "(handler.get(), e.get(), " + traced("HOP_UI", traceName, runnable) + ")")
                .endControlFlow();
     }
 
+    private void ensureConflated(MethodSpec.Builder builder, String threadType, String traceName)
+    {
+        ClassName looperType = ClassName.get("android.os", "Looper");
+        builder.beginControlFlow("if (conflater.offer(data, target))");
+        if (threadType.equals(Event.BACKGROUND_THREAD))
+        {
+            builder.beginControlFlow("if ($T.myLooper() == $T.getMainLooper())", looperType, looperType)
+                   .addStatement("service.get().submit(" + traced("HOP_BACKGROUND", traceName, "conflater") + ")")
+                   .nextControlFlow("else")
+                   .addStatement("conflater.run()")
+                   .endControlFlow();
+        } else
+        {
+            builder.beginControlFlow("if ($T.myLooper() == $T.getMainLooper())", looperType, looperType)
+                   .addStatement("conflater.run()")
+                   .nextControlFlow("else")
+                   .addStatement(MAILBOX_POST + "(handler.get(), e.get(), " + traced("HOP_UI", traceName, "conflater") + ")")
+                   .endControlFlow();
+        }
+        builder.endControlFlow();
+    }
+
     private MethodSpec buildConstructor(TypeName className)
     {
         return MethodSpec.constructorBuilder()
@@ -1392,6 +1748,7 @@ public class AnnotationProcessor extends AbstractProcessor
                          .addStatement("this.e = new WeakReference<>(e)")
                          .addStatement("this.handler = new WeakReference<>(handler)")
                          .addStatement("this.service = new WeakReference<>(service)")
+                         .addStatement("this.targetClass = e.getClass()")
                          .build();
     }
 
@@ -1416,9 +1773,16 @@ public class AnnotationProcessor extends AbstractProcessor
         supportedAnnotations.add(View.class.getCanonicalName());
         supportedAnnotations.add(Provider.class.getCanonicalName());
         supportedAnnotations.add(Generated.class.getCanonicalName());
+        supportedAnnotations.add(ViewState.class.getCanonicalName());
         return supportedAnnotations;
     }
 
+    @Override
+    public Set<String> getSupportedOptions()
+    {
+        return Collections.singleton(OPTION_TRACE);
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion()
     {
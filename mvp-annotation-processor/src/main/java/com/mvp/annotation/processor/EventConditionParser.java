@@ -1,8 +1,7 @@
 package com.mvp.annotation.processor;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
@@ -10,119 +9,345 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 /**
  * Created by Andy on 28.12.2016.
+ * <p>
+ * Parses {@code @Event} conditions with a recursive descent parser:
+ * <pre>
+ * or         := and ('||' and)*
+ * and        := comparison ('&&' comparison)*
+ * comparison := unary (('==' | '!=' | '<' | '<=' | '>' | '>=') unary)?
+ * unary      := ('!' | '-') unary | primary
+ * primary    := '(' or ')' | member | literal
+ * member     := ('#' | 'this') '.' name ('()')? | '#'
+ * literal    := number | string | char | 'true' | 'false' | 'null'
+ * </pre>
+ * {@code #} is the event, {@code this} the presenter. A primitive event is compared as {@code #} itself. Members must be public, comparisons of two
+ * objects compare with {@code equals}. A top level equality between an event member and a final
+ * presenter field (possibly one operand of a top level {@code &&}) is reported as the key of the
+ * condition, the bus can then route the event through a hash index instead of asking every listener.
  */
-
 public class EventConditionParser {
 
+    static final String DATA = "data";
+
     private final Elements elementUtil;
     private final Types typeUtil;
 
+    private TypeElement presenterElement;
+    private TypeMirror dataType;
+    private String condition;
+    private List<String> tokens;
+    private int position;
+
     public EventConditionParser(Elements elementUtil, Types typeUtil) {
         this.elementUtil = elementUtil;
         this.typeUtil = typeUtil;
     }
 
-    public String parse(TypeElement typeElement, String condition, TypeMirror dataType) {
+    public Condition parse(TypeElement typeElement, String condition, TypeMirror dataType) {
         if (condition.equals("")) {
             return null;
         }
-        Expression expression = parseExpression(condition);
-        if (expression != null) {
-            evaluateExpression(expression, typeElement, dataType);
-            return expression.toString();
-        }
-        SimpleExpression simpleExpression = parseSimpleExpression(condition);
-        if (simpleExpression != null) {
-            evaluateSimpleExpression(simpleExpression, typeElement, dataType);
-            return simpleExpression.toString();
+        this.presenterElement = typeElement;
+        this.dataType = dataType;
+        this.condition = condition;
+        this.tokens = tokenize(condition);
+        this.position = 0;
+        Node node = parseOr();
+        if (position < tokens.size())
+            throw error("unexpected '" + tokens.get(position) + "'");
+        if (!isBoolean(node.type))
+            throw error("condition must be boolean");
+        return new Condition(node, findKey(node));
+    }
+
+    private Node parseOr() {
+        Node node = parseAnd();
+        while (accept("||")) {
+            node = logical(node, "||", parseAnd());
         }
-        throw new IllegalStateException();
+        return node;
     }
 
-    private void evaluateSimpleExpression(SimpleExpression simpleExpression, TypeElement typeElement, TypeMirror dataType) {
-        TypeMirror returnType = parseReturnType(simpleExpression.getObject(), simpleExpression.isMethod(), typeElement, dataType, simpleExpression.getMemberName());
-        if (!(returnType.toString().equals(boolean.class.getName()) || returnType.toString().equals(Boolean.class.getName()))){
-            throw new IllegalStateException();
+    private Node parseAnd() {
+        Node node = parseComparison();
+        while (accept("&&")) {
+            node = logical(node, "&&", parseComparison());
         }
+        return node;
     }
 
-    private SimpleExpression parseSimpleExpression(String condition) {
-        Pattern pattern = Pattern.compile("((!)?(#|this)+\\.([A-Za-z_]+)(\\(\"?([A-Za-z_]+)?\"?\\))?)");
-        Matcher matcher = pattern.matcher(condition);
-        if (matcher.find()) {
-            String expression = matcher.group(0);
-            String leftObject = matcher.group(3);
-            String memberName = matcher.group(4);
-            boolean isMethod = matcher.group(5) != null && matcher.group(5).contains("(") && matcher.group(5).contains(")");
-            String parameterName = matcher.group(6);
-            return new SimpleExpression(expression, leftObject, memberName, isMethod);
+    private Node logical(Node left, String operator, Node right) {
+        if (!isBoolean(left.type) || !isBoolean(right.type))
+            throw error("operands of " + operator + " must be boolean");
+        return new Binary(left, operator, right, booleanType());
+    }
+
+    private Node parseComparison() {
+        Node left = parseUnary();
+        String operator = peek();
+        if (operator == null)
+            return left;
+        if (operator.equals("==") || operator.equals("!=")) {
+            position++;
+            return equality(left, operator, parseUnary());
         }
-        return null;
+        if (operator.equals("<") || operator.equals("<=") || operator.equals(">") || operator.equals(">=")) {
+            position++;
+            Node right = parseUnary();
+            if (!isNumeric(left.type) || !isNumeric(right.type))
+                throw error("operands of " + operator + " must be numeric");
+            return new Binary(left, operator, right, booleanType());
+        }
+        return left;
+    }
+
+    private Node equality(Node left, String operator, Node right) {
+        boolean leftPrimitive = left.type.getKind().isPrimitive();
+        boolean rightPrimitive = right.type.getKind().isPrimitive();
+        boolean compatible;
+        if (left.type.getKind() == TypeKind.NULL || right.type.getKind() == TypeKind.NULL)
+            compatible = !leftPrimitive && !rightPrimitive;
+        else if (leftPrimitive || rightPrimitive)
+            compatible = (isNumeric(left.type) && isNumeric(right.type)) || (isBoolean(left.type) && isBoolean(right.type));
+        else
+            compatible = typeUtil.isAssignable(left.type, right.type) || typeUtil.isAssignable(right.type, left.type);
+        if (!compatible)
+            throw error("cannot compare " + left.type + " with " + right.type);
+        boolean byReference = leftPrimitive || rightPrimitive
+                || left.type.getKind() == TypeKind.NULL || right.type.getKind() == TypeKind.NULL;
+        return new Equality(left, operator.equals("!="), right, byReference, booleanType());
     }
 
-    private Expression parseExpression(String condition) {
-        Pattern pattern = Pattern.compile("((#|this)\\.([a-zA-Z_]+)(\\(\\))?)(\\s*==\\s*)!?((#|this)\\.([a-zA-Z_]+)(\\(\\))?)");
-        Matcher matcher = pattern.matcher(condition);
-        if (matcher.find()) {
-            String leftExpression = matcher.group(0);
-            String leftObject = matcher.group(2);
-            String leftMemberExpression = matcher.group(3);
-            boolean leftMemberExpressionIsMethod = matcher.group(4) != null && matcher.group(4).equals("()");
-            String comparison = matcher.group(5);
-            String rightExpression = matcher.group(6);
-            String rightObject = matcher.group(7);
-            String rightMemberExpression = matcher.group(8);
-            boolean rightMemberExpressionIsMethod = matcher.group(9) != null && matcher.group(9).equals("()");
-            Expression expression = new Expression(leftExpression, leftObject, leftMemberExpression, leftMemberExpressionIsMethod, comparison, rightExpression, rightObject, rightMemberExpression, rightMemberExpressionIsMethod);
-            return expression;
+    private Node parseUnary() {
+        if (accept("!")) {
+            Node operand = parseUnary();
+            if (!isBoolean(operand.type))
+                throw error("operand of ! must be boolean");
+            return new Not(operand, booleanType());
         }
-        return null;
+        if (accept("-")) {
+            Node operand = parseUnary();
+            if (!isNumeric(operand.type))
+                throw error("operand of - must be numeric");
+            return new Negated(operand, unboxed(operand.type));
+        }
+        return parsePrimary();
     }
 
-    private void evaluateExpression(Expression expression, TypeElement typeElement, TypeMirror dataType) {
-        String leftMemberExpression = expression.getLeftMemberExpression();
-        String rightMemberExpression = expression.getRightMemberExpression();
-        String leftObject = expression.getLeftObject();
-        String rightObject = expression.getRightObject();
-        boolean leftMemberExpressionIsMethod = expression.isLeftMemberExpressionIsMethod();
-        boolean rightMemberExpressionIsMethod = expression.isRightMemberExpressionIsMethod();
-        TypeMirror leftType = parseReturnType(leftObject, leftMemberExpressionIsMethod, typeElement, dataType, leftMemberExpression);
-        TypeMirror rightType = parseReturnType(rightObject, rightMemberExpressionIsMethod, typeElement, dataType, rightMemberExpression);
-        if (!leftType.toString().equals(rightType.toString())) {
-            throw new IllegalStateException();
+    private Node parsePrimary() {
+        String token = next();
+        if (token.equals("(")) {
+            Node node = parseOr();
+            expect(")");
+            return new Parenthesized(node);
+        }
+        if (token.equals("#") && dataType.getKind().isPrimitive())
+            return new Literal(DATA, dataType);
+        if (token.equals("#") || token.equals("this")) {
+            expect(".");
+            String name = next();
+            if (!isIdentifier(name))
+                throw error("member name expected after '" + token + ".'");
+            boolean isMethod = false;
+            if (accept("(")) {
+                expect(")");
+                isMethod = true;
+            }
+            return member(token.equals("#"), name, isMethod);
         }
+        if (token.equals("true") || token.equals("false"))
+            return new Literal(token, booleanType());
+        if (token.equals("null"))
+            return new Literal(token, typeUtil.getNullType());
+        if (token.startsWith("\""))
+            return new Literal(token, elementUtil.getTypeElement(String.class.getName()).asType());
+        if (token.startsWith("'"))
+            return new Literal(token, typeUtil.getPrimitiveType(TypeKind.CHAR));
+        if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.')
+            return new Literal(token, typeUtil.getPrimitiveType(numberKind(token)));
+        throw error("unexpected '" + token + "'");
     }
 
-    private TypeMirror parseReturnType(String memberObject, boolean isMethod, TypeElement typeElement, TypeMirror dataType, String leftMemberExpression) {
-        TypeElement element = memberObject.equals("this") ? typeElement : elementUtil.getTypeElement(dataType.toString());
+    private Member member(boolean isEvent, String name, boolean isMethod) {
+        TypeElement element = isEvent ? elementUtil.getTypeElement(dataType.toString()) : presenterElement;
         List<? extends Element> enclosedElements = element.getEnclosedElements();
         if (isMethod) {
-            ExecutableElement method = getMethod(leftMemberExpression, enclosedElements);
-            if (method == null) {
-                throw new IllegalStateException();
-            }
-            return method.getReturnType();
+            ExecutableElement method = getMethod(name, enclosedElements);
+            if (method == null)
+                throw error("no public method " + name + "() in " + element);
+            return new Member(isEvent, name, true, false, method.getReturnType());
+        }
+        VariableElement field = getField(name, enclosedElements);
+        if (field == null)
+            throw error("no public field " + name + " in " + element);
+        return new Member(isEvent, name, false, field.getModifiers().contains(Modifier.FINAL), field.asType());
+    }
+
+    /**
+     * @return the equality between an event member and a final presenter field that decides the
+     * condition, null if there is none
+     */
+    private Key findKey(Node node) {
+        while (node instanceof Parenthesized)
+            node = ((Parenthesized) node).node;
+        if (node instanceof Binary && ((Binary) node).operator.equals("&&")) {
+            Key key = findKey(((Binary) node).left);
+            return key != null ? key : findKey(((Binary) node).right);
+        }
+        if (!(node instanceof Equality) || ((Equality) node).negated)
+            return null;
+        Equality equality = (Equality) node;
+        if (!(equality.left instanceof Member) || !(equality.right instanceof Member))
+            return null;
+        Member left = (Member) equality.left;
+        Member right = (Member) equality.right;
+        if (left.isEvent == right.isEvent)
+            return null;
+        Member event = left.isEvent ? left : right;
+        Member presenter = left.isEvent ? right : left;
+        if (presenter.isMethod || !presenter.isFinal)
+            return null;
+        if (!typeUtil.isSameType(boxed(event.type), boxed(presenter.type)))
+            return null;
+        return new Key(event, presenter);
+    }
 
-        } else {
-            VariableElement field = getField(leftMemberExpression, enclosedElements);
-            if (field == null) {
-                throw new IllegalStateException();
+    private static List<String> tokenize(String condition) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < condition.length()) {
+            char c = condition.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < condition.length() && Character.isJavaIdentifierPart(condition.charAt(i)))
+                    i++;
+                tokens.add(condition.substring(start, i));
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < condition.length() && Character.isDigit(condition.charAt(i + 1)))) {
+                int start = i;
+                boolean hex = condition.startsWith("0x", i) || condition.startsWith("0X", i);
+                while (i < condition.length() && (Character.isLetterOrDigit(condition.charAt(i)) || condition.charAt(i) == '.'
+                        || (!hex && isExponentSign(condition, i))))
+                    i++;
+                tokens.add(condition.substring(start, i));
+            } else if (c == '"' || c == '\'') {
+                int start = i++;
+                while (i < condition.length() && condition.charAt(i) != c) {
+                    if (condition.charAt(i) == '\\')
+                        i++;
+                    i++;
+                }
+                if (i >= condition.length())
+                    throw new IllegalStateException("unterminated literal in condition: " + condition);
+                tokens.add(condition.substring(start, ++i));
+            } else {
+                String two = i + 1 < condition.length() ? condition.substring(i, i + 2) : "";
+                if (two.equals("==") || two.equals("!=") || two.equals("<=") || two.equals(">=") || two.equals("&&") || two.equals("||")) {
+                    tokens.add(two);
+                    i += 2;
+                } else if ("!<>()#.-".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else {
+                    throw new IllegalStateException("unexpected '" + c + "' in condition: " + condition);
+                }
             }
-            return field.asType();
         }
+        return tokens;
+    }
+
+    private static boolean isExponentSign(String condition, int i) {
+        char c = condition.charAt(i);
+        return (c == '+' || c == '-') && Character.toLowerCase(condition.charAt(i - 1)) == 'e';
+    }
+
+    private static TypeKind numberKind(String literal) {
+        String lowerCase = literal.toLowerCase();
+        if (lowerCase.endsWith("l"))
+            return TypeKind.LONG;
+        if (lowerCase.startsWith("0x"))
+            return TypeKind.INT;
+        if (lowerCase.endsWith("f"))
+            return TypeKind.FLOAT;
+        if (lowerCase.endsWith("d") || lowerCase.contains(".") || lowerCase.contains("e"))
+            return TypeKind.DOUBLE;
+        return TypeKind.INT;
+    }
+
+    private static boolean isIdentifier(String token) {
+        return Character.isJavaIdentifierStart(token.charAt(0));
+    }
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+        if (position >= tokens.size())
+            throw error("unexpected end");
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+        if (token.equals(peek())) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token))
+            throw error("'" + token + "' expected");
+    }
+
+    private IllegalStateException error(String message) {
+        return new IllegalStateException(message + " in condition: " + condition);
+    }
+
+    private TypeMirror booleanType() {
+        return typeUtil.getPrimitiveType(TypeKind.BOOLEAN);
+    }
+
+    private TypeMirror unboxed(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED)
+            return type;
+        try {
+            return typeUtil.unboxedType(type);
+        } catch (IllegalArgumentException e) {
+            return type;
+        }
+    }
+
+    private TypeMirror boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive())
+            return typeUtil.boxedClass((PrimitiveType) type).asType();
+        return type;
+    }
+
+    private boolean isBoolean(TypeMirror type) {
+        return unboxed(type).getKind() == TypeKind.BOOLEAN;
+    }
+
+    private boolean isNumeric(TypeMirror type) {
+        TypeKind kind = unboxed(type).getKind();
+        return kind.isPrimitive() && kind != TypeKind.BOOLEAN;
     }
 
     private ExecutableElement getMethod(String methodName, List<? extends Element> enclosedElements) {
         for (Element enclosedElement : enclosedElements) {
             if (enclosedElement.getKind() == ElementKind.METHOD) {
                 ExecutableElement executableElement = (ExecutableElement) enclosedElement;
-                if (executableElement.getSimpleName().toString().equals(methodName)) {
+                if (executableElement.getSimpleName().toString().equals(methodName) && executableElement.getParameters().isEmpty()) {
                     if (!executableElement.getModifiers().contains(Modifier.PUBLIC))
                         throw new IllegalStateException();
                     return executableElement;
@@ -145,101 +370,186 @@ public class EventConditionParser {
         return null;
     }
 
-    public static class Expression {
-        private final String leftExpression;
-        private final String leftObject;
-        private final String leftMemberExpression;
-        private final boolean leftMemberExpressionIsMethod;
-        private final String rightExpression;
-        private final String comparison;
-        private final String rightObject;
-        private final String rightMemberExpression;
-        private final boolean rightMemberExpressionIsMethod;
+    public static class Condition {
+        private final Node node;
+        private final Key key;
 
-        public Expression(String leftExpression, String leftObject, String leftMemberExpression, boolean leftMemberExpressionIsMethod, String comparison, String rightExpression, String rightObject, String rightMemberExpression, boolean rightMemberExpressionIsMethod) {
-            this.leftExpression = leftExpression;
-            this.leftObject = leftObject;
-            this.leftMemberExpression = leftMemberExpression;
-            this.leftMemberExpressionIsMethod = leftMemberExpressionIsMethod;
-            this.rightExpression = rightExpression;
-            this.comparison = comparison;
-            this.rightObject = rightObject;
-            this.rightMemberExpression = rightMemberExpression;
-            this.rightMemberExpressionIsMethod = rightMemberExpressionIsMethod;
+        Condition(Node node, Key key) {
+            this.node = node;
+            this.key = key;
         }
 
-        public String getLeftObject() {
-            return leftObject;
+        /**
+         * @param presenter the expression the presenter members are read from
+         */
+        public String toJava(String presenter) {
+            return node.toJava(presenter);
         }
 
-        public String getRightObject() {
-            return rightObject;
+        /**
+         * @return the key of this condition, null if it can not be routed by key
+         */
+        public Key getKey() {
+            return key;
         }
+    }
 
-        public String getLeftExpression() {
-            return leftExpression;
+    public static class Key {
+        private final Member event;
+        private final Member presenter;
+
+        Key(Member event, Member presenter) {
+            this.event = event;
+            this.presenter = presenter;
         }
 
-        public String getRightExpression() {
-            return rightExpression;
+        public String eventKeyToJava() {
+            return event.toJava(null);
         }
 
-        public String getComparison() {
-            return comparison;
+        public String presenterKeyToJava(String presenter) {
+            return this.presenter.toJava(presenter);
         }
 
-        public String getLeftMemberExpression() {
-            return leftMemberExpression;
+        /**
+         * @return true if both sides are primitives that fit into an int, the key is routed without
+         * boxing then
+         */
+        public boolean isInt() {
+            return isIntKind(event.type.getKind()) && isIntKind(presenter.type.getKind());
         }
 
-        public boolean isLeftMemberExpressionIsMethod() {
-            return leftMemberExpressionIsMethod;
+        private static boolean isIntKind(TypeKind kind) {
+            return kind == TypeKind.INT || kind == TypeKind.SHORT || kind == TypeKind.CHAR || kind == TypeKind.BYTE;
         }
+    }
+
+    abstract static class Node {
+        final TypeMirror type;
 
-        public String getRightMemberExpression() {
-            return rightMemberExpression;
+        Node(TypeMirror type) {
+            this.type = type;
         }
 
-        public boolean isRightMemberExpressionIsMethod() {
-            return rightMemberExpressionIsMethod;
+        abstract String toJava(String presenter);
+    }
+
+    static class Member extends Node {
+        final boolean isEvent;
+        final String name;
+        final boolean isMethod;
+        final boolean isFinal;
+
+        Member(boolean isEvent, String name, boolean isMethod, boolean isFinal, TypeMirror type) {
+            super(type);
+            this.isEvent = isEvent;
+            this.name = name;
+            this.isMethod = isMethod;
+            this.isFinal = isFinal;
         }
 
         @Override
-        public String toString() {
-            return leftExpression.replaceAll("#", "data").replaceAll("this.", "e.get().");
+        String toJava(String presenter) {
+            return (isEvent ? DATA : presenter) + "." + name + (isMethod ? "()" : "");
         }
     }
 
-    static class SimpleExpression {
+    static class Literal extends Node {
+        final String value;
 
-        private String expression;
-        private final String object;
-        private final String memberName;
-        private final boolean isMethod;
+        Literal(String value, TypeMirror type) {
+            super(type);
+            this.value = value;
+        }
 
-        public SimpleExpression(String expression, String object, String memberName, boolean isMethod){
-            this.expression = expression;
-            this.object = object;
-            this.memberName = memberName;
-            this.isMethod = isMethod;
+        @Override
+        String toJava(String presenter) {
+            return value;
+        }
+    }
+
+    static class Not extends Node {
+        final Node operand;
+
+        Not(Node operand, TypeMirror type) {
+            super(type);
+            this.operand = operand;
+        }
+
+        @Override
+        String toJava(String presenter) {
+            return "!" + operand.toJava(presenter);
         }
+    }
+
+    static class Negated extends Node {
+        final Node operand;
 
-        public String getObject() {
-            return object;
+        Negated(Node operand, TypeMirror type) {
+            super(type);
+            this.operand = operand;
         }
 
-        public String getMemberName() {
-            return memberName;
+        @Override
+        String toJava(String presenter) {
+            String value = operand.toJava(presenter);
+            return value.startsWith("-") ? "-(" + value + ")" : "-" + value;
         }
+    }
+
+    static class Parenthesized extends Node {
+        final Node node;
 
-        public boolean isMethod() {
-            return isMethod;
+        Parenthesized(Node node) {
+            super(node.type);
+            this.node = node;
         }
 
         @Override
-        public String toString() {
-            return expression.replaceAll("#", "data").replaceAll("this.", "e.get().");
+        String toJava(String presenter) {
+            return "(" + node.toJava(presenter) + ")";
         }
     }
 
+    static class Binary extends Node {
+        final Node left;
+        final String operator;
+        final Node right;
+
+        Binary(Node left, String operator, Node right, TypeMirror type) {
+            super(type);
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        String toJava(String presenter) {
+            return left.toJava(presenter) + " " + operator + " " + right.toJava(presenter);
+        }
+    }
+
+    static class Equality extends Node {
+        final Node left;
+        final boolean negated;
+        final Node right;
+        final boolean byReference;
+
+        Equality(Node left, boolean negated, Node right, boolean byReference, TypeMirror type) {
+            super(type);
+            this.left = left;
+            this.negated = negated;
+            this.right = right;
+            this.byReference = byReference;
+        }
+
+        @Override
+        String toJava(String presenter) {
+            String l = left.toJava(presenter);
+            String r = right.toJava(presenter);
+            if (byReference)
+                return l + (negated ? " != " : " == ") + r;
+            return (negated ? "!" : "") + "(" + l + " == null ? " + r + " == null : " + l + ".equals(" + r + "))";
+        }
+    }
 }
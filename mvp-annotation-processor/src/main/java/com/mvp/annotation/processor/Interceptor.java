@@ -10,13 +10,15 @@ public class Interceptor {
     private final TypeMirror returnType;
     private final String threadType;
     private String eventCondition;
+    private final boolean conflate;
 
-    public Interceptor(String methodName, TypeMirror parameterType, TypeMirror returnType, String threadType, String eventCondition){
+    public Interceptor(String methodName, TypeMirror parameterType, TypeMirror returnType, String threadType, String eventCondition, boolean conflate){
         this.methodName = methodName;
         this.parameterType = parameterType;
         this.returnType = returnType;
         this.threadType = threadType;
         this.eventCondition = eventCondition;
+        this.conflate = conflate;
     }
 
     public String getMethodName() {
@@ -39,6 +41,10 @@ public class Interceptor {
         return eventCondition;
     }
 
+    public boolean isConflating() {
+        return conflate;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof Interceptor))
@@ -40,11 +40,17 @@ public class ProxyInfo {
     private final TypeMirror presenterClass;
     private final TypeMirror viewClass;
     private final List<ExecutableElement> initialMethods;
+    private final boolean trace;
 
     public ProxyInfo(TypeMirror presenterClass, TypeMirror viewClass, List<ExecutableElement> initialMethods){
+        this(presenterClass, viewClass, initialMethods, false);
+    }
+
+    public ProxyInfo(TypeMirror presenterClass, TypeMirror viewClass, List<ExecutableElement> initialMethods, boolean trace){
         this.presenterClass = presenterClass;
         this.viewClass = viewClass;
         this.initialMethods = initialMethods;
+        this.trace = trace;
     }
 
     public TypeSpec processMethods(Types typeUtils){
@@ -140,16 +146,27 @@ public class ProxyInfo {
                 UiThread uiThreadAnnotation = initialMethod.getAnnotation(UiThread.class);
                 ClassName looperType = ClassName.get("android.os", "Looper");
                 if(backgroundAnnotation != null){
-                    methodBuilder.beginControlFlow("if ($T.myLooper().equals($T.getMainLooper()))", looperType, looperType)
-                            .addStatement(String.format("this.presenterImpl.submit(\"%s\", new Runnable(){ @Override public void run() { %s; } })", method.name, statement))
-                            .nextControlFlow("else")
-                            .addStatement(statement)
-                            .endControlFlow();
+                    String key = backgroundAnnotation.key().isEmpty() ? method.name : backgroundAnnotation.key();
+                    String runnable = "new Runnable(){ @Override public void run() { " + statement + "; } }";
+                    if (isScheduled(backgroundAnnotation)){
+                        methodBuilder.addStatement("this.presenterImpl.submit($S, $T.$L, $L, $L, $L)", key, BackgroundThread.Policy.class,
+                                backgroundAnnotation.policy().name(), backgroundAnnotation.debounce() + "L", backgroundAnnotation.throttle() + "L", runnable);
+                    }else{
+                        methodBuilder.beginControlFlow("if ($T.myLooper().equals($T.getMainLooper()))", looperType, looperType)
+                                .addStatement("this.presenterImpl.submit($S, $L)", key, runnable)
+                                .nextControlFlow("else")
+                                .addStatement(statement)
+                                .endControlFlow();
+                    }
                 }else if(uiThreadAnnotation != null){
+                    String runnable = "new Runnable(){ @Override public void run() { " + statement +  "; } }";
+                    if (trace)
+                        runnable = String.format("%1$s.wrap(%1$s.PRESENTER, \"%2$s.%3$s\", %4$s)", AnnotationProcessor.TRACER_CLASS_NAME,
+                                convertDataClassToString(presenterClass), method.name, runnable);
                     methodBuilder.beginControlFlow("if ($T.myLooper().equals($T.getMainLooper()))", looperType, looperType)
                             .addStatement(statement)
                             .nextControlFlow("else")
-                            .addCode(CodeBlock.of("this.presenterImpl.submitOnUiThread(new Runnable(){ @Override public void run() { " + statement +  "; } });"))
+                            .addCode(CodeBlock.of("this.presenterImpl.submitOnUiThread(" + runnable + ");"))
                             .endControlFlow();
                 }else{
                     methodBuilder.addStatement(statement);
@@ -168,6 +185,13 @@ public class ProxyInfo {
         return builder.build();
     }
 
+    /**
+     * @return true if calls have to go through the scheduler of the presenter on any thread
+     */
+    private boolean isScheduled(BackgroundThread annotation) {
+        return annotation.policy() != BackgroundThread.Policy.SWITCH || annotation.debounce() > 0 || annotation.throttle() > 0;
+    }
+
     private boolean methodIsProtectedAndDeclaredInLibraryPackage(ExecutableElement initialMethod) {
         TypeElement typeElement = (TypeElement) initialMethod.getEnclosingElement();
         for (Modifier modifier : initialMethod.getModifiers()) {
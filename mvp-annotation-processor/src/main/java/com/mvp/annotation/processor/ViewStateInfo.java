@@ -0,0 +1,167 @@
+package com.mvp.annotation.processor;
+
+import com.mvp.annotation.Render;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+
+/**
+ * Builds the renderer of a class annotated with {@link com.mvp.annotation.ViewState}, it calls a
+ * view method if one of the accessors rendered by it changed.
+ */
+public class ViewStateInfo
+{
+
+    public static final String SUFFIX = "Renderer";
+    private static final ClassName VIEW_STATE_RENDERER = ClassName.get("com.mvp", "ViewStateRenderer");
+
+    private final TypeElement stateClass;
+    private final TypeElement viewClass;
+
+    public ViewStateInfo(TypeElement stateClass, TypeElement viewClass)
+    {
+        this.stateClass = stateClass;
+        this.viewClass = viewClass;
+    }
+
+    /**
+     * @return the name of the renderer, nested state classes are flattened with '_'
+     */
+    public String rendererName()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (String simpleName : ClassName.get(stateClass).simpleNames())
+        {
+            if (sb.length() > 0)
+                sb.append('_');
+            sb.append(simpleName);
+        }
+        return sb.append(SUFFIX).toString();
+    }
+
+    /**
+     * @return the renderer, null if an accessor or the view method it names is invalid, the error
+     * is reported to {@code messager}
+     */
+    public TypeSpec build(Elements elementUtils, Messager messager)
+    {
+        LinkedHashMap<String, List<ExecutableElement>> viewMethods = new LinkedHashMap<>();
+        for (ExecutableElement accessor : ElementFilter.methodsIn(stateClass.getEnclosedElements()))
+        {
+            Render render = accessor.getAnnotation(Render.class);
+            if (render == null)
+                continue;
+            if (!accessor.getParameters().isEmpty() || accessor.getModifiers().contains(Modifier.PRIVATE))
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@Render accessors must not be private and must not have parameters", accessor);
+                return null;
+            }
+            List<ExecutableElement> accessors = viewMethods.get(render.value());
+            if (accessors == null)
+            {
+                accessors = new ArrayList<>();
+                viewMethods.put(render.value(), accessors);
+            }
+            accessors.add(accessor);
+        }
+
+        TypeName viewType = ClassName.get(viewClass);
+        TypeName stateType = ClassName.get(stateClass);
+        MethodSpec.Builder render = MethodSpec.methodBuilder("render")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(viewType, "view")
+                .addParameter(stateType, "previous")
+                .addParameter(stateType, "state");
+
+        for (Map.Entry<String, List<ExecutableElement>> entry : viewMethods.entrySet())
+        {
+            String viewMethod = entry.getKey();
+            List<ExecutableElement> accessors = entry.getValue();
+            if (!hasViewMethod(elementUtils, viewMethod, accessors.size()))
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s has no method %s with %d parameters", viewClass, viewMethod, accessors.size()), accessors.get(0));
+                return null;
+            }
+            render.beginControlFlow("if ($L)", condition(accessors));
+            render.addStatement("view.$L($L)", viewMethod, arguments(accessors));
+            render.endControlFlow();
+        }
+
+        return TypeSpec.classBuilder(rendererName())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(VIEW_STATE_RENDERER, viewType, stateType))
+                .addMethod(render.build())
+                .build();
+    }
+
+    /**
+     * On the first render a view method is only called if one of its properties is not null.
+     */
+    private static CodeBlock condition(List<ExecutableElement> accessors)
+    {
+        boolean hasPrimitive = false;
+        CodeBlock.Builder notNull = CodeBlock.builder();
+        CodeBlock.Builder changed = CodeBlock.builder();
+        for (int i = 0; i < accessors.size(); i++)
+        {
+            ExecutableElement accessor = accessors.get(i);
+            String name = accessor.getSimpleName().toString();
+            String separator = i == 0 ? "" : " || ";
+            if (accessor.getReturnType().getKind().isPrimitive())
+            {
+                hasPrimitive = true;
+                changed.add(separator + "previous.$L() != state.$L()", name, name);
+            } else
+            {
+                notNull.add(separator + "state.$L() != null", name);
+                changed.add(separator + "changed(previous.$L(), state.$L())", name, name);
+            }
+        }
+        if (hasPrimitive)
+            return CodeBlock.of("previous == null || $L", changed.build());
+        return CodeBlock.of("previous == null ? $L : $L", parenthesized(notNull.build(), accessors.size()), parenthesized(changed.build(), accessors.size()));
+    }
+
+    private static CodeBlock parenthesized(CodeBlock code, int terms)
+    {
+        return terms > 1 ? CodeBlock.of("($L)", code) : code;
+    }
+
+    private static CodeBlock arguments(List<ExecutableElement> accessors)
+    {
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        for (int i = 0; i < accessors.size(); i++)
+            arguments.add(i == 0 ? "state.$L()" : ", state.$L()", accessors.get(i).getSimpleName().toString());
+        return arguments.build();
+    }
+
+    private boolean hasViewMethod(Elements elementUtils, String name, int parameters)
+    {
+        for (Element member : elementUtils.getAllMembers(viewClass))
+        {
+            if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals(name)
+                    && ((ExecutableElement) member).getParameters().size() == parameters)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,286 @@
+package com.mvp.annotation.processor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses conditions against the event and presenter classes below and checks the java expression,
+ * the key and the errors the parser reports.
+ */
+public class EventConditionParserTest
+{
+
+    private static final String EVENT = "package test;\n"
+            + "public class Event {\n"
+            + "    public int id;\n"
+            + "    public long count;\n"
+            + "    public double ratio;\n"
+            + "    public boolean active;\n"
+            + "    public String name;\n"
+            + "    public String name() { return name; }\n"
+            + "}\n";
+    private static final String PRESENTER = "package test;\n"
+            + "public class Presenter {\n"
+            + "    public final int id = 1;\n"
+            + "    public final String name = \"a\";\n"
+            + "    public int limit;\n"
+            + "    public boolean flag;\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logicalOperatorsBindLooserThanComparisons()
+    {
+        assertEquals("data.id == presenter.id || data.count > 1 && presenter.flag",
+                toJava("#.id == this.id || #.count > 1 && this.flag"));
+        assertEquals("!data.active && presenter.flag", toJava("!#.active && this.flag"));
+    }
+
+    @Test
+    public void andBindsTighterThanOr()
+    {
+        assertNull(parse("#.id == this.id && this.flag || this.flag").key);
+        assertNull(parse("this.flag || this.flag && #.id == this.id").key);
+        assertNotNull(parse("(this.flag || this.flag) && #.id == this.id").key);
+    }
+
+    @Test
+    public void notBindsTighterThanEquality()
+    {
+        assertEquals("operand of ! must be boolean in condition: !#.id == 1", error("!#.id == 1"));
+        assertEquals("!data.active == presenter.flag", toJava("!#.active == this.flag"));
+    }
+
+    @Test
+    public void parenthesesAreKept()
+    {
+        assertEquals("(data.id == 1 || presenter.flag) && data.active", toJava("(#.id == 1 || this.flag) && #.active"));
+    }
+
+    @Test
+    public void literalsAreTyped()
+    {
+        assertEquals("int", literalType("1"));
+        assertEquals("long", literalType("1L"));
+        assertEquals("float", literalType("1f"));
+        assertEquals("double", literalType("1d"));
+        assertEquals("double", literalType("1.5"));
+        assertEquals("double", literalType(".5"));
+        assertEquals("double", literalType("1e3"));
+        assertEquals("double", literalType("1e-3"));
+        assertEquals("int", literalType("0x1f"));
+        assertEquals("int", literalType("0x1d"));
+        assertEquals("int", literalType("0x1E"));
+        assertEquals("long", literalType("0x1fL"));
+        assertEquals("char", literalType("'c'"));
+        assertEquals("boolean", literalType("true"));
+        assertEquals("int", literalType("-1"));
+        assertEquals("double", literalType("-1.5"));
+    }
+
+    @Test
+    public void literalsAreCopied()
+    {
+        assertEquals("data.id == 0x1f", toJava("#.id == 0x1f"));
+        assertEquals("data.ratio > 1e-3", toJava("#.ratio > 1e-3"));
+        assertEquals("data.id == 'c'", toJava("#.id == 'c'"));
+        assertEquals("data.active == false", toJava("#.active == false"));
+        assertEquals("data.name == null", toJava("#.name == null"));
+    }
+
+    @Test
+    public void negativeOperandsAreParsed()
+    {
+        assertEquals("data.id == -1", toJava("#.id == -1"));
+        assertEquals("data.id > -presenter.limit", toJava("#.id > -this.limit"));
+        assertEquals("data.id == -(-1)", toJava("#.id == - -1"));
+        assertEquals("unexpected '-' in condition: #.id - 1 == 0", error("#.id - 1 == 0"));
+        assertEquals("operand of - must be numeric in condition: -this.flag", error("-this.flag"));
+    }
+
+    @Test
+    public void objectEqualityIsNullSafe()
+    {
+        assertEquals("(data.name == null ? presenter.name == null : data.name.equals(presenter.name))",
+                toJava("#.name == this.name"));
+        assertEquals("!(data.name() == null ? \"a\" == null : data.name().equals(\"a\"))",
+                toJava("#.name() != \"a\""));
+    }
+
+    @Test
+    public void primitiveAndNullEqualityCompareByReference()
+    {
+        assertEquals("data.id != presenter.id", toJava("#.id != this.id"));
+        assertEquals("data.name != null", toJava("#.name != null"));
+    }
+
+    @Test
+    public void primitiveEventIsComparedItself()
+    {
+        Result result = parse("# == this.id", null);
+        assertEquals("data == presenter.id", result.java);
+    }
+
+    @Test
+    public void equalityWithFinalPresenterFieldIsTheKey()
+    {
+        Result result = parse("#.id == this.id && this.flag");
+        assertEquals("data.id", result.eventKey);
+        assertEquals("presenter.id", result.presenterKey);
+        assertTrue(result.intKey);
+        Result name = parse("this.name == #.name()");
+        assertEquals("data.name()", name.eventKey);
+        assertFalse(name.intKey);
+    }
+
+    @Test
+    public void conditionsWithoutAnEqualityOnAFinalFieldHaveNoKey()
+    {
+        assertNull(parse("#.id == this.limit").key);
+        assertNull(parse("#.id != this.id").key);
+        assertNull(parse("#.id == this.id || this.flag").key);
+        assertNull(parse("#.id == 1").key);
+    }
+
+    @Test
+    public void invalidConditionsAreReported()
+    {
+        assertEquals("unexpected end in condition: #.id ==", error("#.id =="));
+        assertEquals("unexpected ')' in condition: #.id == 1)", error("#.id == 1)"));
+        assertEquals("')' expected in condition: (#.id == 1", error("(#.id == 1"));
+        assertEquals("condition must be boolean in condition: #.id", error("#.id"));
+        assertEquals("operands of && must be boolean in condition: #.id && this.flag", error("#.id && this.flag"));
+        assertEquals("operands of < must be numeric in condition: #.name < 1", error("#.name < 1"));
+        assertEquals("cannot compare java.lang.String with int in condition: #.name == 1", error("#.name == 1"));
+        assertTrue(error("#.id == null").startsWith("cannot compare int with "));
+        assertEquals("no public field missing in test.Event in condition: #.missing == 1", error("#.missing == 1"));
+        assertEquals("no public method missing() in test.Event in condition: #.missing() == 1", error("#.missing() == 1"));
+        assertEquals("member name expected after '#.' in condition: #.(1) == 1", error("#.(1) == 1"));
+        assertEquals("unexpected '@' in condition: #.id @ 1", error("#.id @ 1"));
+        assertEquals("unterminated literal in condition: #.name == \"a", error("#.name == \"a"));
+    }
+
+    private String toJava(String condition)
+    {
+        Result result = parse(condition);
+        assertNull(result.error, result.error);
+        return result.java;
+    }
+
+    private String error(String condition)
+    {
+        Result result = parse(condition);
+        assertNotNull("no error for " + condition, result.error);
+        return result.error;
+    }
+
+    private String literalType(String literal)
+    {
+        String error = error("this.name == " + literal);
+        return error.substring("cannot compare java.lang.String with ".length(), error.indexOf(" in condition"));
+    }
+
+    private Result parse(String condition)
+    {
+        return parse(condition, "test.Event");
+    }
+
+    /**
+     * @param dataType the event class, null for an int event
+     */
+    private Result parse(String condition, String dataType)
+    {
+        ParsingProcessor processor = new ParsingProcessor(dataType, condition);
+        try
+        {
+            boolean compiled = new TestCompiler(folder)
+                    .source("test/Event.java", EVENT)
+                    .source("test/Presenter.java", PRESENTER)
+                    .compile(processor);
+            assertTrue(compiled);
+        } catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return processor.result;
+    }
+
+    private static final class Result
+    {
+        String java;
+        String error;
+        EventConditionParser.Key key;
+        String eventKey;
+        String presenterKey;
+        boolean intKey;
+    }
+
+    @SupportedAnnotationTypes("*")
+    private static final class ParsingProcessor extends AbstractProcessor
+    {
+        private final String dataType;
+        private final String condition;
+        Result result;
+
+        ParsingProcessor(String dataType, String condition)
+        {
+            this.dataType = dataType;
+            this.condition = condition;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion()
+        {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env)
+        {
+            if (env.processingOver() || result != null)
+                return false;
+            TypeElement presenter = processingEnv.getElementUtils().getTypeElement("test.Presenter");
+            TypeMirror data = dataType != null
+                    ? processingEnv.getElementUtils().getTypeElement(dataType).asType()
+                    : processingEnv.getTypeUtils().getPrimitiveType(TypeKind.INT);
+            EventConditionParser parser = new EventConditionParser(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+            result = new Result();
+            try
+            {
+                EventConditionParser.Condition parsed = parser.parse(presenter, condition, data);
+                result.java = parsed.toJava("presenter");
+                result.key = parsed.getKey();
+                if (result.key != null)
+                {
+                    result.eventKey = result.key.eventKeyToJava();
+                    result.presenterKey = result.key.presenterKeyToJava("presenter");
+                    result.intKey = result.key.isInt();
+                }
+            } catch (IllegalStateException e)
+            {
+                result.error = e.getMessage();
+            }
+            return false;
+        }
+    }
+}
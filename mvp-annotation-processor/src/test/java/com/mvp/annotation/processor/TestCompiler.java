@@ -0,0 +1,115 @@
+package com.mvp.annotation.processor;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles sources with a processor in a temporary folder, for tests of the code the processor
+ * generates and of what it sees while processing.
+ */
+final class TestCompiler
+{
+
+    private final TemporaryFolder folder;
+    private final Map<String, String> sources = new LinkedHashMap<>();
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    private ClassLoader classLoader;
+
+    TestCompiler(TemporaryFolder folder)
+    {
+        this.folder = folder;
+    }
+
+    /**
+     * @param path of the source relative to the source root, e.g. {@code test/View.java}
+     */
+    TestCompiler source(String path, String source)
+    {
+        sources.put(path, source);
+        return this;
+    }
+
+    /**
+     * @return true if the sources compiled without errors
+     */
+    boolean compile(Processor processor) throws IOException
+    {
+        File sourceRoot = folder.newFolder();
+        File classes = folder.newFolder();
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet())
+            files.add(write(sourceRoot, source.getKey(), source.getValue()));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try
+        {
+            List<String> options = Arrays.asList("-d", classes.getPath(), "-s", sourceRoot.getPath(),
+                    "-classpath", System.getProperty("java.class.path"));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(processor));
+            boolean success = task.call();
+            classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+            return success;
+        } finally
+        {
+            fileManager.close();
+        }
+    }
+
+    /**
+     * @return the compiled classes, valid after {@link #compile(Processor)}
+     */
+    ClassLoader getClassLoader()
+    {
+        return classLoader;
+    }
+
+    boolean hasError(String message)
+    {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+        {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getMessage(null).contains(message))
+                return true;
+        }
+        return false;
+    }
+
+    String getDiagnostics()
+    {
+        return diagnostics.getDiagnostics().toString();
+    }
+
+    private static File write(File root, String path, String source) throws IOException
+    {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))
+        {
+            writer.write(source);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,177 @@
+package com.mvp.annotation.processor;
+
+import com.mvp.annotation.ViewState;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles a view state with the renderer built by {@link ViewStateInfo} and runs the renderer.
+ */
+public class ViewStateInfoTest
+{
+
+    private static final String MVP_VIEW = "package com.mvp;\n"
+            + "public interface MvpView { }\n";
+    private static final String VIEW_STATE_RENDERER = "package com.mvp;\n"
+            + "public abstract class ViewStateRenderer<V extends MvpView, S> {\n"
+            + "    public abstract void render(V view, S previous, S state);\n"
+            + "    protected static boolean changed(Object previous, Object state) {\n"
+            + "        return previous != state && (previous == null || !previous.equals(state));\n"
+            + "    }\n"
+            + "}\n";
+    private static final String VIEW = "package test;\n"
+            + "public interface View extends com.mvp.MvpView {\n"
+            + "    void showIcon(Object icon);\n"
+            + "    void showNames(String first, String last);\n"
+            + "    void showCount(int count);\n"
+            + "}\n";
+    private static final String RECORDING_VIEW = "package test;\n"
+            + "public class RecordingView implements View {\n"
+            + "    public final java.util.List<String> calls = new java.util.ArrayList<>();\n"
+            + "    public void showIcon(Object icon) { calls.add(\"icon \" + icon); }\n"
+            + "    public void showNames(String first, String last) { calls.add(\"names \" + first + \" \" + last); }\n"
+            + "    public void showCount(int count) { calls.add(\"count \" + count); }\n"
+            + "}\n";
+    private static final String STATE = "package test;\n"
+            + "import com.mvp.annotation.Render;\n"
+            + "@com.mvp.annotation.ViewState(View.class)\n"
+            + "public class State {\n"
+            + "    private final Object icon; private final String first; private final String last; private final int count;\n"
+            + "    public State(Object icon, String first, String last, int count) {\n"
+            + "        this.icon = icon; this.first = first; this.last = last; this.count = count;\n"
+            + "    }\n"
+            + "    @Render(\"showIcon\") public Object icon() { return icon; }\n"
+            + "    @Render(\"showNames\") public String first() { return first; }\n"
+            + "    @Render(\"showNames\") public String last() { return last; }\n"
+            + "    @Render(\"showCount\") public int count() { return count; }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestCompiler compiler;
+    private ClassLoader classLoader;
+
+    @Test
+    public void firstRenderSkipsViewMethodsWhosePropertiesAreAllNull() throws Exception {
+        boolean compiled = compile(STATE);
+        assertTrue(compiler.getDiagnostics(), compiled);
+        assertEquals(Arrays.asList("names null b", "count 0"), render(null, state(null, null, "b", 0)));
+        assertEquals(Arrays.asList("icon x", "count 1"), render(null, state("x", null, null, 1)));
+    }
+
+    @Test
+    public void onlyChangedPropertiesAreRendered() throws Exception {
+        boolean compiled = compile(STATE);
+        assertTrue(compiler.getDiagnostics(), compiled);
+        assertEquals(Collections.emptyList(), render(state("x", "a", "b", 1), state("x", "a", new String("b"), 1)));
+        assertEquals(Arrays.asList("count 2"), render(state("x", "a", "b", 1), state("x", "a", "b", 2)));
+        assertEquals(Arrays.asList("icon null", "names a c"), render(state("x", "a", "b", 1), state(null, "a", "c", 1)));
+    }
+
+    @Test
+    public void missingViewMethodIsReported() throws Exception {
+        assertFalse(compile(STATE.replace("@Render(\"showCount\")", "@Render(\"showTotal\")")));
+        assertTrue(compiler.hasError("test.View has no method showTotal with 1 parameters"));
+    }
+
+    @Test
+    public void accessorWithParametersIsReported() throws Exception {
+        assertFalse(compile(STATE.replace("public int count() { return count; }", "public int count(int offset) { return count + offset; }")));
+        assertTrue(compiler.hasError("@Render accessors must not be private and must not have parameters"));
+    }
+
+    private boolean compile(String state) throws IOException {
+        compiler = new TestCompiler(folder)
+                .source("com/mvp/MvpView.java", MVP_VIEW)
+                .source("com/mvp/ViewStateRenderer.java", VIEW_STATE_RENDERER)
+                .source("test/View.java", VIEW)
+                .source("test/RecordingView.java", RECORDING_VIEW)
+                .source("test/State.java", state);
+        boolean success = compiler.compile(new RendererProcessor());
+        classLoader = compiler.getClassLoader();
+        return success;
+    }
+
+    private Object state(Object icon, String first, String last, int count) throws Exception {
+        return classLoader.loadClass("test.State")
+                .getConstructor(Object.class, String.class, String.class, int.class)
+                .newInstance(icon, first, last, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> render(Object previous, Object state) throws Exception {
+        Class<?> viewClass = classLoader.loadClass("test.View");
+        Class<?> stateClass = classLoader.loadClass("test.State");
+        Object view = classLoader.loadClass("test.RecordingView").getConstructor().newInstance();
+        Object renderer = classLoader.loadClass("test.StateRenderer").getConstructor().newInstance();
+        Method render = renderer.getClass().getMethod("render", viewClass, stateClass, stateClass);
+        render.invoke(renderer, view, previous, state);
+        return (List<String>) view.getClass().getField("calls").get(view);
+    }
+
+    /**
+     * Writes the renderers of the view states like {@link AnnotationProcessor} does.
+     */
+    @SupportedAnnotationTypes("com.mvp.annotation.ViewState")
+    private static final class RendererProcessor extends AbstractProcessor
+    {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+            for (Element element : env.getElementsAnnotatedWith(ViewState.class))
+            {
+                TypeMirror viewClass = null;
+                try
+                {
+                    element.getAnnotation(ViewState.class).value();
+                } catch (MirroredTypeException ex)
+                {
+                    viewClass = ex.getTypeMirror();
+                }
+                TypeElement stateClass = (TypeElement) element;
+                ViewStateInfo info = new ViewStateInfo(stateClass, (TypeElement) processingEnv.getTypeUtils().asElement(viewClass));
+                TypeSpec renderer = info.build(processingEnv.getElementUtils(), processingEnv.getMessager());
+                if (renderer == null)
+                    continue;
+                try
+                {
+                    JavaFile.builder(processingEnv.getElementUtils().getPackageOf(stateClass).getQualifiedName().toString(), renderer)
+                            .build().writeTo(processingEnv.getFiler());
+                } catch (IOException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return true;
+        }
+    }
+}
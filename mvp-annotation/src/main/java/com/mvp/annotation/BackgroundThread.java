@@ -5,6 +5,46 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Runs the method on the executor of the presenter when it is called on the main thread. Calls
+ * share a task key, the method name unless {@link #key()} is set, and {@link #policy()} decides
+ * what happens to a call while the previous one with the same key is still running.
+ * <p>
+ * A method with a policy other than the default, a debounce or a throttle interval always runs
+ * through the scheduler of its presenter, also when called from a background thread.
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
-public @interface BackgroundThread { }
+public @interface BackgroundThread {
+
+    enum Policy {
+        /**
+         * Latest wins: the running task is cancelled and interrupted, the new one starts right away.
+         */
+        SWITCH,
+        /**
+         * Tasks run one after another in the order they were submitted.
+         */
+        QUEUE,
+        /**
+         * Tasks submitted while one is running are dropped.
+         */
+        DROP
+    }
+
+    Policy policy() default Policy.SWITCH;
+
+    /**
+     * Delays a task until no other task was submitted for this many milliseconds, only the last
+     * one runs.
+     */
+    long debounce() default 0;
+
+    /**
+     * Starts at most one task per this many milliseconds, the last task submitted in between runs
+     * at the end of the interval.
+     */
+    long throttle() default 0;
+
+    String key() default "";
+}
@@ -0,0 +1,13 @@
+package com.mvp.annotation;
+
+/**
+ * A listener of a primitive channel. Its data class is the primitive type itself, e.g.
+ * {@code int.class}, so it never matches an event object; the bus registers it under its channel
+ * and hands it values without boxing them.
+ */
+public interface ChannelEventListener<T> extends OnEventListener<T> {
+    /**
+     * @return the name of the channel, {@code ""} for the default channel of the type
+     */
+    String getChannel();
+}
@@ -0,0 +1,15 @@
+package com.mvp.annotation;
+
+/**
+ * A listener that can take part in a fan-out dispatch, where the bus hands an event to all of its
+ * listeners at once instead of one after another.
+ */
+public interface ConcurrentEventListener<T> extends OnEventListener<T> {
+
+    /**
+     * Handles {@code data} like {@link #onEvent}, but the work is always enqueued on the thread of its
+     * first step, so this returns without running any listener code. {@code completion} runs once,
+     * after the last step finished, or right away if the event is not consumed.
+     */
+    void onEventConcurrently(T data, Runnable completion);
+}
@@ -0,0 +1,14 @@
+package com.mvp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a view method whose latest call replaces an earlier one that was recorded off the main
+ * thread and not applied yet, e.g. a method that shows the whole state of a widget.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Conflate { }
@@ -0,0 +1,5 @@
+package com.mvp.annotation;
+
+public interface DoubleEventListener extends ChannelEventListener<Double> {
+    void onDoubleEvent(double value);
+}
@@ -12,4 +12,15 @@ public @interface Event {
     String BACKGROUND_THREAD = "background";
     String thread() default UI_THREAD;
     String condition() default "";
+    /**
+     * While a delivery of this event type is pending, newer events replace the pending one
+     * instead of being queued, the listener only ever sees the latest value.
+     */
+    boolean conflate() default false;
+    /**
+     * The channel an {@code int}, {@code long} or {@code double} parameter listens on, values are
+     * delivered without boxing. Values sent while a delivery to another thread is pending are
+     * queued and all delivered in order, unless {@link #conflate()} is set.
+     */
+    String channel() default "";
 }
@@ -0,0 +1,17 @@
+package com.mvp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Events of the annotated type are never kept local to a child event bus, dispatching them on a
+ * child dispatches them on the root bus, which hands them down to all of its children.
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GlobalEvent {
+}
@@ -0,0 +1,5 @@
+package com.mvp.annotation;
+
+public interface IntEventListener extends ChannelEventListener<Integer> {
+    void onIntEvent(int value);
+}
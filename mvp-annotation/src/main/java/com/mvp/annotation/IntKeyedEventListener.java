@@ -0,0 +1,10 @@
+package com.mvp.annotation;
+
+/**
+ * A {@link KeyedEventListener} whose key is an int on both sides, the bus routes events to it
+ * without boxing the key.
+ */
+public interface IntKeyedEventListener<T> extends KeyedEventListener<T> {
+    int getIntKey();
+    int extractIntKey(T data);
+}
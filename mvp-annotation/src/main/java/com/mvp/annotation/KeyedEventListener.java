@@ -0,0 +1,14 @@
+package com.mvp.annotation;
+
+/**
+ * A listener whose condition requires an event member to equal a final field of its presenter.
+ * The bus indexes such listeners by {@link #getKey()} and only offers an event to the listeners
+ * registered under {@link #extractKey(Object)}.
+ */
+public interface KeyedEventListener<T> extends OnEventListener<T> {
+    /**
+     * @return the key this listener was created with, it never changes
+     */
+    Object getKey();
+    Object extractKey(T data);
+}
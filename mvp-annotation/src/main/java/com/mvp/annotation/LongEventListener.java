@@ -0,0 +1,5 @@
+package com.mvp.annotation;
+
+public interface LongEventListener extends ChannelEventListener<Long> {
+    void onLongEvent(long value);
+}
@@ -0,0 +1,16 @@
+package com.mvp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Passes the value of an accessor of a {@link ViewState} to the view method {@link #value()}.
+ * Accessors rendered by the same view method become its arguments in declaration order.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Render {
+    String value();
+}
@@ -0,0 +1,17 @@
+package com.mvp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an immutable state of the view {@link #value()}, its accessors are annotated with
+ * {@link Render}. A renderer is generated that only calls the view methods whose properties
+ * changed since the previous state.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ViewState {
+    Class<?> value();
+}
@@ -51,7 +51,7 @@ public class ActivityPresenter extends MvpPresenter<IView> {
         return isLoading;
     }
 
-    @Event(condition = "#.isLoading() == !this.isLoading()")
+    @Event(condition = "#.isLoading() == !this.isLoading()", conflate = true)
     public void onLoadingStateChanged(Contract.LoadingEvent loadingEvent){
         isLoading = loadingEvent instanceof Contract.LoadingStartedEvent;
         showOrHideProgressBar();
@@ -4,6 +4,8 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.Log;
 
+import com.mvp.Cancellable;
+import com.mvp.CancellationToken;
 import com.mvp.MvpPresenter;
 import com.mvp.annotation.BackgroundThread;
 import com.mvp.annotation.Event;
@@ -30,6 +32,7 @@ import retrofit2.Response;
 public class MainPresenter extends MvpPresenter<IMainView> {
 
     public static final String KEY_STATE = "KEY_STATE";
+    private static final String TASK_SEARCH = "searchRepositories";
 
     private State state;
     protected GithubService githubService;
@@ -82,7 +85,7 @@ public class MainPresenter extends MvpPresenter<IMainView> {
         }
     }
 
-    @BackgroundThread
+    @BackgroundThread(policy = BackgroundThread.Policy.DROP)
     public void loadMoreRepositories(){
         if (internalSearchRepositories(state.query, state.page)){
             state.page++;
@@ -94,18 +97,17 @@ public class MainPresenter extends MvpPresenter<IMainView> {
         try {
             dispatchLoadingStateChangedEvent(loading);
             Call<SearchResult> repositories = githubService.searchRepositories(query, page);
-            final Response<SearchResult> response = repositories.execute();
+            final Response<SearchResult> response = execute(repositories);
+            if (CancellationToken.current().isCancelled())
+                return false;
             if (response.code() == 200) {
                 result = true;
-                submitOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        onRepositoriesLoaded(response.body(), page == 1);
-                    }
-                });
+                onRepositoriesLoaded(response.body(), page == 1);
             }else
                 dispatchEvent(new Contract.GithubServiceErrorEvent(response.errorBody().string())).toAny();
         } catch (IOException e) {
+            if (CancellationToken.current().isCancelled())
+                return false;
             e.printStackTrace();
             dispatchEvent(e).toAny();
         }finally {
@@ -114,18 +116,37 @@ public class MainPresenter extends MvpPresenter<IMainView> {
         return result;
     }
 
+    /**
+     * Executes {@code call}, it is cancelled when the search is superseded or this presenter is destroyed.
+     */
+    private <T> Response<T> execute(final Call<T> call) throws IOException {
+        CancellationToken token = CancellationToken.current();
+        Cancellable cancellable = new Cancellable() {
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+        };
+        token.onCancel(cancellable);
+        try {
+            return call.execute();
+        } finally {
+            token.remove(cancellable);
+        }
+    }
+
     private void onRepositoriesLoaded(SearchResult searchResult, boolean isFirstPage) {
         List<Repository> repositories = searchResult.getRepositories();
         state.reachedEndOfStream = repositories.isEmpty();
         if (isFirstPage)
-            getView().setRepositories(repositories);
+            getBufferedView().setRepositories(repositories);
         else
-            getView().addRepositories(repositories);
+            getBufferedView().addRepositories(repositories);
     }
 
     private void dispatchLoadingStateChangedEvent(Contract.LoadingEvent event) {
         isLoading = event instanceof Contract.LoadingStartedEvent;
-        dispatchEvent(event).toAny();
+        dispatchEvent(event).toAnyAsync();
     }
 
     public boolean isLoading() {
@@ -145,7 +166,7 @@ public class MainPresenter extends MvpPresenter<IMainView> {
 
         final Repository repository = state.lastSelectedRepository;
         String strId = repository != Repository.NULL ? String.valueOf(repository.getId()) : "";
-        dispatchEvent(strId).toAny();
+        dispatchStickyEvent(strId);
 
         if (shouldShowDetailViewInAnotherActivity()){
             getView().showDetailViewInActivity(state.lastSelectedRepository);
@@ -157,9 +178,14 @@ public class MainPresenter extends MvpPresenter<IMainView> {
         return orientationTag.contains("port") && state.lastSelectedRepository != null;
     }
 
-    @Event(thread = Event.BACKGROUND_THREAD)
-    public void onSearchRepositoriesEvent(Contract.SearchRepositoriesEvent event){
-        searchRepositories(event.getQuery());
+    @Event
+    public void onSearchRepositoriesEvent(final Contract.SearchRepositoriesEvent event){
+        submit(TASK_SEARCH, BackgroundThread.Policy.SWITCH, 0, 0, new Runnable() {
+            @Override
+            public void run() {
+                searchRepositories(event.getQuery());
+            }
+        });
     }
 
     public static class State implements Parcelable {
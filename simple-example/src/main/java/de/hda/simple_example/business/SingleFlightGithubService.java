@@ -0,0 +1,140 @@
+package de.hda.simple_example.business;
+
+import com.mvp.Cancellable;
+import com.mvp.CancellationToken;
+import com.mvp.SingleFlight;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.hda.simple_example.model.SearchResult;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Lets concurrent identical searches share one HTTP request. Cancelling a returned call only stops
+ * its own caller, the request is cancelled once no caller waits for it anymore. Asynchronous calls
+ * are not shared.
+ */
+public class SingleFlightGithubService implements GithubService {
+
+    private final GithubService githubService;
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    public SingleFlightGithubService(GithubService githubService) {
+        this.githubService = githubService;
+    }
+
+    @Override
+    public Call<SearchResult> searchRepositories(String query, int page) {
+        return new SharedCall<>(Arrays.asList("searchRepositories", query, page), githubService.searchRepositories(query, page));
+    }
+
+    private final class SharedCall<T> implements Call<T> {
+        private final Object key;
+        private final Call<T> call;
+        private volatile CancellationToken token;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+
+        SharedCall(Object key, Call<T> call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            synchronized (this) {
+                if (executed)
+                    throw new IllegalStateException("Already executed.");
+                executed = true;
+                token = CancellationToken.current().child();
+            }
+            if (canceled)
+                token.cancel();
+            try {
+                return singleFlight.execute(key, token, new SingleFlight.Loader<SharedResponse<T>>() {
+                    @Override
+                    public SharedResponse<T> load() throws IOException {
+                        CancellationToken flight = CancellationToken.current();
+                        Cancellable cancellable = new Cancellable() {
+                            @Override
+                            public void cancel() {
+                                call.cancel();
+                            }
+                        };
+                        flight.onCancel(cancellable);
+                        try {
+                            return new SharedResponse<>(call.execute());
+                        } finally {
+                            flight.remove(cancellable);
+                        }
+                    }
+                }).copy();
+            } finally {
+                token.release();
+            }
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            call.enqueue(callback);
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed || call.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            CancellationToken token = this.token;
+            if (token != null)
+                token.cancel();
+            if (!executed)
+                call.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new SharedCall<>(key, call.clone());
+        }
+
+        @Override
+        public Request request() {
+            return call.request();
+        }
+    }
+
+    /**
+     * An error body can only be read once, it is buffered so every caller gets its own copy.
+     */
+    private static final class SharedResponse<T> {
+        private final Response<T> response;
+        private final MediaType contentType;
+        private final byte[] errorBody;
+
+        SharedResponse(Response<T> response) throws IOException {
+            this.response = response;
+            ResponseBody errorBody = response.errorBody();
+            this.contentType = errorBody != null ? errorBody.contentType() : null;
+            this.errorBody = errorBody != null ? errorBody.bytes() : null;
+        }
+
+        Response<T> copy() {
+            if (errorBody == null)
+                return response;
+            return Response.error(ResponseBody.create(contentType, errorBody), response.raw());
+        }
+    }
+}
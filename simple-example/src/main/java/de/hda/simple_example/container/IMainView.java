@@ -1,6 +1,7 @@
 package de.hda.simple_example.container;
 
 import com.mvp.MvpView;
+import com.mvp.annotation.Conflate;
 
 import java.util.List;
 
@@ -11,6 +12,7 @@ import de.hda.simple_example.model.Repository;
  */
 
 public interface IMainView extends MvpView {
+    @Conflate
     void setRepositories(List<Repository> repositories);
     void addRepositories(List<Repository> repositories);
     void showDetailViewInActivity(Repository repository);
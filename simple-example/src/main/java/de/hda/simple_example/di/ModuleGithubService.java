@@ -3,6 +3,7 @@ package de.hda.simple_example.di;
 import dagger.Module;
 import dagger.Provides;
 import de.hda.simple_example.business.GithubService;
+import de.hda.simple_example.business.SingleFlightGithubService;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -14,9 +15,9 @@ public class ModuleGithubService {
     @Provides
     @ApplicationScope
     public GithubService getGithubService() {
-        return new Retrofit.Builder()
+        return new SingleFlightGithubService(new Retrofit.Builder()
                 .addConverterFactory(GsonConverterFactory.create())
                 .baseUrl(githubApiEndpoint)
-                .build().create(GithubService.class);
+                .build().create(GithubService.class));
     }
 }
@@ -38,11 +38,8 @@ public class TodayWeatherPresenter extends WeatherPresenter
             dispatchRequestStarted();
             final Weather weather = weatherService.getCurrentWeather(longitude, latitude, "metric");
             updateState(weather);
-            submitOnUiThread(() -> {
-                getView().showWeather(lastTemperature, lastHumidity);
-                weatherService.loadIcon(weather.icon(), TodayWeatherPresenter.this);
-                dispatchRequestFinished();
-            });
+            dispatchRequestFinished();
+            submitOnUiThread(() -> weatherService.loadIcon(weather.icon(), TodayWeatherPresenter.this));
         } catch (IOException e)
         {
             dispatchEvent(e).toAny();
@@ -65,7 +62,7 @@ public class TodayWeatherPresenter extends WeatherPresenter
                         weatherService.getForecastWeather(longitude, latitude, "metric");
                 dispatchRequestFinished();
                 final String forecastData = weatherParser.parse(weather);
-                submitOnUiThread(() -> getView().showForecastWeather(forecastData));
+                getBufferedView().showForecastWeather(forecastData);
             }
         } catch (Exception e)
         {
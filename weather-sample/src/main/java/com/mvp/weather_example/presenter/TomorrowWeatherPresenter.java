@@ -36,19 +36,13 @@ public class TomorrowWeatherPresenter extends WeatherPresenter {
             dispatchRequestStarted();
             final Weather weather = weatherService.getTomorrowWeather(longitude, latitude, "metric", FORECAST_DAYS);
             updateState(weather);
-            submitOnUiThread(() -> postWeatherResult(weather));
+            dispatchRequestFinished();
+            submitOnUiThread(() -> weatherService.loadIcon(weather.icon(), TomorrowWeatherPresenter.this));
         }catch(IOException e){
             dispatchEvent(e).toAny();
         }
     }
 
-    private void postWeatherResult(Weather weather)
-    {
-        weatherService.loadIcon(weather.icon(), TomorrowWeatherPresenter.this);
-        getView().showWeather(lastTemperature, lastHumidity);
-        dispatchRequestFinished();
-    }
-
     @BackgroundThread
     public void loadForecastWeatherDataForTomorrow()
     {
@@ -62,7 +56,7 @@ public class TomorrowWeatherPresenter extends WeatherPresenter {
                 double latitude = lastKnownLocation.getLatitude();
                 ThreeHoursForecastWeather weather = weatherService.getForecastWeather(longitude, latitude, "metric");
                 final String forecastData = weatherParser.parse(weather);
-                submitOnUiThread(() -> postForecastWeather(forecastData));
+                getBufferedView().showForecastWeather(forecastData);
             }
         }catch(IOException e) {
             dispatchEvent(e).toAny();
@@ -72,10 +66,4 @@ public class TomorrowWeatherPresenter extends WeatherPresenter {
             dispatchRequestFinished();
         }
     }
-
-    private void postForecastWeather(String forecastData)
-    {
-        getView().showForecastWeather(forecastData);
-        dispatchRequestFinished();
-    }
 }
@@ -28,10 +28,6 @@ public abstract class WeatherPresenter extends MvpPresenter<WeatherView> impleme
     protected WeatherService weatherService;
     protected WeatherResponseFilter weatherParser;
 
-    protected String lastTemperature;
-    protected String lastHumidity;
-    private Bitmap icon;
-
     protected WeatherPresenter()
     {
     }
@@ -67,11 +63,7 @@ public abstract class WeatherPresenter extends MvpPresenter<WeatherView> impleme
         {
             locationProvider.requestLocationUpdates();
         }
-        if (lastTemperature != null && lastHumidity != null)
-        {
-            view.showWeather(lastTemperature, lastHumidity);
-            view.showIcon(icon);
-        } else
+        if (!viewState().hasWeather())
         {
             loadWeatherIfAllPermissionsGranted(view);
         }
@@ -115,12 +107,12 @@ public abstract class WeatherPresenter extends MvpPresenter<WeatherView> impleme
 
     protected void dispatchRequestStarted()
     {
-        submitOnUiThread(() -> getView().requestStarted());
+        getBufferedView().requestStarted();
     }
 
     protected void dispatchRequestFinished()
     {
-        submitOnUiThread(() -> getView().requestFinished());
+        getBufferedView().requestFinished();
     }
 
     private boolean requestPermissionsIfNeeded(WeatherView view)
@@ -141,8 +133,21 @@ public abstract class WeatherPresenter extends MvpPresenter<WeatherView> impleme
 
     protected void updateState(Weather weather)
     {
-        this.lastTemperature = weather.temperature();
-        this.lastHumidity = weather.humidity();
+        WeatherViewState state;
+        do
+        {
+            state = getViewState();
+        } while (!compareAndSetViewState(state, orEmpty(state).withWeather(weather)));
+    }
+
+    private WeatherViewState viewState()
+    {
+        return orEmpty(getViewState());
+    }
+
+    private static WeatherViewState orEmpty(WeatherViewState state)
+    {
+        return state != null ? state : WeatherViewState.EMPTY;
     }
 
     private boolean hasAllPermissions()
@@ -178,7 +183,10 @@ public abstract class WeatherPresenter extends MvpPresenter<WeatherView> impleme
     @Override
     public void onIconLoaded(final Bitmap resource)
     {
-        this.icon = resource;
-        submitOnUiThread(() -> getView().showIcon(resource));
+        WeatherViewState state;
+        do
+        {
+            state = getViewState();
+        } while (!compareAndSetViewState(state, orEmpty(state).withIcon(resource)));
     }
 }
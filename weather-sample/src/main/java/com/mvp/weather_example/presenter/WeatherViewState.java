@@ -0,0 +1,59 @@
+package com.mvp.weather_example.presenter;
+
+import android.graphics.Bitmap;
+
+import com.mvp.annotation.Render;
+import com.mvp.annotation.ViewState;
+import com.mvp.weather_example.model.Weather;
+import com.mvp.weather_example.view.WeatherView;
+
+@ViewState(WeatherView.class)
+public final class WeatherViewState
+{
+
+    public static final WeatherViewState EMPTY = new WeatherViewState(null, null, null);
+
+    private final String temperature;
+    private final String humidity;
+    private final Bitmap icon;
+
+    private WeatherViewState(String temperature, String humidity, Bitmap icon)
+    {
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.icon = icon;
+    }
+
+    @Render("showWeather")
+    public String temperature()
+    {
+        return temperature;
+    }
+
+    @Render("showWeather")
+    public String humidity()
+    {
+        return humidity;
+    }
+
+    @Render("showIcon")
+    public Bitmap icon()
+    {
+        return icon;
+    }
+
+    public boolean hasWeather()
+    {
+        return temperature != null && humidity != null;
+    }
+
+    public WeatherViewState withWeather(Weather weather)
+    {
+        return new WeatherViewState(weather.temperature(), weather.humidity(), icon);
+    }
+
+    public WeatherViewState withIcon(Bitmap icon)
+    {
+        return new WeatherViewState(temperature, humidity, icon);
+    }
+}
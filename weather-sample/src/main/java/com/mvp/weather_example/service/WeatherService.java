@@ -1,10 +1,14 @@
 package com.mvp.weather_example.service;
 
+import com.mvp.Cancellable;
+import com.mvp.CancellationToken;
+import com.mvp.SingleFlight;
 import com.mvp.weather_example.model.forecast.threehours.ThreeHoursForecastWeather;
 import com.mvp.weather_example.model.forecast.tomorrow.TomorrowWeather;
 import com.mvp.weather_example.model.today.TodayWeather;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import retrofit2.Call;
 import retrofit2.Response;
@@ -14,6 +18,7 @@ public class WeatherService
 
     private final WeatherApi api;
     private final ImageRequestManager imageRequestManager;
+    private final SingleFlight singleFlight = new SingleFlight();
     private String apiKey;
 
     public WeatherService(WeatherApi api, ImageRequestManager imageRequestManager, String apiKey){
@@ -29,26 +34,48 @@ public class WeatherService
 
     public TomorrowWeather getTomorrowWeather(double longitude, double latitude, String metric, int forecastDays) throws IOException
     {
-        Call<TomorrowWeather> call = api.getTomorrowWeather(longitude, latitude, metric, forecastDays, apiKey);
-        Response<TomorrowWeather> execute = call.execute();
-        TomorrowWeather tomorrowWeather = execute.body();
-        return tomorrowWeather;
+        return singleFlight.execute(Arrays.asList("getTomorrowWeather", longitude, latitude, metric, forecastDays), () -> {
+            Call<TomorrowWeather> call = api.getTomorrowWeather(longitude, latitude, metric, forecastDays, apiKey);
+            Response<TomorrowWeather> execute = execute(call);
+            return execute.body();
+        });
     }
 
     public ThreeHoursForecastWeather getForecastWeather(double longitude, double latitude, String metric) throws IOException
     {
-        Call<ThreeHoursForecastWeather> call = api.getForecastWeather(longitude, latitude, metric, apiKey);
-        Response<ThreeHoursForecastWeather> execute = call.execute();
-        ThreeHoursForecastWeather threeHoursForecastWeather = execute.body();
-        return threeHoursForecastWeather;
+        return singleFlight.execute(Arrays.asList("getForecastWeather", longitude, latitude, metric), () -> {
+            Call<ThreeHoursForecastWeather> call = api.getForecastWeather(longitude, latitude, metric, apiKey);
+            Response<ThreeHoursForecastWeather> execute = execute(call);
+            return execute.body();
+        });
     }
 
     public TodayWeather getCurrentWeather(double longitude, double latitude, String metric) throws IOException
     {
-        Call<TodayWeather> call = api.getCurrentWeather(longitude, latitude, metric, apiKey);
-        Response<TodayWeather> response = call.execute();
-        TodayWeather todayWeather = response.body();
-        return todayWeather;
+        return singleFlight.execute(Arrays.asList("getCurrentWeather", longitude, latitude, metric), () -> {
+            Call<TodayWeather> call = api.getCurrentWeather(longitude, latitude, metric, apiKey);
+            Response<TodayWeather> response = execute(call);
+            return response.body();
+        });
+    }
+
+    /**
+     * Executes {@code call}, it is cancelled when the task it runs in is superseded or its presenter
+     * is destroyed. Identical requests of concurrent presenters share one call, it is only cancelled
+     * once all of them gave up on it.
+     */
+    private <T> Response<T> execute(Call<T> call) throws IOException
+    {
+        CancellationToken token = CancellationToken.current();
+        Cancellable cancellable = call::cancel;
+        token.onCancel(cancellable);
+        try
+        {
+            return call.execute();
+        } finally
+        {
+            token.remove(cancellable);
+        }
     }
 
 }
@@ -3,13 +3,17 @@ package com.mvp.weather_example.view;
 import android.graphics.Bitmap;
 
 import com.mvp.MvpView;
+import com.mvp.annotation.Conflate;
 
 public interface WeatherView extends MvpView {
     void requestStarted();
     void requestFinished();
+    @Conflate
     void showWeather(String temperature, String humidity);
     boolean isPermissionGranted(String permission);
     void requestPermission(String permission, int requestCode);
+    @Conflate
     void showIcon(Bitmap icon);
+    @Conflate
     void showForecastWeather(String forecastString);
 }